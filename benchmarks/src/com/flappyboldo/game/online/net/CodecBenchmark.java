@@ -0,0 +1,152 @@
+package com.flappyboldo.game.online.net;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Codificar y decodificar cada mensaje del protocolo binario, con cabecera de trama. El texto heredado no
+// tiene ROOM_DELTA, SNAPSHOT ni ACK; su camino caliente (ROOM completo) esta en RoomStateBenchmark.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    private static final int BUFFER_SIZE = 1500;
+
+    @Param({"HELLO", "WELCOME", "ROOM", "READY", "START_GAME", "JUMP", "SPAWN", "REMATCH", "ELIMINATED", "FIN",
+        "LEAVE", "CLIENT_LEFT", "SERVER_CLOSED", "ERROR", "PING", "PONG", "ROOM_DELTA", "ROOM_ACK", "SNAPSHOT",
+        "RELIABLE", "ACK"})
+    public String message;
+
+    private OnlineMessage outbound;
+    private OnlineMessage inbound;
+    private ByteBuffer writeBuffer;
+    private ByteBuffer readBuffer;
+    private int encodedLength;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        outbound = new OnlineMessage();
+        inbound = new OnlineMessage();
+        writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        build(message, outbound);
+        if (encode() == 0) {
+            throw new IllegalStateException(message + " cannot be encoded");
+        }
+        writeBuffer.flip();
+        encodedLength = writeBuffer.remaining();
+        readBuffer.put(writeBuffer);
+    }
+
+    @Benchmark
+    public int encode() {
+        ByteBuffer buffer = writeBuffer;
+        buffer.clear();
+        OnlineCodec.writeFrameHeader(buffer, true);
+        return OnlineCodec.encode(buffer, outbound, true) ? buffer.position() : 0;
+    }
+
+    @Benchmark
+    public int decode() {
+        ByteBuffer buffer = readBuffer;
+        buffer.limit(encodedLength);
+        buffer.position(0);
+        int frameFormat = OnlineCodec.readFrameHeader(buffer);
+        return OnlineCodec.decode(buffer, frameFormat, inbound) ? inbound.opcode : -1;
+    }
+
+    // Contenido representativo de una partida de dos jugadores a mitad de recorrido.
+    private static void build(String name, OnlineMessage out) {
+        switch (name) {
+            case "HELLO":
+                out.hello("Player", 42);
+                return;
+            case "WELCOME":
+                out.welcome(1);
+                return;
+            case "ROOM":
+                out.room(OnlineProtocol.ROOM_PLAYING, 0);
+                out.addRosterEntry(1, "Player", true, 12, true);
+                out.addRosterEntry(2, "Rival", true, 9, false);
+                return;
+            case "READY":
+                out.readyState(true);
+                return;
+            case "START_GAME":
+                out.startGame(24f, 100f, 1200L, 123456789, 120);
+                return;
+            case "JUMP":
+                out.jump(1, 57, 4321L);
+                return;
+            case "SPAWN":
+                out.spawn(87.5f);
+                return;
+            case "REMATCH":
+                out.rematch();
+                return;
+            case "ELIMINATED":
+                out.eliminated(2);
+                return;
+            case "FIN":
+                out.fin(1);
+                return;
+            case "LEAVE":
+                out.leave(1);
+                return;
+            case "CLIENT_LEFT":
+                out.clientLeft(2);
+                return;
+            case "SERVER_CLOSED":
+                out.serverClosed();
+                return;
+            case "ERROR":
+                out.error(OnlineProtocol.ERROR_UNSUPPORTED_VERSION);
+                return;
+            case "PING":
+                out.ping(17, 123_456_789_012L);
+                return;
+            case "PONG":
+                out.pong(17, 123_456_789_012L);
+                return;
+            case "ROOM_DELTA":
+                out.roomDelta(8, 7);
+                out.addRosterDelta(2, OnlineMessage.FIELD_ALIVE | OnlineMessage.FIELD_SCORE, null, true, 9, false);
+                return;
+            case "ROOM_ACK":
+                out.roomAck(8);
+                return;
+            case "SNAPSHOT":
+                out.snapshot(4321L, 120);
+                out.addSnapshotBird(1, 103.25f, -41.5f, true, 57);
+                out.addSnapshotBird(2, 58.75f, 12.5f, true, 33);
+                for (int i = 0; i < 4; i++) {
+                    out.addSnapshotPipe(30f + i * 29f, 70f + i * 11f);
+                }
+                return;
+            case "RELIABLE":
+                out.eliminated(2);
+                out.reliableSequence = 123;
+                return;
+            case "ACK":
+                out.ack(120, 123, 0x5, 7);
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown message " + name);
+        }
+    }
+}
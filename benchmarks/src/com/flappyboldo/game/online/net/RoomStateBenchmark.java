@@ -0,0 +1,158 @@
+package com.flappyboldo.game.online.net;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Estado de sala en ambos extremos: lo que hacen OnlineRoom.recordRoomState y broadcastRoomState para
+// construir la carga (delta binaria o ROOM completo en texto) y lo que hace OnlineClient al recibirla.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoomStateBenchmark {
+    private static final int HISTORY_SIZE = 32;
+    private static final int BUFFER_SIZE = 1500;
+
+    @Param({"2", "8"})
+    public int players;
+
+    private RoomStateHistory serverHistory;
+    private RoomStateHistory clientHistory;
+    private OnlineMessage outbound;
+    private OnlineMessage inbound;
+    private ByteBuffer writeBuffer;
+    private ByteBuffer deltaBuffer;
+    private ByteBuffer roomBuffer;
+    private int deltaLength;
+    private int roomLength;
+    private int clientVersion;
+    private int[] scores;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        serverHistory = new RoomStateHistory(HISTORY_SIZE);
+        clientHistory = new RoomStateHistory(HISTORY_SIZE);
+        outbound = new OnlineMessage();
+        inbound = new OnlineMessage();
+        writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        scores = new int[players];
+        names = new String[players];
+        for (int i = 0; i < players; i++) {
+            names[i] = "Player" + (i + 1);
+        }
+        record();
+
+        // El cliente parte de la version 1 completa; cada medida le aplica una delta de un marcador.
+        serverHistory.writeDelta(0, outbound);
+        clientHistory.applyDelta(outbound);
+        clientVersion = 1;
+        scores[0]++;
+        record();
+        serverHistory.writeDelta(1, outbound);
+        deltaBuffer = encodeCopy(outbound, true);
+        deltaLength = deltaBuffer.limit();
+
+        writeFullRoom(serverHistory.latest());
+        roomBuffer = encodeCopy(outbound, true);
+        roomLength = roomBuffer.limit();
+    }
+
+    // Un marcador cambia y la sala manda una delta binaria a cada cliente desde su version confirmada.
+    @Benchmark
+    public int broadcastDelta() {
+        int acked = serverHistory.getLatestVersion();
+        scores[0]++;
+        record();
+        int bytes = 0;
+        for (int i = 0; i < players; i++) {
+            serverHistory.writeDelta(acked, outbound);
+            bytes += encode(outbound, true);
+        }
+        return bytes;
+    }
+
+    // Clientes de texto: ROOM completo cada vez que cambia algo.
+    @Benchmark
+    public int broadcastFullText() {
+        scores[0]++;
+        record();
+        writeFullRoom(serverHistory.latest());
+        int bytes = 0;
+        for (int i = 0; i < players; i++) {
+            bytes += encode(outbound, false);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public List<String> clientApplyDelta() {
+        ByteBuffer buffer = deltaBuffer;
+        buffer.limit(deltaLength);
+        buffer.position(0);
+        OnlineCodec.decode(buffer, OnlineCodec.readFrameHeader(buffer), inbound);
+        // Cada medida es una version nueva encadenada a la anterior, como en una partida.
+        inbound.baseVersion = clientVersion;
+        inbound.roomVersion = ++clientVersion;
+        RoomStateHistory.Entry entry = clientHistory.applyDelta(inbound);
+        return OnlineClient.describeRoster(entry);
+    }
+
+    @Benchmark
+    public List<String> clientParseRoom() {
+        ByteBuffer buffer = roomBuffer;
+        buffer.limit(roomLength);
+        buffer.position(0);
+        OnlineCodec.decode(buffer, OnlineCodec.readFrameHeader(buffer), inbound);
+        return OnlineClient.parseRoomPlayers(inbound);
+    }
+
+    private void record() {
+        RoomStateHistory.Entry entry = serverHistory.beginRecord();
+        entry.roomState = OnlineProtocol.ROOM_PLAYING;
+        entry.winnerId = 0;
+        for (int i = 0; i < players; i++) {
+            entry.addPlayer(i + 1, names[i], true, scores[i], true);
+        }
+        serverHistory.commitRecord(entry);
+    }
+
+    private void writeFullRoom(RoomStateHistory.Entry entry) {
+        outbound.room(entry.roomState, entry.winnerId);
+        for (int i = 0; i < entry.count; i++) {
+            outbound.addRosterEntry(entry.ids[i], entry.names[i], entry.ready[i], entry.scores[i], entry.alive[i]);
+        }
+    }
+
+    private int encode(OnlineMessage message, boolean binary) {
+        ByteBuffer buffer = writeBuffer;
+        buffer.clear();
+        OnlineCodec.writeFrameHeader(buffer, binary);
+        return OnlineCodec.encode(buffer, message, binary) ? buffer.position() : 0;
+    }
+
+    private ByteBuffer encodeCopy(OnlineMessage message, boolean binary) {
+        encode(message, binary);
+        writeBuffer.flip();
+        ByteBuffer copy = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        copy.put(writeBuffer);
+        copy.flip();
+        return copy;
+    }
+}
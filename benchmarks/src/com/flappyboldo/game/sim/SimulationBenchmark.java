@@ -0,0 +1,84 @@
+package com.flappyboldo.game.sim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Un tick de partida a distinto numero de pajaros y tubos. Los tubos se reponen y los pajaros se
+// mantienen en el hueco para que el estado sea estable durante toda la medida.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    private static final float BIRD_X = 24f;
+    private static final float GAP_Y = FlappySimulation.WORLD_HEIGHT / 2f;
+    private static final float HOVER_Y = GAP_Y - 10f;
+    private static final int HISTORY_TICKS = 19;
+
+    @Param({"2", "8"})
+    public int birds;
+
+    @Param({"2", "8", "16"})
+    public int pipes;
+
+    private FlappySimulation simulation;
+    private SimulationHistory history;
+    private float pipeSpacing;
+    private int allBirds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simulation = new FlappySimulation(birds, BIRD_X, FlappySimulation.DEFAULT_TICK_RATE);
+        history = new SimulationHistory(HISTORY_TICKS, birds, BIRD_X, FlappySimulation.DEFAULT_TICK_RATE);
+        simulation.reset(GAP_Y);
+        // Los tubos cubren el mundo entero: el primero ya esta a la altura de los pajaros.
+        pipeSpacing = (FlappySimulation.WORLD_WIDTH + FlappySimulation.PIPE_WIDTH) / pipes;
+        for (int i = 0; i < pipes; i++) {
+            simulation.addPipe(BIRD_X + i * pipeSpacing, GAP_Y);
+        }
+        allBirds = (1 << birds) - 1;
+    }
+
+    @Benchmark
+    public int step() {
+        int changed = simulation.step(nextJumpMask());
+        refill();
+        return changed;
+    }
+
+    // Lo que hace OnlineRoom.tickMatch: paso mas copia al historial de compensacion de lag.
+    @Benchmark
+    public int stepWithHistory() {
+        int jumpMask = nextJumpMask();
+        int changed = simulation.step(jumpMask);
+        history.record(simulation, jumpMask);
+        refill();
+        return changed;
+    }
+
+    private int nextJumpMask() {
+        return simulation.getBirdY(0) < HOVER_Y && simulation.getBirdVelocity(0) <= 0f ? allBirds : 0;
+    }
+
+    private void refill() {
+        int count = simulation.getPipeCount();
+        if (count < pipes) {
+            float lastX = count == 0 ? BIRD_X : simulation.getPipeX(count - 1);
+            simulation.addPipe(lastX + pipeSpacing, GAP_Y);
+        }
+    }
+}
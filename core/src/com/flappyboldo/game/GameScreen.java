@@ -13,7 +13,6 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.GlyphLayout;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.scenes.scene2d.ui.ImageButton;
@@ -29,12 +28,14 @@ import com.badlogic.gdx.utils.Scaling;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.flappyboldo.game.sim.FlappySimulation;
 
 import java.util.Random;
 
 public class GameScreen implements Screen {
-    private static final int WORLD_HEIGHT = 200;
-    private static final int WORLD_WIDTH = 100;
+    private static final float WORLD_HEIGHT = FlappySimulation.WORLD_HEIGHT;
+    private static final float WORLD_WIDTH = FlappySimulation.WORLD_WIDTH;
+    private static final int PIPES_AHEAD = 4;
     private static final String PREFS_NAME = "flappy-bird-online";
     private static final String PREF_BEST_SCORE = "best-score";
 
@@ -44,7 +45,7 @@ public class GameScreen implements Screen {
     }
 
     private final float pipeSpaceWidth = 4f * WORLD_WIDTH / 6f;
-    private final float pipeSpaceHeight = WORLD_HEIGHT / 3f;
+    private final float pipeSpaceHeight = FlappySimulation.PIPE_GAP_HEIGHT;
 
     private final MyGdxGame game;
 
@@ -71,15 +72,12 @@ public class GameScreen implements Screen {
     private float birdY;
     private float birdWidth;
     private float birdHeight;
-    private float birdVelocity;
     private float birdRotation;
 
     private float groundOffset;
-    private float pipeTimer;
     private float animationTime;
 
-    private Vector2[] pipes;
-    private boolean[] scoreCounted;
+    private FlappySimulation world;
     private Random random;
 
     private boolean notReady;
@@ -139,8 +137,7 @@ public class GameScreen implements Screen {
         birdAnimation = new Animation<>(1 / 14f, birdRegions, Animation.PlayMode.LOOP_REVERSED);
 
         random = new Random();
-        pipes = new Vector2[4];
-        scoreCounted = new boolean[4];
+        world = new FlappySimulation(1, 0.25f * WORLD_WIDTH, FlappySimulation.DEFAULT_TICK_RATE);
 
         createPauseUi();
 
@@ -256,19 +253,15 @@ public class GameScreen implements Screen {
     }
 
     private void resetGame() {
-        birdWidth = 0.15f * WORLD_WIDTH;
-        birdHeight = WORLD_HEIGHT / 17f;
-        birdX = 0.25f * WORLD_WIDTH;
+        birdWidth = FlappySimulation.BIRD_WIDTH;
+        birdHeight = FlappySimulation.BIRD_HEIGHT;
+        birdX = world.getBirdX();
         birdY = 0.5f * WORLD_HEIGHT;
-        birdVelocity = 0;
         birdRotation = 0;
 
-        pipes[0] = new Vector2(2f * WORLD_WIDTH, 0.5f * WORLD_HEIGHT);
-        scoreCounted[0] = false;
-        for (int i = 1; i < 4; i++) {
-            pipes[i] = new Vector2(pipes[i - 1].x + pipeSpaceWidth, randomPipeY());
-            scoreCounted[i] = false;
-        }
+        world.reset(birdY);
+        world.addPipe(2f * WORLD_WIDTH, 0.5f * WORLD_HEIGHT + pipeSpaceHeight / 2f);
+        refillPipes();
 
         setPaused(false);
         setPauseView(PauseView.MENU);
@@ -277,12 +270,18 @@ public class GameScreen implements Screen {
         newBest = false;
         currentScore = 0;
         groundOffset = 0;
-        pipeTimer = 0;
         animationTime = 0;
     }
 
-    private float randomPipeY() {
-        return (random.nextFloat() * 0.4f + 0.2f) * WORLD_HEIGHT;
+    private void refillPipes() {
+        while (world.getPipeCount() < PIPES_AHEAD) {
+            float lastX = world.getPipeX(world.getPipeCount() - 1);
+            world.addPipe(lastX + pipeSpaceWidth, randomGapCenterY());
+        }
+    }
+
+    private float randomGapCenterY() {
+        return (random.nextFloat() * 0.4f + 0.2f) * WORLD_HEIGHT + pipeSpaceHeight / 2f;
     }
 
     private boolean jumpPressed() {
@@ -321,37 +320,22 @@ public class GameScreen implements Screen {
 
         if (jumpPressed()) {
             notReady = false;
-            birdVelocity = 130;
+            world.queueJump(0);
             birdRotation = 0;
         }
 
         if (!notReady) {
-            pipeTimer += delta;
-            while (0.005f < pipeTimer) {
-                pipeTimer -= 0.005f;
-                for (int i = 0; i < 4; i++) {
-                    pipes[i].x -= 0.0025f * WORLD_WIDTH;
-
-                    if (pipes[i].x < -WORLD_WIDTH / 6f) {
-                        pipes[i].x = pipes[(i + 3) % 4].x + pipeSpaceWidth;
-                        pipes[i].y = randomPipeY();
-                        scoreCounted[i] = false;
-                    }
-
-                    if (!scoreCounted[i] && pipes[i].x < (birdX + birdWidth / 2f)) {
-                        currentScore++;
-                        scoreCounted[i] = true;
-                    }
-                }
-            }
+            world.advance(delta);
+            refillPipes();
 
-            birdVelocity -= 400 * delta;
-            birdY += birdVelocity * delta;
-            if (birdVelocity < 0) {
+            birdY = world.getBirdY(0);
+            if (world.getBirdVelocity(0) < 0) {
                 birdRotation = -45;
             }
-
-            checkCollision();
+            currentScore = world.getBirdScore(0);
+            if (!world.isBirdAlive(0)) {
+                handleGameOver();
+            }
 
             groundOffset -= WORLD_WIDTH / 20f;
             if (groundOffset <= -WORLD_WIDTH / 20f) {
@@ -360,27 +344,6 @@ public class GameScreen implements Screen {
         }
     }
 
-    private void checkCollision() {
-        if (birdY >= WORLD_HEIGHT - birdHeight) {
-            birdY = WORLD_HEIGHT - birdHeight;
-            birdVelocity = 0;
-        }
-
-        if (0.15f * WORLD_HEIGHT > birdY) {
-            handleGameOver();
-            return;
-        }
-
-        for (Vector2 pipe : pipes) {
-            if (birdX + birdWidth >= pipe.x && birdX < pipe.x + WORLD_WIDTH / 6f) {
-                if (birdY < (pipe.y + WORLD_HEIGHT / 30f) || birdY + birdHeight > pipe.y + pipeSpaceHeight) {
-                    handleGameOver();
-                    return;
-                }
-            }
-        }
-    }
-
     private BitmapFont createCrispFont(float scale) {
         BitmapFont font = new BitmapFont();
         font.getData().setScale(scale);
@@ -428,11 +391,13 @@ public class GameScreen implements Screen {
 
         batch.draw(skyTexture, 0, 0.15f * WORLD_HEIGHT, WORLD_WIDTH, 0.85f * WORLD_HEIGHT);
 
-        for (Vector2 pipe : pipes) {
-            batch.draw(pipeHeadTexture2, pipe.x, pipe.y, WORLD_WIDTH / 6f, WORLD_HEIGHT / 30f);
-            batch.draw(pipeBodyTexture, pipe.x + (WORLD_WIDTH / 200f), 0.15f * WORLD_HEIGHT, (WORLD_WIDTH / 6f) - (WORLD_WIDTH / 100f), pipe.y - 0.15f * WORLD_HEIGHT);
-            batch.draw(pipeBodyTexture, pipe.x + (WORLD_WIDTH / 200f), pipe.y + pipeSpaceHeight + (WORLD_WIDTH / 30f), (WORLD_WIDTH / 6f) - (WORLD_WIDTH / 100f), WORLD_HEIGHT / 2f);
-            batch.draw(pipeHeadTexture1, pipe.x, pipe.y + pipeSpaceHeight, WORLD_WIDTH / 6f, WORLD_HEIGHT / 30f);
+        for (int i = 0; i < world.getPipeCount(); i++) {
+            float pipeX = world.getPipeX(i);
+            float pipeY = world.getPipeGapY(i) - pipeSpaceHeight / 2f;
+            batch.draw(pipeHeadTexture2, pipeX, pipeY, WORLD_WIDTH / 6f, WORLD_HEIGHT / 30f);
+            batch.draw(pipeBodyTexture, pipeX + (WORLD_WIDTH / 200f), 0.15f * WORLD_HEIGHT, (WORLD_WIDTH / 6f) - (WORLD_WIDTH / 100f), pipeY - 0.15f * WORLD_HEIGHT);
+            batch.draw(pipeBodyTexture, pipeX + (WORLD_WIDTH / 200f), pipeY + pipeSpaceHeight + (WORLD_WIDTH / 30f), (WORLD_WIDTH / 6f) - (WORLD_WIDTH / 100f), WORLD_HEIGHT / 2f);
+            batch.draw(pipeHeadTexture1, pipeX, pipeY + pipeSpaceHeight, WORLD_WIDTH / 6f, WORLD_HEIGHT / 30f);
         }
 
         TextureRegion birdFrame = birdAnimation.getKeyFrame(animationTime, true);
@@ -0,0 +1,19 @@
+package com.flappyboldo.game.cli;
+
+// Lectura de opciones numericas comun a los ejecutables de consola; cada uno aporta su texto de uso.
+public final class CliArgs {
+    private CliArgs() {
+    }
+
+    public static int parseBoundedInt(String raw, int min, int max, String label, String usage) {
+        try {
+            int value = Integer.parseInt(raw.trim());
+            if (value < min || value > max) {
+                throw new IllegalArgumentException(label + " out of range");
+            }
+            return value;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid " + label + ". " + usage);
+        }
+    }
+}
@@ -29,25 +29,28 @@ import com.badlogic.gdx.utils.viewport.Viewport;
 import com.flappyboldo.game.MainMenuScreen;
 import com.flappyboldo.game.MyGdxGame;
 import com.flappyboldo.game.UiSkinFactory;
+import com.flappyboldo.game.online.net.LocalBirdPredictor;
 import com.flappyboldo.game.online.net.OnlineClientListener;
 import com.flappyboldo.game.online.net.OnlineSession;
+import com.flappyboldo.game.online.net.OnlineSnapshot;
+import com.flappyboldo.game.online.net.SnapshotInterpolator;
+import com.flappyboldo.game.sim.FlappySimulation;
+import com.flappyboldo.game.sim.PipeCourse;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class OnlineGameScreen implements Screen, OnlineClientListener {
-    private static final int WORLD_HEIGHT = 200;
-    private static final int WORLD_WIDTH = 100;
+    private static final float WORLD_HEIGHT = FlappySimulation.WORLD_HEIGHT;
+    private static final float WORLD_WIDTH = FlappySimulation.WORLD_WIDTH;
 
-    private static final float GROUND_HEIGHT = 0.15f * WORLD_HEIGHT;
-    private static final float PIPE_WIDTH = WORLD_WIDTH / 6f;
-    private static final float PIPE_GAP_HEIGHT = WORLD_HEIGHT / 3f;
-    private static final float PIPE_SPEED = 50f;
+    private static final float GROUND_HEIGHT = FlappySimulation.GROUND_HEIGHT;
+    private static final float PIPE_WIDTH = FlappySimulation.PIPE_WIDTH;
+    private static final float PIPE_GAP_HEIGHT = FlappySimulation.PIPE_GAP_HEIGHT;
 
-    private static final float BIRD_WIDTH = 0.15f * WORLD_WIDTH;
-    private static final float BIRD_HEIGHT = WORLD_HEIGHT / 17f;
-    private static final float GRAVITY = 400f;
-    private static final float JUMP_FORCE = 130f;
+    private static final float BIRD_WIDTH = FlappySimulation.BIRD_WIDTH;
+    private static final float BIRD_HEIGHT = FlappySimulation.BIRD_HEIGHT;
+
+    private static final int MAX_CATCHUP_STEPS = 30;
 
     private enum FinalView {
         MENU,
@@ -91,7 +94,10 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
     private final BirdState[] birds;
     private final float[] birdX;
     private final int[] serverScores;
-    private final List<PipeState> pipes;
+    private final FlappySimulation world;
+    private final PipeCourse course;
+    private final SnapshotInterpolator remoteInterpolator;
+    private final LocalBirdPredictor localPredictor;
 
     private int localPlayerId;
     private boolean gameStarted;
@@ -121,6 +127,8 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
         float spawnX,
         float spawnY,
         long startDelayMs,
+        int courseSeed,
+        int tickRate,
         String playerOneName,
         String playerTwoName
     ) {
@@ -134,7 +142,14 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
         this.birds = new BirdState[] {null, new BirdState(), new BirdState()};
         this.birdX = new float[] {0f, spawnX, spawnX};
         this.serverScores = new int[] {0, 0, 0};
-        this.pipes = new ArrayList<>();
+        int simulationTickRate = tickRate > 0 ? tickRate : FlappySimulation.DEFAULT_TICK_RATE;
+        this.world = new FlappySimulation(2, spawnX, simulationTickRate);
+        this.course = new PipeCourse(courseSeed, simulationTickRate);
+        // El servidor decide colisiones y puntuacion; el cliente solo mueve el mundo.
+        this.world.setCollisionsEnabled(false);
+        this.world.setCourse(course);
+        this.remoteInterpolator = new SnapshotInterpolator();
+        this.localPredictor = new LocalBirdPredictor();
         this.localPlayerId = 0;
         this.gameStarted = false;
         this.gameStartAtMs = 0L;
@@ -183,6 +198,7 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
 
         resetBird(1, spawnY);
         resetBird(2, spawnY);
+        localPredictor.reset(spawnY, world.getTickRate());
         birdX[1] = spawnX;
         birdX[2] = spawnX;
         gameStartAtMs = System.currentTimeMillis() + Math.max(0L, startDelayMs);
@@ -217,6 +233,7 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
         bird.velocity = 0f;
         bird.rotation = 0f;
         bird.alive = true;
+        world.resetBird(playerId - 1, initialY);
     }
 
     private void update(float delta) {
@@ -253,42 +270,58 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
             }
         }
 
-        if (jumpPressed() && localPlayerId > 0) {
-            BirdState local = birds[localPlayerId];
-            if (local != null && local.alive) {
-                jump(localPlayerId, true);
-            }
-        }
+        boolean localJump = jumpPressed() && localPlayerId > 0;
+        world.advance(delta);
 
+        OnlineSnapshot latestSnapshot = remoteInterpolator.latest();
+        long nowNanos = System.nanoTime();
         for (int playerId = 1; playerId <= 2; playerId++) {
             BirdState bird = birds[playerId];
             if (!bird.alive) {
                 continue;
             }
-            bird.velocity -= GRAVITY * delta;
-            bird.y += bird.velocity * delta;
+            if (playerId == localPlayerId) {
+                updateLocalBird(bird, delta, localJump);
+                continue;
+            }
+            if (latestSnapshot != null) {
+                updateRemoteBird(playerId, bird, latestSnapshot, nowNanos);
+                continue;
+            }
+            bird.y = world.getBirdY(playerId - 1);
+            bird.velocity = world.getBirdVelocity(playerId - 1);
             if (bird.velocity < 0f) {
                 bird.rotation = -45f;
             }
+        }
 
-            if (bird.y > WORLD_HEIGHT - BIRD_HEIGHT) {
-                bird.y = WORLD_HEIGHT - BIRD_HEIGHT;
-                bird.velocity = 0f;
-            }
+        groundOffset -= FlappySimulation.PIPE_SPEED * 0.35f * delta;
+        if (groundOffset <= -WORLD_WIDTH / 20f) {
+            groundOffset = 0f;
         }
+    }
 
-        for (int i = pipes.size() - 1; i >= 0; i--) {
-            PipeState pipe = pipes.get(i);
-            pipe.x -= PIPE_SPEED * delta;
-            if (pipe.x + PIPE_WIDTH < 0f) {
-                pipes.remove(i);
-            }
+    private void updateLocalBird(BirdState bird, float delta, boolean jumpRequested) {
+        int inputSequence = localPredictor.advance(delta, jumpRequested);
+        if (inputSequence > 0) {
+            bird.rotation = 0f;
+            session.sendJump(localPlayerId, inputSequence, localPredictor.getInputTick(inputSequence));
         }
+        bird.y = localPredictor.getRenderY();
+        bird.velocity = localPredictor.getVelocity();
+        if (bird.velocity < 0f) {
+            bird.rotation = -45f;
+        }
+    }
 
-        groundOffset -= PIPE_SPEED * 0.35f * delta;
-        if (groundOffset <= -WORLD_WIDTH / 20f) {
-            groundOffset = 0f;
+    private void updateRemoteBird(int playerId, BirdState bird, OnlineSnapshot latestSnapshot, long nowNanos) {
+        bird.y = remoteInterpolator.sampleBirdY(playerId, nowNanos, bird.y);
+        int index = latestSnapshot.indexOfBird(playerId);
+        if (index < 0) {
+            return;
         }
+        bird.velocity = latestSnapshot.birdVelocity[index];
+        bird.rotation = bird.velocity < 0f ? -45f : 0f;
     }
 
     private boolean jumpPressed() {
@@ -297,16 +330,13 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
             || Gdx.input.isKeyJustPressed(Input.Keys.ENTER);
     }
 
-    private void jump(int playerId, boolean sendToServer) {
+    private void jump(int playerId) {
         BirdState bird = birds[playerId];
         if (bird == null || !bird.alive) {
             return;
         }
-        bird.velocity = JUMP_FORCE;
         bird.rotation = 0f;
-        if (sendToServer) {
-            session.sendJump(playerId);
-        }
+        world.queueJump(playerId - 1);
     }
 
     private void markEliminated(int playerId) {
@@ -317,6 +347,7 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
         bird.alive = false;
         bird.rotation = -90f;
         bird.velocity = 0f;
+        world.setBird(playerId - 1, bird.y, 0f, false);
     }
 
     @Override
@@ -391,16 +422,17 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
     }
 
     private void drawPipes() {
-        for (PipeState pipe : pipes) {
-            float gapBottom = pipe.gapCenterY - PIPE_GAP_HEIGHT / 2f;
+        for (int i = 0; i < world.getPipeCount(); i++) {
+            float pipeX = world.getPipeX(i);
+            float gapBottom = world.getPipeGapY(i) - PIPE_GAP_HEIGHT / 2f;
             float topBodyY = gapBottom + PIPE_GAP_HEIGHT + (WORLD_HEIGHT / 30f);
 
-            game.getBatch().draw(pipeHeadTexture2, pipe.x, gapBottom, PIPE_WIDTH, WORLD_HEIGHT / 30f);
-            game.getBatch().draw(pipeBodyTexture, pipe.x + (WORLD_WIDTH / 200f), GROUND_HEIGHT,
+            game.getBatch().draw(pipeHeadTexture2, pipeX, gapBottom, PIPE_WIDTH, WORLD_HEIGHT / 30f);
+            game.getBatch().draw(pipeBodyTexture, pipeX + (WORLD_WIDTH / 200f), GROUND_HEIGHT,
                 PIPE_WIDTH - (WORLD_WIDTH / 100f), gapBottom - GROUND_HEIGHT);
-            game.getBatch().draw(pipeBodyTexture, pipe.x + (WORLD_WIDTH / 200f), topBodyY,
+            game.getBatch().draw(pipeBodyTexture, pipeX + (WORLD_WIDTH / 200f), topBodyY,
                 PIPE_WIDTH - (WORLD_WIDTH / 100f), WORLD_HEIGHT - topBodyY);
-            game.getBatch().draw(pipeHeadTexture1, pipe.x, gapBottom + PIPE_GAP_HEIGHT,
+            game.getBatch().draw(pipeHeadTexture1, pipeX, gapBottom + PIPE_GAP_HEIGHT,
                 PIPE_WIDTH, WORLD_HEIGHT / 30f);
         }
     }
@@ -553,12 +585,20 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
     }
 
     @Override
-    public void onStartGame(float startX, float startY, long delayMs) {
+    public void onStartGame(float startX, float startY, long delayMs, int courseSeed, int tickRate) {
         birdX[1] = startX;
         birdX[2] = startX;
+        if (tickRate > 0) {
+            world.setTickRate(tickRate);
+            localPredictor.setTickRate(tickRate);
+        }
+        course.reset(courseSeed, world.getTickRate());
+        world.reset(startY);
+        world.setBirdX(startX);
         resetBird(1, startY);
         resetBird(2, startY);
-        pipes.clear();
+        remoteInterpolator.clear();
+        localPredictor.reset(startY);
         groundOffset = 0f;
         animationTime = 0f;
         matchFinished = false;
@@ -584,16 +624,41 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
             return;
         }
         if (playerId != localPlayerId) {
-            jump(playerId, false);
+            jump(playerId);
         }
     }
 
     @Override
-    public void onSpawnPipe(float gapCenterY) {
-        if (matchFinished) {
+    public void onSnapshot(OnlineSnapshot snapshot) {
+        if (matchFinished || snapshot == null) {
+            return;
+        }
+        remoteInterpolator.setRttJitterMillis(session.getJitterMillis());
+        remoteInterpolator.add(snapshot);
+        int localIndex = snapshot.indexOfBird(localPlayerId);
+        if (localIndex >= 0) {
+            localPredictor.setTickRate(snapshot.tickRate);
+            localPredictor.reconcile(snapshot.tick, snapshot.birdY[localIndex], snapshot.birdVelocity[localIndex],
+                snapshot.birdAlive[localIndex], snapshot.birdAckedInput[localIndex]);
+        }
+        resyncWorld(localIndex >= 0 ? localPredictor.getTick() : snapshot.tick);
+    }
+
+    // El mundo corre con su propio reloj (START_GAME tardio, tirones que vacian el acumulador): cada snapshot
+    // lo devuelve al tick del predictor para que los tubos dibujados sean los que usa el servidor.
+    private void resyncWorld(long targetTick) {
+        long drift = targetTick - world.getTick();
+        // Un tick por delante es la misma posicion con otra fase del acumulador.
+        if (drift == 0L || drift == -1L) {
+            return;
+        }
+        if (drift > 0L && drift <= MAX_CATCHUP_STEPS) {
+            while (world.getTick() < targetTick) {
+                world.step(0);
+            }
             return;
         }
-        pipes.add(new PipeState(WORLD_WIDTH, gapCenterY));
+        world.seekTick(targetTick);
     }
 
     @Override
@@ -819,14 +884,4 @@ public class OnlineGameScreen implements Screen, OnlineClientListener {
         private float rotation;
         private boolean alive;
     }
-
-    private static final class PipeState {
-        private float x;
-        private final float gapCenterY;
-
-        private PipeState(float x, float gapCenterY) {
-            this.x = x;
-            this.gapCenterY = gapCenterY;
-        }
-    }
 }
@@ -29,6 +29,7 @@ public class OnlineJoinRoomScreen implements Screen {
     private TextField nameField;
     private TextField ipField;
     private TextField portField;
+    private TextField roomField;
     private Label statusLabel;
 
     public OnlineJoinRoomScreen(MyGdxGame game) {
@@ -54,6 +55,7 @@ public class OnlineJoinRoomScreen implements Screen {
         Label nameLabel = new Label("NAME", skin);
         Label ipLabel = new Label("SERVER IP", skin);
         Label portLabel = new Label("SERVER PORT", skin);
+        Label roomLabel = new Label("ROOM", skin);
         nameField = new TextField("", skin);
         nameField.setMessageText("Your name");
         nameField.setMaxLength(20);
@@ -69,6 +71,11 @@ public class OnlineJoinRoomScreen implements Screen {
         portField.setMaxLength(5);
         portField.setTextFieldFilter((textField, c) -> Character.isDigit(c));
 
+        roomField = new TextField(String.valueOf(OnlineProtocol.DEFAULT_ROOM_ID), skin);
+        roomField.setMessageText("Empty: matchmaking");
+        roomField.setMaxLength(5);
+        roomField.setTextFieldFilter((textField, c) -> Character.isDigit(c));
+
         TextButton joinButton = new TextButton("CONNECT", skin);
         TextButton backButton = new TextButton("BACK", skin);
         statusLabel = new Label("", skin);
@@ -94,6 +101,8 @@ public class OnlineJoinRoomScreen implements Screen {
         table.add(ipField).width(260f).height(46f).row();
         table.add(portLabel).left();
         table.add(portField).width(260f).height(46f).row();
+        table.add(roomLabel).left();
+        table.add(roomField).width(260f).height(46f).row();
         table.add(joinButton).width(170f).height(62f);
         table.add(backButton).width(170f).height(62f).row();
         table.add(statusLabel).colspan(2).padTop(12f).row();
@@ -107,6 +116,7 @@ public class OnlineJoinRoomScreen implements Screen {
         String name = nameField.getText() == null ? "" : nameField.getText().trim();
         String ip = ipField.getText() == null ? "" : ipField.getText().trim();
         String portRaw = portField.getText() == null ? "" : portField.getText().trim();
+        String roomRaw = roomField.getText() == null ? "" : roomField.getText().trim();
 
         if (name.isEmpty()) {
             statusLabel.setText("Enter a name");
@@ -120,10 +130,16 @@ public class OnlineJoinRoomScreen implements Screen {
             statusLabel.setText("Invalid port");
             return;
         }
+        if (!roomRaw.isEmpty() && !OnlineSession.isValidRoomId(roomRaw)) {
+            statusLabel.setText("Invalid room");
+            return;
+        }
 
         try {
             int port = OnlineSession.parsePort(portRaw);
-            OnlineSession session = OnlineSession.joinRoom(name, ip, port);
+            OnlineSession session = roomRaw.isEmpty()
+                ? OnlineSession.joinQueue(name, ip, port)
+                : OnlineSession.joinRoom(name, ip, port, OnlineSession.parseRoomId(roomRaw));
             game.setScreen(new OnlineLobbyScreen(game, session));
         } catch (IllegalArgumentException e) {
             statusLabel.setText(e.getMessage());
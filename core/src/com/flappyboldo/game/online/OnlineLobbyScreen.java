@@ -67,7 +67,8 @@ public class OnlineLobbyScreen implements Screen, OnlineClientListener {
         table.defaults().pad(8f);
 
         titleLabel = new Label("CONNECTED TO SERVER", skin);
-        roomIpLabel = new Label("IP: " + session.getRoomIp() + ":" + session.getRoomPort(), skin);
+        roomIpLabel = new Label("IP: " + session.getRoomIp() + ":" + session.getRoomPort()
+            + " | Room: " + (session.isMatchmaking() ? "matchmaking" : String.valueOf(session.getRoomId())), skin);
         playerLabel = new Label("Name: " + session.getPlayerName(), skin);
         statusLabel = new Label("Waiting for players...", skin);
         playersLabel = new Label("Players connected: 0/2", skin);
@@ -200,7 +201,7 @@ public class OnlineLobbyScreen implements Screen, OnlineClientListener {
     }
 
     @Override
-    public void onStartGame(float spawnX, float spawnY, long startDelayMs) {
+    public void onStartGame(float spawnX, float spawnY, long startDelayMs, int courseSeed, int tickRate) {
         movingToGame = true;
         session.setListener(null);
         game.setScreen(new OnlineGameScreen(
@@ -209,6 +210,8 @@ public class OnlineLobbyScreen implements Screen, OnlineClientListener {
             spawnX,
             spawnY,
             startDelayMs,
+            courseSeed,
+            tickRate,
             extractPlayerName(1),
             extractPlayerName(2)
         ));
@@ -0,0 +1,153 @@
+package com.flappyboldo.game.online.net;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+// Indice de sesiones por direccion: direccionamiento abierto sobre una clave long (IPv4 << 16 | puerto),
+// sin reservar memoria al buscar, mas un array denso indexado por sesion.
+final class ClientIndex {
+    private static final int INITIAL_TABLE_SIZE = 64;
+    private static final int INITIAL_SESSIONS = 16;
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] entries;
+    private int mask;
+    private int shift;
+
+    private OnlineRoom.ClientInfo[] sessions;
+    private int[] freeSessions;
+    private int freeCount;
+    private int sessionHighWater;
+    private int size;
+
+    ClientIndex() {
+        allocateTable(INITIAL_TABLE_SIZE);
+        this.sessions = new OnlineRoom.ClientInfo[INITIAL_SESSIONS];
+        this.freeSessions = new int[INITIAL_SESSIONS];
+    }
+
+    int size() {
+        return size;
+    }
+
+    OnlineRoom.ClientInfo get(int session) {
+        return session >= 0 && session < sessionHighWater ? sessions[session] : null;
+    }
+
+    OnlineRoom.ClientInfo find(InetSocketAddress address) {
+        long key = key(address);
+        for (int i = indexFor(key); ; i = (i + 1) & mask) {
+            int session = entries[i];
+            if (session == EMPTY) {
+                return null;
+            }
+            if (keys[i] == key) {
+                OnlineRoom.ClientInfo client = sessions[session];
+                // Con IPv6 la clave es un hash: se confirma con la direccion completa.
+                if (client.address.equals(address)) {
+                    return client;
+                }
+            }
+        }
+    }
+
+    void add(OnlineRoom.ClientInfo client) {
+        if ((size + 1) * 4 > entries.length * 3) {
+            allocateTable(entries.length * 2);
+            for (int session = 0; session < sessionHighWater; session++) {
+                if (sessions[session] != null) {
+                    insert(key(sessions[session].address), session);
+                }
+            }
+        }
+        int session = allocateSession();
+        sessions[session] = client;
+        client.session = session;
+        insert(key(client.address), session);
+        size++;
+    }
+
+    void remove(OnlineRoom.ClientInfo client) {
+        int session = client.session;
+        if (get(session) != client) {
+            return;
+        }
+        long key = key(client.address);
+        int i = indexFor(key);
+        while (entries[i] != session) {
+            if (entries[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        deleteAt(i);
+        sessions[session] = null;
+        freeSessions[freeCount++] = session;
+        client.session = EMPTY;
+        size--;
+    }
+
+    private void insert(long key, int session) {
+        int i = indexFor(key);
+        while (entries[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        entries[i] = session;
+    }
+
+    // Borrado por desplazamiento hacia atras: no deja lapidas que alarguen las busquedas.
+    private void deleteAt(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (entries[i] == EMPTY) {
+                break;
+            }
+            int home = indexFor(keys[i]);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                entries[hole] = entries[i];
+                hole = i;
+            }
+        }
+        entries[hole] = EMPTY;
+    }
+
+    private int allocateSession() {
+        if (freeCount > 0) {
+            return freeSessions[--freeCount];
+        }
+        if (sessionHighWater == sessions.length) {
+            OnlineRoom.ClientInfo[] grown = new OnlineRoom.ClientInfo[sessions.length * 2];
+            System.arraycopy(sessions, 0, grown, 0, sessions.length);
+            sessions = grown;
+            int[] grownFree = new int[grown.length];
+            System.arraycopy(freeSessions, 0, grownFree, 0, freeCount);
+            freeSessions = grownFree;
+        }
+        return sessionHighWater++;
+    }
+
+    private void allocateTable(int tableSize) {
+        keys = new long[tableSize];
+        entries = new int[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            entries[i] = EMPTY;
+        }
+        mask = tableSize - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(tableSize);
+    }
+
+    private int indexFor(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private static long key(InetSocketAddress address) {
+        InetAddress inet = address.getAddress();
+        // En Inet4Address hashCode() es la propia direccion de 32 bits.
+        int host = inet != null ? inet.hashCode() : address.getHostString().hashCode();
+        return (host & 0xFFFFFFFFL) << 16 | address.getPort();
+    }
+}
@@ -0,0 +1,85 @@
+package com.flappyboldo.game.online.net;
+
+// Histograma log-lineal al estilo HDR: 32 sub-cubetas por potencia de dos (error relativo < 3,2 %),
+// valores en nanosegundos hasta ~68 s. Escribe un solo hilo; los lectores ven valores aproximados.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_TRACKABLE_NANOS = (1L << 36) - 1L;
+    private static final int BUCKET_COUNT = indexFor(MAX_TRACKABLE_NANOS) + 1;
+
+    private final long[] counts;
+    private long totalCount;
+    private long totalNanos;
+    private long maxNanos;
+
+    public LatencyHistogram() {
+        this.counts = new long[BUCKET_COUNT];
+    }
+
+    public void record(long nanos) {
+        long value = nanos < 0L ? 0L : Math.min(nanos, MAX_TRACKABLE_NANOS);
+        counts[indexFor(value)]++;
+        totalCount++;
+        totalNanos += value;
+        if (value > maxNanos) {
+            maxNanos = value;
+        }
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        long count = totalCount;
+        return count == 0L ? 0.0 : totalNanos / (double) count;
+    }
+
+    // Devuelve el limite superior de la cubeta que contiene el percentil pedido (0-100).
+    public long getPercentileNanos(double percentile) {
+        long count = totalCount;
+        if (count == 0L) {
+            return 0L;
+        }
+        long target = Math.max(1L, (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalent(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0L;
+        }
+        totalCount = 0L;
+        totalNanos = 0L;
+        maxNanos = 0L;
+    }
+
+    private static int indexFor(long value) {
+        if (value < SUB_BUCKETS * 2) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * shift + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS * 2) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1L) << shift) - 1L;
+    }
+}
@@ -0,0 +1,164 @@
+package com.flappyboldo.game.online.net;
+
+import com.flappyboldo.game.sim.FlappySimulation;
+
+public final class LocalBirdPredictor {
+    private static final int INPUT_CAPACITY = 256;
+    private static final float CORRECTION_DECAY_PER_SECOND = 12f;
+    private static final int MAX_STEPS_PER_FRAME = 30;
+
+    private final long[] inputTicks;
+    private final int[] inputSequences;
+    private final FlappySimulation simulation;
+
+    private float accumulator;
+    private int nextSequence;
+    private int lastAckedSequence;
+    private long lastReconciledTick;
+    private float correctionOffset;
+    private int correctionCount;
+
+    public LocalBirdPredictor() {
+        this.inputTicks = new long[INPUT_CAPACITY];
+        this.inputSequences = new int[INPUT_CAPACITY];
+        // La colision la decide el servidor; aqui solo se predice el vuelo.
+        this.simulation = new FlappySimulation(1, 0f, ServerTickScheduler.DEFAULT_TICK_RATE);
+        this.simulation.setCollisionsEnabled(false);
+        reset(0f);
+    }
+
+    public void reset(float startY) {
+        reset(startY, simulation.getTickRate());
+    }
+
+    public void reset(float startY, int simulationTickRate) {
+        setTickRate(simulationTickRate);
+        simulation.reset(startY);
+        accumulator = 0f;
+        nextSequence = 1;
+        lastAckedSequence = 0;
+        lastReconciledTick = -1L;
+        correctionOffset = 0f;
+        correctionCount = 0;
+        for (int i = 0; i < INPUT_CAPACITY; i++) {
+            inputSequences[i] = 0;
+            inputTicks[i] = -1L;
+        }
+    }
+
+    public void setTickRate(int simulationTickRate) {
+        if (simulationTickRate <= 0 || simulationTickRate == simulation.getTickRate()) {
+            return;
+        }
+        simulation.setTickRate(simulationTickRate);
+    }
+
+    public int advance(float deltaSeconds, boolean jumpPressed) {
+        int sequence = 0;
+        if (jumpPressed && simulation.isBirdAlive(0)) {
+            sequence = nextSequence++;
+            int slot = sequence % INPUT_CAPACITY;
+            inputSequences[slot] = sequence;
+            inputTicks[slot] = simulation.getTick() + 1L;
+        }
+
+        float stepSeconds = simulation.getStepSeconds();
+        accumulator += deltaSeconds;
+        int steps = 0;
+        while (accumulator >= stepSeconds && steps < MAX_STEPS_PER_FRAME) {
+            accumulator -= stepSeconds;
+            step();
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) {
+            accumulator = 0f;
+        }
+        correctionOffset *= (float) Math.exp(-CORRECTION_DECAY_PER_SECOND * deltaSeconds);
+        return sequence;
+    }
+
+    public void reconcile(long serverTick, float serverY, float serverVelocity, boolean serverAlive,
+                          int ackedSequence) {
+        if (serverTick <= lastReconciledTick) {
+            return;
+        }
+        lastReconciledTick = serverTick;
+        if (ackedSequence > lastAckedSequence) {
+            lastAckedSequence = ackedSequence;
+        }
+        if (!serverAlive) {
+            simulation.setBird(0, simulation.getBirdY(0), 0f, false);
+            return;
+        }
+
+        // El servidor aplicara las entradas aun no confirmadas en su tick original si caben en su
+        // ventana de compensacion, pero desde este estado solo pueden reproducirse tras serverTick.
+        for (int sequence = firstPendingSequence(); sequence < nextSequence; sequence++) {
+            int slot = sequence % INPUT_CAPACITY;
+            if (inputSequences[slot] == sequence && inputTicks[slot] <= serverTick) {
+                inputTicks[slot] = serverTick + 1L;
+            }
+        }
+
+        float predictedY = simulation.getBirdY(0);
+        long localTick = Math.max(simulation.getTick(), serverTick);
+        simulation.setBird(0, serverY, serverVelocity, true);
+        simulation.setTick(serverTick);
+        while (simulation.getTick() < localTick) {
+            step();
+        }
+
+        float error = predictedY - simulation.getBirdY(0);
+        if (Math.abs(error) > 0.01f) {
+            correctionCount++;
+        }
+        correctionOffset += error;
+    }
+
+    public long getInputTick(int sequence) {
+        int slot = sequence % INPUT_CAPACITY;
+        return sequence > 0 && inputSequences[slot] == sequence ? inputTicks[slot] : 0L;
+    }
+
+    public float getRenderY() {
+        return simulation.getBirdY(0) + correctionOffset;
+    }
+
+    public float getY() {
+        return simulation.getBirdY(0);
+    }
+
+    public float getVelocity() {
+        return simulation.getBirdVelocity(0);
+    }
+
+    public boolean isAlive() {
+        return simulation.isBirdAlive(0);
+    }
+
+    public long getTick() {
+        return simulation.getTick();
+    }
+
+    public int getCorrectionCount() {
+        return correctionCount;
+    }
+
+    private void step() {
+        simulation.step(hasInputAt(simulation.getTick() + 1L) ? 1 : 0);
+    }
+
+    private boolean hasInputAt(long inputTick) {
+        for (int sequence = firstPendingSequence(); sequence < nextSequence; sequence++) {
+            int slot = sequence % INPUT_CAPACITY;
+            if (inputSequences[slot] == sequence && inputTicks[slot] == inputTick) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int firstPendingSequence() {
+        return Math.max(lastAckedSequence + 1, nextSequence - INPUT_CAPACITY + 1);
+    }
+}
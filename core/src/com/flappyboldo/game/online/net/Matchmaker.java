@@ -0,0 +1,277 @@
+package com.flappyboldo.game.online.net;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+// Cola de emparejamiento. Cada jugador espera en una cubeta FIFO segun su RTT (listas intrusivas: entrar,
+// salir y cancelar son O(1)) y en una lista por actividad que permite caducar sin recorrer la cola.
+// Un tick hace trabajo acotado aunque esperen decenas de miles. Solo la usa el hilo del servidor.
+final class Matchmaker {
+    static final int QUEUED = 0;
+    static final int REFRESHED = 1;
+    static final int FULL = 2;
+
+    private static final long BUCKET_WIDTH_MICROS = 25_000L;
+    private static final int BUCKET_COUNT = 12;
+    // Cubeta de los que aun esperan el PONG de la sonda: no se emparejan hasta medir o agotar la espera.
+    private static final int UNMEASURED = BUCKET_COUNT;
+    private static final long PROBE_TIMEOUT_NANOS = 1_000_000_000L;
+    private static final long MAX_RTT_SAMPLE_MICROS = 2_000_000L;
+    // Cada tramo de espera admite un rival una cubeta mas lejos: primero RTT parecido, luego rapidez.
+    private static final long WIDEN_NANOS = 2_000_000_000L;
+    private static final long QUEUE_TIMEOUT_MS = 3_000L;
+    private static final int MATCHES_PER_TICK = 32;
+
+    private final OnlineServer server;
+    private final ServerMetrics metrics;
+    private final int capacity;
+    private final Map<InetSocketAddress, Entry> byAddress;
+    private final Bucket[] buckets;
+    private final OnlineMessage probe;
+
+    private Entry oldestActive;
+    private Entry newestActive;
+    private int nextProbeSequence;
+
+    Matchmaker(OnlineServer server, ServerMetrics metrics, int capacity) {
+        this.server = server;
+        this.metrics = metrics;
+        this.capacity = capacity;
+        this.byAddress = new HashMap<>();
+        this.buckets = new Bucket[BUCKET_COUNT + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket(i);
+        }
+        this.probe = new OnlineMessage();
+        this.nextProbeSequence = 1;
+    }
+
+    int size() {
+        return byAddress.size();
+    }
+
+    // QUEUE hace de alta y de keepalive. Mientras falte el RTT cada keepalive manda otra sonda.
+    int enqueue(InetSocketAddress address, String name, boolean binary, long nowNanos, long nowMs) {
+        Entry entry = byAddress.get(address);
+        int result = REFRESHED;
+        if (entry != null) {
+            entry.name = name;
+            entry.binary = binary;
+            touch(entry, nowMs);
+        } else {
+            if (byAddress.size() >= capacity) {
+                return FULL;
+            }
+            entry = new Entry(address, name, binary, nowNanos, nowMs);
+            byAddress.put(address, entry);
+            buckets[UNMEASURED].append(entry);
+            appendActive(entry);
+            result = QUEUED;
+        }
+        if (entry.bucket == UNMEASURED) {
+            entry.probeSequence = nextProbeSequence++;
+            server.send(probe.ping(entry.probeSequence, RttEstimator.nowMicros()), address, binary);
+        }
+        return result;
+    }
+
+    boolean touch(InetSocketAddress address, long nowMs) {
+        Entry entry = byAddress.get(address);
+        if (entry == null) {
+            return false;
+        }
+        touch(entry, nowMs);
+        return true;
+    }
+
+    boolean cancel(InetSocketAddress address) {
+        Entry entry = byAddress.get(address);
+        if (entry == null) {
+            return false;
+        }
+        remove(entry);
+        return true;
+    }
+
+    // La primera muestra decide la cubeta; despues el jugador ya no cambia de sitio en la cola.
+    void onPong(InetSocketAddress address, int sequence, long echoedMicros, long nowMicros) {
+        Entry entry = byAddress.get(address);
+        if (entry == null || entry.bucket != UNMEASURED || sequence != entry.probeSequence) {
+            return;
+        }
+        long sample = nowMicros - echoedMicros;
+        if (sample < 0L || sample > MAX_RTT_SAMPLE_MICROS) {
+            return;
+        }
+        entry.rttMicros = sample;
+        buckets[UNMEASURED].unlink(entry);
+        buckets[bucketFor(sample)].append(entry);
+    }
+
+    void tick(long nowNanos, long nowMs) {
+        while (oldestActive != null && nowMs - oldestActive.lastSeenMs >= QUEUE_TIMEOUT_MS) {
+            remove(oldestActive);
+        }
+        // Sin PONG a tiempo (cliente que no contesta PING) se trata como RTT desconocido: la ultima cubeta.
+        Bucket unmeasured = buckets[UNMEASURED];
+        while (unmeasured.head != null && nowNanos - unmeasured.head.enqueuedNanos >= PROBE_TIMEOUT_NANOS) {
+            Entry entry = unmeasured.head;
+            unmeasured.unlink(entry);
+            buckets[BUCKET_COUNT - 1].append(entry);
+        }
+
+        int matches = 0;
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            Bucket bucket = buckets[b];
+            while (bucket.size >= 2) {
+                if (matches >= MATCHES_PER_TICK || !pair(bucket.head, bucket.head.next, nowNanos)) {
+                    return;
+                }
+                matches++;
+            }
+        }
+        // Tras el paso anterior cada cubeta guarda como mucho uno: cruzar cubetas cuesta O(BUCKET_COUNT^2).
+        for (int b = 0; b < BUCKET_COUNT; b++) {
+            Entry waiting = buckets[b].head;
+            if (waiting == null) {
+                continue;
+            }
+            long reach = Math.min(BUCKET_COUNT, (nowNanos - waiting.enqueuedNanos) / WIDEN_NANOS);
+            for (int d = 1; d <= reach; d++) {
+                Entry rival = b + d < BUCKET_COUNT ? buckets[b + d].head : null;
+                if (rival == null && b - d >= 0) {
+                    rival = buckets[b - d].head;
+                }
+                if (rival == null) {
+                    continue;
+                }
+                if (matches >= MATCHES_PER_TICK || !pair(waiting, rival, nowNanos)) {
+                    return;
+                }
+                matches++;
+                break;
+            }
+        }
+    }
+
+    private boolean pair(Entry first, Entry second, long nowNanos) {
+        if (!server.openMatchRoom(first.address, first.name, first.binary, second.address, second.name, second.binary)) {
+            return false;
+        }
+        metrics.recordQueueWait(nowNanos - first.enqueuedNanos);
+        metrics.recordQueueWait(nowNanos - second.enqueuedNanos);
+        if (first.rttMicros >= 0L && second.rttMicros >= 0L) {
+            metrics.recordMatchRttGap(Math.abs(first.rttMicros - second.rttMicros) * 1_000L);
+        }
+        remove(first);
+        remove(second);
+        return true;
+    }
+
+    private static int bucketFor(long rttMicros) {
+        return (int) Math.min(BUCKET_COUNT - 1, rttMicros / BUCKET_WIDTH_MICROS);
+    }
+
+    private void touch(Entry entry, long nowMs) {
+        entry.lastSeenMs = nowMs;
+        unlinkActive(entry);
+        appendActive(entry);
+    }
+
+    private void remove(Entry entry) {
+        byAddress.remove(entry.address);
+        buckets[entry.bucket].unlink(entry);
+        unlinkActive(entry);
+    }
+
+    private void appendActive(Entry entry) {
+        entry.olderActive = newestActive;
+        entry.newerActive = null;
+        if (newestActive != null) {
+            newestActive.newerActive = entry;
+        } else {
+            oldestActive = entry;
+        }
+        newestActive = entry;
+    }
+
+    private void unlinkActive(Entry entry) {
+        if (entry.olderActive != null) {
+            entry.olderActive.newerActive = entry.newerActive;
+        } else {
+            oldestActive = entry.newerActive;
+        }
+        if (entry.newerActive != null) {
+            entry.newerActive.olderActive = entry.olderActive;
+        } else {
+            newestActive = entry.olderActive;
+        }
+        entry.olderActive = null;
+        entry.newerActive = null;
+    }
+
+    private static final class Bucket {
+        private final int index;
+        private Entry head;
+        private Entry tail;
+        private int size;
+
+        private Bucket(int index) {
+            this.index = index;
+        }
+
+        private void append(Entry entry) {
+            entry.bucket = index;
+            entry.previous = tail;
+            entry.next = null;
+            if (tail != null) {
+                tail.next = entry;
+            } else {
+                head = entry;
+            }
+            tail = entry;
+            size++;
+        }
+
+        private void unlink(Entry entry) {
+            if (entry.previous != null) {
+                entry.previous.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.previous = entry.previous;
+            } else {
+                tail = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+            size--;
+        }
+    }
+
+    private static final class Entry {
+        private final InetSocketAddress address;
+        private final long enqueuedNanos;
+        private String name;
+        private boolean binary;
+        private long lastSeenMs;
+        private long rttMicros;
+        private int probeSequence;
+        private int bucket;
+        private Entry previous;
+        private Entry next;
+        private Entry olderActive;
+        private Entry newerActive;
+
+        private Entry(InetSocketAddress address, String name, boolean binary, long nowNanos, long nowMs) {
+            this.address = address;
+            this.name = name;
+            this.binary = binary;
+            this.enqueuedNanos = nowNanos;
+            this.lastSeenMs = nowMs;
+            this.rttMicros = -1L;
+        }
+    }
+}
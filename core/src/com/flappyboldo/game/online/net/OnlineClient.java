@@ -9,37 +9,72 @@ import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 public class OnlineClient extends Thread {
-    private static final int RECEIVE_BUFFER_SIZE = 1024;
-    private static final int SOCKET_TIMEOUT_MS = 250;
+    private static final int RECEIVE_BUFFER_SIZE = 1500;
+    private static final int SEND_BUFFER_SIZE = 1024;
+    private static final int SOCKET_TIMEOUT_MS = 50;
     private static final long CONNECT_TIMEOUT_MS = 4000L;
     private static final long SERVER_TIMEOUT_MS = 8000L;
     private static final long PING_INTERVAL_MS = 500L;
+    private static final long HELLO_RETRY_MS = 500L;
+    private static final int ROOM_HISTORY_SIZE = 32;
 
     private final DatagramSocket socket;
     private final InetAddress serverIp;
     private final int serverPort;
     private final String playerName;
+    private final int roomId;
+    private final boolean matchmaking;
+    private final boolean binaryWire;
+    private final ByteBuffer sendBuffer;
+    private final DatagramPacket sendPacket;
+    private final OnlineMessage inboundMessage;
+    private final OnlineMessage orderedMessage;
+    private final OnlineMessage outboundMessage;
+    private final OnlineMessage ackMessage;
+    private final RoomStateHistory roomHistory;
+    private final ReliableChannel reliable;
+    private final RttEstimator rtt;
 
     private volatile boolean running;
     private volatile OnlineClientListener listener;
 
     private boolean connected;
     private int localPlayerId;
+    private int lastNotifiedRoomVersion;
 
     private long connectStartMs;
     private long lastServerMessageMs;
     private long lastPingMs;
+    private long lastHelloMs;
     private boolean disconnectionNotified;
 
     public OnlineClient(String serverIp, int serverPort, String playerName)
+        throws UnknownHostException, SocketException {
+        this(serverIp, serverPort, playerName, OnlineProtocol.DEFAULT_ROOM_ID);
+    }
+
+    public OnlineClient(String serverIp, int serverPort, String playerName, int roomId)
         throws UnknownHostException, SocketException {
         this.serverIp = InetAddress.getByName(serverIp);
         this.serverPort = serverPort;
         this.playerName = sanitizeName(playerName);
+        this.roomId = roomId;
+        this.matchmaking = roomId == OnlineProtocol.MATCHMAKING_ROOM_ID;
+        this.binaryWire = !Boolean.getBoolean(OnlineProtocol.TEXT_WIRE_PROPERTY);
+        this.sendBuffer = ByteBuffer.allocate(SEND_BUFFER_SIZE);
+        this.sendPacket = new DatagramPacket(sendBuffer.array(), 0, this.serverIp, serverPort);
+        this.inboundMessage = new OnlineMessage();
+        this.orderedMessage = new OnlineMessage();
+        this.outboundMessage = new OnlineMessage();
+        this.ackMessage = new OnlineMessage();
+        this.roomHistory = new RoomStateHistory(ROOM_HISTORY_SIZE);
+        this.rtt = new RttEstimator();
+        this.reliable = new ReliableChannel(0, rtt);
         this.socket = new DatagramSocket();
         this.socket.setSoTimeout(SOCKET_TIMEOUT_MS);
         this.running = true;
@@ -53,7 +88,8 @@ public class OnlineClient extends Thread {
         lastServerMessageMs = connectStartMs;
         lastPingMs = 0L;
 
-        sendRaw(OnlineProtocol.HELLO + ":" + playerName);
+        sendHello();
+        lastHelloMs = connectStartMs;
 
         byte[] buffer = new byte[RECEIVE_BUFFER_SIZE];
         while (running) {
@@ -71,7 +107,9 @@ public class OnlineClient extends Thread {
             }
 
             long now = System.currentTimeMillis();
+            tickHello(now);
             tickPing(now);
+            tickReliable();
             tickTimeouts(now);
         }
     }
@@ -84,29 +122,50 @@ public class OnlineClient extends Thread {
         return localPlayerId;
     }
 
+    // RTT suavizado, jitter y perdida medidos con PING/PONG; 0 hasta el primer PONG.
+    public float getRttMillis() {
+        return rtt.getSmoothedRttMillis();
+    }
+
+    public float getJitterMillis() {
+        return rtt.getJitterMillis();
+    }
+
+    public float getLossRate() {
+        return rtt.getLossRate();
+    }
+
     public boolean isConnectedToRoom() {
         return connected;
     }
 
     public synchronized void sendJump(int playerId) {
+        sendJump(playerId, 0);
+    }
+
+    public synchronized void sendJump(int playerId, int inputSequence) {
+        sendJump(playerId, inputSequence, 0L);
+    }
+
+    public synchronized void sendJump(int playerId, int inputSequence, long inputTick) {
         if (!running || !connected) {
             return;
         }
-        sendRaw(OnlineProtocol.JUMP + ":" + playerId);
+        send(outboundMessage.jump(playerId, inputSequence, inputTick));
     }
 
     public synchronized void sendReady(boolean ready) {
         if (!running || !connected) {
             return;
         }
-        sendRaw(OnlineProtocol.READY + ":" + (ready ? "1" : "0"));
+        sendReliable(outboundMessage.readyState(ready));
     }
 
     public synchronized void sendRematch() {
         if (!running || !connected) {
             return;
         }
-        sendRaw(OnlineProtocol.REMATCH + ":1");
+        sendReliable(outboundMessage.rematch());
     }
 
     public synchronized void closeClient() {
@@ -114,7 +173,7 @@ public class OnlineClient extends Thread {
             return;
         }
         if (connected && localPlayerId > 0) {
-            sendRaw(OnlineProtocol.LEAVE + ":" + localPlayerId);
+            send(outboundMessage.leave(localPlayerId));
         }
         running = false;
         socket.close();
@@ -122,88 +181,169 @@ public class OnlineClient extends Thread {
     }
 
     private void handlePacket(DatagramPacket packet) {
-        String raw = new String(packet.getData(), 0, packet.getLength()).trim();
-        if (raw.isEmpty()) {
+        ByteBuffer data = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+        int format = OnlineCodec.readFrameHeader(data);
+        if (format == OnlineCodec.FORMAT_UNSUPPORTED) {
+            notifyError("Server uses an unsupported protocol version");
             return;
         }
-
-        String[] parts = raw.split(":", 8);
-        String command = parts[0];
-
-        if (OnlineProtocol.WELCOME.equals(command) && parts.length > 1) {
-            int id = parseInt(parts[1], 0);
-            if (id > 0) {
-                connected = true;
-                localPlayerId = id;
-                notifyConnected(id);
+        int messageStart = data.position();
+        while (OnlineCodec.decode(data, format, inboundMessage)) {
+            int messageEnd = data.position();
+            if (inboundMessage.reliableSequence > 0) {
+                handleReliable(inboundMessage, data, messageStart, messageEnd);
+            } else {
+                handleMessage(inboundMessage);
             }
-            return;
+            messageStart = messageEnd;
         }
-
-        if (OnlineProtocol.ROOM.equals(command)) {
-            String payload = "";
-            if (parts.length > 4) {
-                payload = parts[4];
-            } else if (parts.length > 2) {
-                payload = parts[2];
-            }
-            notifyRoomUpdate(parseRoomPlayers(payload));
-            return;
+        if (reliable.hasPendingAck()) {
+            sendAck();
         }
+    }
 
-        if (OnlineProtocol.START_GAME.equals(command) && parts.length > 3) {
-            float spawnX = parseFloat(parts[1], 0f);
-            float spawnY = parseFloat(parts[2], 0f);
-            long startDelayMs = parseLong(parts[3], 0L);
-            dispatch(listener -> listener.onStartGame(spawnX, spawnY, startDelayMs));
+    private void handleReliable(OnlineMessage message, ByteBuffer data, int from, int to) {
+        // WELCOME de otra epoca: el servidor abrio una sesion nueva (p. ej. tras darnos por caidos) y su
+        // canal vuelve a empezar en 1; con la ventana vieja todo lo nuevo pareceria duplicado.
+        if (message.opcode == OnlineProtocol.OP_WELCOME && message.channelEpoch != reliable.getEpoch()) {
+            reliable.restart(message.channelEpoch);
+        }
+        if (reliable.accept(message.reliableSequence, data, from, to) != ReliableChannel.DELIVER) {
             return;
         }
-
-        if (OnlineProtocol.JUMP.equals(command) && parts.length > 1) {
-            int playerId = parseInt(parts[1], 0);
-            if (playerId > 0) {
-                dispatch(listener -> listener.onRemoteJump(playerId));
+        handleMessage(message);
+        ByteBuffer ordered;
+        while ((ordered = reliable.pollOrdered()) != null) {
+            if (OnlineCodec.decode(ordered, OnlineCodec.FORMAT_BINARY, orderedMessage)) {
+                handleMessage(orderedMessage);
             }
-            return;
         }
+    }
 
-        if (OnlineProtocol.SPAWN.equals(command) && parts.length > 1) {
-            float gapCenterY = parseFloat(parts[1], 0f);
-            dispatch(listener -> listener.onSpawnPipe(gapCenterY));
-            return;
+    private void handleMessage(OnlineMessage message) {
+        switch (message.opcode) {
+            case OnlineProtocol.OP_WELCOME: {
+                int id = message.playerId;
+                if (id > 0 && (!connected || id != localPlayerId)) {
+                    connected = true;
+                    localPlayerId = id;
+                    notifyConnected(id);
+                }
+                return;
+            }
+            case OnlineProtocol.OP_ACK:
+                reliable.onAck(message, System.nanoTime());
+                return;
+            case OnlineProtocol.OP_PING:
+                sendPong(message.pingSequence, message.pingTimestamp);
+                return;
+            case OnlineProtocol.OP_PONG:
+                rtt.onPong(message.pingSequence, message.pingTimestamp, RttEstimator.nowMicros());
+                return;
+            case OnlineProtocol.OP_ROOM:
+                notifyRoomUpdate(parseRoomPlayers(message));
+                return;
+            case OnlineProtocol.OP_ROOM_DELTA:
+                handleRoomDelta(message);
+                return;
+            case OnlineProtocol.OP_SNAPSHOT: {
+                OnlineSnapshot snapshot = OnlineSnapshot.copyOf(message, System.nanoTime());
+                dispatch(listener -> listener.onSnapshot(snapshot));
+                return;
+            }
+            case OnlineProtocol.OP_START_GAME: {
+                float spawnX = message.x;
+                float spawnY = message.y;
+                long startDelayMs = message.delayMs;
+                int courseSeed = message.courseSeed;
+                int tickRate = message.tickRate;
+                dispatch(listener -> listener.onStartGame(spawnX, spawnY, startDelayMs, courseSeed, tickRate));
+                return;
+            }
+            case OnlineProtocol.OP_JUMP: {
+                int playerId = message.playerId;
+                if (playerId > 0) {
+                    dispatch(listener -> listener.onRemoteJump(playerId));
+                }
+                return;
+            }
+            case OnlineProtocol.OP_ELIMINATED: {
+                int playerId = message.playerId;
+                if (playerId > 0) {
+                    dispatch(listener -> listener.onEliminated(playerId));
+                }
+                return;
+            }
+            case OnlineProtocol.OP_FIN: {
+                int winnerId = message.winnerId;
+                dispatch(listener -> listener.onGameFinished(winnerId));
+                return;
+            }
+            case OnlineProtocol.OP_CLIENT_LEFT: {
+                int playerId = message.playerId;
+                if (playerId > 0) {
+                    dispatch(listener -> listener.onPlayerLeft(playerId));
+                }
+                return;
+            }
+            case OnlineProtocol.OP_SERVER_CLOSED:
+                notifyServerClosed("The server closed the room");
+                return;
+            case OnlineProtocol.OP_ERROR:
+                notifyError(mapError(message.error == null ? "Unknown error" : message.error));
+                return;
+            default:
+                break;
         }
+    }
 
-        if (OnlineProtocol.ELIMINATED.equals(command) && parts.length > 1) {
-            int playerId = parseInt(parts[1], 0);
-            if (playerId > 0) {
-                dispatch(listener -> listener.onEliminated(playerId));
-            }
+    private void handleRoomDelta(OnlineMessage message) {
+        RoomStateHistory.Entry entry = roomHistory.applyDelta(message);
+        if (entry == null) {
             return;
         }
+        sendRoomAck(entry.version);
+        if (entry.version == roomHistory.getLatestVersion() && entry.version > lastNotifiedRoomVersion) {
+            lastNotifiedRoomVersion = entry.version;
+            notifyRoomUpdate(describeRoster(entry));
+        }
+    }
 
-        if (OnlineProtocol.FIN.equals(command) && parts.length > 1) {
-            int winnerId = parseInt(parts[1], 0);
-            dispatch(listener -> listener.onGameFinished(winnerId));
+    private void tickHello(long nowMs) {
+        if (!running || connected) {
             return;
         }
+        if (nowMs - lastHelloMs >= HELLO_RETRY_MS) {
+            sendHello();
+            lastHelloMs = nowMs;
+        }
+    }
 
-        if (OnlineProtocol.CLIENT_LEFT.equals(command) && parts.length > 1) {
-            int playerId = parseInt(parts[1], 0);
-            if (playerId > 0) {
-                dispatch(listener -> listener.onPlayerLeft(playerId));
-            }
+    private synchronized void tickReliable() {
+        if (!running || !binaryWire) {
             return;
         }
-
-        if (OnlineProtocol.SERVER_CLOSED.equals(command)) {
-            notifyServerClosed("The server closed the room");
+        ByteBuffer resend = reliable.pollResend(System.nanoTime());
+        if (resend == null) {
+            resend = reliable.pollBacklog(System.nanoTime());
+        }
+        if (resend == null) {
             return;
         }
-
-        if (OnlineProtocol.ERROR.equals(command)) {
-            String message = parts.length > 1 ? parts[1] : "Unknown error";
-            notifyError(mapError(message));
+        beginFrame();
+        while (resend != null) {
+            resend.rewind();
+            if (resend.remaining() > sendBuffer.remaining()) {
+                sendFrame();
+                beginFrame();
+            }
+            sendBuffer.put(resend);
+            resend = reliable.pollResend(System.nanoTime());
+            if (resend == null) {
+                resend = reliable.pollBacklog(System.nanoTime());
+            }
         }
+        sendFrame();
     }
 
     private void tickPing(long nowMs) {
@@ -211,7 +351,7 @@ public class OnlineClient extends Thread {
             return;
         }
         if (nowMs - lastPingMs >= PING_INTERVAL_MS) {
-            sendRaw(OnlineProtocol.PING);
+            sendPing();
             lastPingMs = nowMs;
         }
     }
@@ -221,28 +361,93 @@ public class OnlineClient extends Thread {
             return;
         }
 
-        if (!connected && nowMs - connectStartMs >= CONNECT_TIMEOUT_MS) {
+        // En la cola la espera no tiene limite mientras el servidor siga respondiendo (sondas PING).
+        long connectReferenceMs = matchmaking ? lastServerMessageMs : connectStartMs;
+        if (!connected && nowMs - connectReferenceMs >= CONNECT_TIMEOUT_MS) {
             disconnectionNotified = true;
             notifyError("Could not connect to the room");
             closeClient();
             return;
         }
 
-        if (connected && nowMs - lastServerMessageMs >= SERVER_TIMEOUT_MS) {
+        if (connected && (nowMs - lastServerMessageMs >= SERVER_TIMEOUT_MS || reliable.isOverflowed())) {
             disconnectionNotified = true;
             notifyServerClosed("Lost connection to the server");
             closeClient();
         }
     }
 
-    private void sendRaw(String message) {
+    private synchronized void sendHello() {
+        if (matchmaking) {
+            send(outboundMessage.queue(playerName));
+        } else {
+            send(outboundMessage.hello(playerName, roomId));
+        }
+    }
+
+    private synchronized void sendRoomAck(int version) {
+        send(outboundMessage.roomAck(version));
+    }
+
+    private synchronized void sendPing() {
+        send(outboundMessage.ping(rtt.nextPing(), RttEstimator.nowMicros()));
+    }
+
+    private synchronized void sendPong(int sequence, long echoedTimestamp) {
+        send(outboundMessage.pong(sequence, echoedTimestamp));
+    }
+
+    private synchronized void sendAck() {
+        beginFrame();
+        sendFrame();
+    }
+
+    private synchronized void send(OnlineMessage message) {
+        if (!running) {
+            return;
+        }
+        beginFrame();
+        if (OnlineCodec.encode(sendBuffer, message, binaryWire)) {
+            sendFrame();
+        }
+    }
+
+    private synchronized void sendReliable(OnlineMessage message) {
+        if (!running) {
+            return;
+        }
+        if (!binaryWire) {
+            // El formato de texto no tiene canal fiable.
+            send(message);
+            return;
+        }
+        // null: espera en el backlog hasta que los ACK liberen la ventana (tickReliable lo envia).
+        ByteBuffer encoded = reliable.send(message, System.nanoTime());
+        if (encoded == null) {
+            return;
+        }
+        beginFrame();
+        encoded.rewind();
+        sendBuffer.put(encoded);
+        sendFrame();
+    }
+
+    // Cada datagrama binario lleva el ACK pendiente de los mensajes fiables recibidos.
+    private void beginFrame() {
+        sendBuffer.clear();
+        OnlineCodec.writeFrameHeader(sendBuffer, binaryWire);
+        if (binaryWire && reliable.hasPendingAck()) {
+            OnlineCodec.encode(sendBuffer, reliable.writeAck(ackMessage), true);
+        }
+    }
+
+    private void sendFrame() {
         if (!running) {
             return;
         }
         try {
-            byte[] data = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(data, data.length, serverIp, serverPort);
-            socket.send(packet);
+            sendPacket.setData(sendBuffer.array(), 0, sendBuffer.position());
+            socket.send(sendPacket);
         } catch (IOException ignored) {
             // Se notificara por timeout.
         }
@@ -281,59 +486,28 @@ public class OnlineClient extends Thread {
         });
     }
 
-    private int parseInt(String raw, int fallback) {
-        try {
-            return Integer.parseInt(raw.trim());
-        } catch (Exception ignored) {
-            return fallback;
-        }
-    }
-
-    private float parseFloat(String raw, float fallback) {
-        try {
-            return Float.parseFloat(raw.trim());
-        } catch (Exception ignored) {
-            return fallback;
+    static List<String> parseRoomPlayers(OnlineMessage message) {
+        List<String> result = new ArrayList<>(message.rosterSize);
+        for (int i = 0; i < message.rosterSize; i++) {
+            result.add(describePlayer(message.rosterIds[i], message.rosterNames[i], message.rosterReady[i],
+                message.rosterScores[i], message.rosterAlive[i]));
         }
+        return result;
     }
 
-    private long parseLong(String raw, long fallback) {
-        try {
-            return Long.parseLong(raw.trim());
-        } catch (Exception ignored) {
-            return fallback;
+    static List<String> describeRoster(RoomStateHistory.Entry entry) {
+        List<String> result = new ArrayList<>(entry.count);
+        for (int i = 0; i < entry.count; i++) {
+            result.add(describePlayer(entry.ids[i], entry.names[i], entry.ready[i], entry.scores[i], entry.alive[i]));
         }
+        return result;
     }
 
-    private List<String> parseRoomPlayers(String payload) {
-        List<String> result = new ArrayList<>();
-        if (payload == null || payload.trim().isEmpty()) {
-            return result;
-        }
-        String[] entries = payload.split("\\|");
-        for (String entry : entries) {
-            if (entry == null || entry.trim().isEmpty()) {
-                continue;
-            }
-            String[] pair = entry.split(",", 5);
-            if (pair.length >= 4) {
-                int id = parseInt(pair[0], 0);
-                String name = pair[1];
-                boolean ready = "1".equals(pair[2].trim());
-                int score = parseInt(pair[3], 0);
-                boolean alive = pair.length > 4 && "1".equals(pair[4].trim());
-                result.add("P" + id + " - " + name
-                    + (ready ? " [READY]" : " [WAIT]")
-                    + " [S:" + score + "]"
-                    + (alive ? " [ALIVE]" : " [OUT]"));
-            } else if (pair.length >= 2) {
-                boolean ready = pair.length > 2 && "1".equals(pair[2].trim());
-                result.add("P" + pair[0] + " - " + pair[1] + (ready ? " [READY]" : " [WAIT]"));
-            } else {
-                result.add(entry.trim());
-            }
-        }
-        return result;
+    private static String describePlayer(int id, String name, boolean ready, int score, boolean alive) {
+        return "P" + id + " - " + name
+            + (ready ? " [READY]" : " [WAIT]")
+            + " [S:" + score + "]"
+            + (alive ? " [ALIVE]" : " [OUT]");
     }
 
     private String sanitizeName(String raw) {
@@ -16,10 +16,14 @@ public interface OnlineClientListener {
         onStartGame();
     }
 
+    default void onStartGame(float spawnX, float spawnY, long startDelayMs, int courseSeed, int tickRate) {
+        onStartGame(spawnX, spawnY, startDelayMs);
+    }
+
     default void onRemoteJump(int playerId) {
     }
 
-    default void onSpawnPipe(float gapCenterY) {
+    default void onSnapshot(OnlineSnapshot snapshot) {
     }
 
     default void onEliminated(int playerId) {
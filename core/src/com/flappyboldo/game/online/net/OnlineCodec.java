@@ -0,0 +1,940 @@
+package com.flappyboldo.game.online.net;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class OnlineCodec {
+    public static final int FORMAT_INVALID = 0;
+    public static final int FORMAT_TEXT = 1;
+    public static final int FORMAT_BINARY = 2;
+    public static final int FORMAT_UNSUPPORTED = 3;
+
+    private static final float QUANTIZE_SCALE = 100f;
+    private static final int MAX_STRING_BYTES = 255;
+    private static final int FLAG_READY = 1;
+    private static final int FLAG_ALIVE = 2;
+    private static final int DELTA_STATE = 1;
+    private static final int DELTA_WINNER = 2;
+
+    private static final String[] TEXT_COMMANDS = new String[OnlineProtocol.OP_COUNT];
+    private static final String[] ROOM_STATES = {
+        OnlineProtocol.ROOM_WAITING,
+        OnlineProtocol.ROOM_PLAYING,
+        OnlineProtocol.ROOM_FINISHED
+    };
+    private static final String[] ERROR_CODES = {
+        null,
+        OnlineProtocol.ERROR_SERVER_FULL,
+        OnlineProtocol.ERROR_INVALID_MSG,
+        OnlineProtocol.ERROR_UNSUPPORTED_VERSION
+    };
+
+    private static final byte[][] TEXT_COMMAND_BYTES = new byte[OnlineProtocol.OP_COUNT][];
+    private static final byte[][] ROOM_STATE_BYTES = new byte[ROOM_STATES.length][];
+    private static final byte[][] ERROR_CODE_BYTES = new byte[ERROR_CODES.length][];
+    private static final byte[] ONE_BYTES = ascii("1");
+    private static final byte[] TRUE_BYTES = ascii("true");
+
+    static {
+        TEXT_COMMANDS[OnlineProtocol.OP_HELLO] = OnlineProtocol.HELLO;
+        TEXT_COMMANDS[OnlineProtocol.OP_WELCOME] = OnlineProtocol.WELCOME;
+        TEXT_COMMANDS[OnlineProtocol.OP_ROOM] = OnlineProtocol.ROOM;
+        TEXT_COMMANDS[OnlineProtocol.OP_READY] = OnlineProtocol.READY;
+        TEXT_COMMANDS[OnlineProtocol.OP_START_GAME] = OnlineProtocol.START_GAME;
+        TEXT_COMMANDS[OnlineProtocol.OP_JUMP] = OnlineProtocol.JUMP;
+        TEXT_COMMANDS[OnlineProtocol.OP_SPAWN] = OnlineProtocol.SPAWN;
+        TEXT_COMMANDS[OnlineProtocol.OP_REMATCH] = OnlineProtocol.REMATCH;
+        TEXT_COMMANDS[OnlineProtocol.OP_ELIMINATED] = OnlineProtocol.ELIMINATED;
+        TEXT_COMMANDS[OnlineProtocol.OP_FIN] = OnlineProtocol.FIN;
+        TEXT_COMMANDS[OnlineProtocol.OP_LEAVE] = OnlineProtocol.LEAVE;
+        TEXT_COMMANDS[OnlineProtocol.OP_CLIENT_LEFT] = OnlineProtocol.CLIENT_LEFT;
+        TEXT_COMMANDS[OnlineProtocol.OP_SERVER_CLOSED] = OnlineProtocol.SERVER_CLOSED;
+        TEXT_COMMANDS[OnlineProtocol.OP_ERROR] = OnlineProtocol.ERROR;
+        TEXT_COMMANDS[OnlineProtocol.OP_PING] = OnlineProtocol.PING;
+        TEXT_COMMANDS[OnlineProtocol.OP_PONG] = OnlineProtocol.PONG;
+        TEXT_COMMANDS[OnlineProtocol.OP_ROOM_DELTA] = OnlineProtocol.ROOM_DELTA;
+        TEXT_COMMANDS[OnlineProtocol.OP_ROOM_ACK] = OnlineProtocol.ROOM_ACK;
+        TEXT_COMMANDS[OnlineProtocol.OP_SNAPSHOT] = OnlineProtocol.SNAPSHOT;
+        TEXT_COMMANDS[OnlineProtocol.OP_RELIABLE] = OnlineProtocol.RELIABLE;
+        TEXT_COMMANDS[OnlineProtocol.OP_ACK] = OnlineProtocol.ACK;
+        TEXT_COMMANDS[OnlineProtocol.OP_SPECTATE] = OnlineProtocol.SPECTATE;
+        TEXT_COMMANDS[OnlineProtocol.OP_QUEUE] = OnlineProtocol.QUEUE;
+        for (int opcode = 1; opcode < OnlineProtocol.OP_COUNT; opcode++) {
+            TEXT_COMMAND_BYTES[opcode] = ascii(TEXT_COMMANDS[opcode]);
+        }
+        for (int i = 0; i < ROOM_STATES.length; i++) {
+            ROOM_STATE_BYTES[i] = ascii(ROOM_STATES[i]);
+        }
+        for (int i = 1; i < ERROR_CODES.length; i++) {
+            ERROR_CODE_BYTES[i] = ascii(ERROR_CODES[i]);
+        }
+    }
+
+    private OnlineCodec() {
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static String commandName(int opcode) {
+        if (opcode <= 0 || opcode >= OnlineProtocol.OP_COUNT) {
+            return "UNKNOWN";
+        }
+        return TEXT_COMMANDS[opcode];
+    }
+
+    public static int readFrameHeader(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            return FORMAT_INVALID;
+        }
+        if (in.get(in.position()) != OnlineProtocol.WIRE_MAGIC) {
+            return FORMAT_TEXT;
+        }
+        if (in.remaining() < 2) {
+            return FORMAT_INVALID;
+        }
+        in.get();
+        int version = in.get() & 0xFF;
+        return version == OnlineProtocol.WIRE_VERSION ? FORMAT_BINARY : FORMAT_UNSUPPORTED;
+    }
+
+    public static void writeFrameHeader(ByteBuffer out, boolean binary) {
+        if (binary) {
+            out.put(OnlineProtocol.WIRE_MAGIC);
+            out.put((byte) OnlineProtocol.WIRE_VERSION);
+        }
+    }
+
+    public static boolean decode(ByteBuffer in, int format, OnlineMessage out) {
+        if (format != FORMAT_BINARY && format != FORMAT_TEXT) {
+            return false;
+        }
+        try {
+            return format == FORMAT_BINARY ? decodeBinary(in, out) : decodeText(in, out);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            in.position(in.limit());
+            return false;
+        }
+    }
+
+    public static boolean encode(ByteBuffer out, OnlineMessage message, boolean binary) {
+        int start = out.position();
+        try {
+            if (binary) {
+                encodeBinary(out, message);
+            } else {
+                encodeText(out, message);
+            }
+            return true;
+        } catch (BufferOverflowException | IllegalArgumentException e) {
+            out.position(start);
+            return false;
+        }
+    }
+
+    private static boolean decodeBinary(ByteBuffer in, OnlineMessage out) {
+        if (!in.hasRemaining()) {
+            return false;
+        }
+        int opcode = in.get() & 0xFF;
+        if (opcode == OnlineProtocol.OP_RELIABLE) {
+            // Envoltura fiable: la secuencia precede al mensaje normal.
+            int sequence = readVarInt(in);
+            if (sequence <= 0 || !in.hasRemaining() || (in.get(in.position()) & 0xFF) == OnlineProtocol.OP_RELIABLE
+                || !decodeBinary(in, out)) {
+                throw new IllegalArgumentException("Invalid reliable envelope");
+            }
+            out.reliableSequence = sequence;
+            return true;
+        }
+        switch (opcode) {
+            case OnlineProtocol.OP_HELLO:
+            case OnlineProtocol.OP_SPECTATE:
+                out.reset(opcode);
+                out.roomId = readVarInt(in);
+                out.name = readString(in);
+                return true;
+            case OnlineProtocol.OP_QUEUE:
+                out.queue(readString(in));
+                return true;
+            case OnlineProtocol.OP_JUMP:
+                out.reset(opcode);
+                out.playerId = readVarInt(in);
+                out.inputSequence = readVarInt(in);
+                out.tick = readVarLong(in);
+                return true;
+            case OnlineProtocol.OP_WELCOME:
+                out.welcome(readVarInt(in), in.getInt());
+                return true;
+            case OnlineProtocol.OP_ELIMINATED:
+            case OnlineProtocol.OP_LEAVE:
+            case OnlineProtocol.OP_CLIENT_LEFT:
+                out.reset(opcode);
+                out.playerId = readVarInt(in);
+                return true;
+            case OnlineProtocol.OP_ROOM:
+                decodeBinaryRoom(in, out);
+                return true;
+            case OnlineProtocol.OP_ROOM_DELTA:
+                decodeBinaryRoomDelta(in, out);
+                return true;
+            case OnlineProtocol.OP_ROOM_ACK:
+                out.roomAck(readVarInt(in));
+                return true;
+            case OnlineProtocol.OP_ACK: {
+                int cumulative = readVarInt(in);
+                int latest = readVarInt(in);
+                int bits = in.getInt();
+                out.ack(cumulative, latest, bits, in.getInt());
+                return true;
+            }
+            case OnlineProtocol.OP_SNAPSHOT:
+                decodeBinarySnapshot(in, out);
+                return true;
+            case OnlineProtocol.OP_READY:
+                out.reset(opcode);
+                out.ready = in.get() != 0;
+                return true;
+            case OnlineProtocol.OP_START_GAME:
+                out.reset(opcode);
+                out.x = readQuantized(in);
+                out.y = readQuantized(in);
+                out.delayMs = readVarLong(in);
+                out.courseSeed = readVarInt(in);
+                out.tickRate = readVarInt(in);
+                return true;
+            case OnlineProtocol.OP_SPAWN:
+                out.reset(opcode);
+                out.y = readQuantized(in);
+                return true;
+            case OnlineProtocol.OP_REMATCH:
+                out.rematch();
+                return true;
+            case OnlineProtocol.OP_FIN:
+                out.reset(opcode);
+                out.winnerId = readVarInt(in);
+                return true;
+            case OnlineProtocol.OP_ERROR:
+                out.reset(opcode);
+                int code = in.get() & 0xFF;
+                out.error = code > 0 && code < ERROR_CODES.length ? ERROR_CODES[code] : readString(in);
+                return true;
+            case OnlineProtocol.OP_PING:
+            case OnlineProtocol.OP_PONG:
+                out.reset(opcode);
+                out.pingSequence = readVarInt(in);
+                out.pingTimestamp = readVarLong(in);
+                return true;
+            case OnlineProtocol.OP_SERVER_CLOSED:
+                out.reset(opcode);
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown opcode " + opcode);
+        }
+    }
+
+    private static void decodeBinaryRoom(ByteBuffer in, OnlineMessage out) {
+        int stateIndex = in.get() & 0xFF;
+        if (stateIndex >= ROOM_STATES.length) {
+            throw new IllegalArgumentException("Unknown room state " + stateIndex);
+        }
+        out.room(ROOM_STATES[stateIndex], readVarInt(in));
+        int count = readVarInt(in);
+        if (count > OnlineMessage.MAX_ROSTER) {
+            throw new IllegalArgumentException("Roster too large: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            int id = readVarInt(in);
+            int flags = in.get() & 0xFF;
+            int score = readVarInt(in);
+            String name = readString(in);
+            out.addRosterEntry(id, name, (flags & FLAG_READY) != 0, score, (flags & FLAG_ALIVE) != 0);
+        }
+    }
+
+    private static void decodeBinaryRoomDelta(ByteBuffer in, OnlineMessage out) {
+        out.roomDelta(readVarInt(in), readVarInt(in));
+        int flags = in.get() & 0xFF;
+        if ((flags & DELTA_STATE) != 0) {
+            int stateIndex = in.get() & 0xFF;
+            if (stateIndex >= ROOM_STATES.length) {
+                throw new IllegalArgumentException("Unknown room state " + stateIndex);
+            }
+            out.roomState = ROOM_STATES[stateIndex];
+        }
+        if ((flags & DELTA_WINNER) != 0) {
+            out.winnerId = readVarInt(in);
+        }
+        int count = readVarInt(in);
+        if (count > OnlineMessage.MAX_ROSTER) {
+            throw new IllegalArgumentException("Roster too large: " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            int id = readVarInt(in);
+            int fields = in.get() & 0xFF;
+            int playerFlags = (fields & (OnlineMessage.FIELD_READY | OnlineMessage.FIELD_ALIVE)) != 0 ? in.get() & 0xFF : 0;
+            int score = (fields & OnlineMessage.FIELD_SCORE) != 0 ? readVarInt(in) : 0;
+            String name = (fields & OnlineMessage.FIELD_NAME) != 0 ? readString(in) : null;
+            out.addRosterDelta(id, fields, name, (playerFlags & FLAG_READY) != 0, score, (playerFlags & FLAG_ALIVE) != 0);
+        }
+    }
+
+    private static void encodeBinaryRoomDelta(ByteBuffer out, OnlineMessage message) {
+        writeVarInt(out, message.roomVersion);
+        writeVarInt(out, message.baseVersion);
+        int flags = (message.roomState != null ? DELTA_STATE : 0) | (message.winnerId >= 0 ? DELTA_WINNER : 0);
+        out.put((byte) flags);
+        if (message.roomState != null) {
+            out.put((byte) roomStateIndex(message.roomState));
+        }
+        if (message.winnerId >= 0) {
+            writeVarInt(out, message.winnerId);
+        }
+        writeVarInt(out, message.rosterSize);
+        for (int i = 0; i < message.rosterSize; i++) {
+            int fields = message.rosterFields[i];
+            writeVarInt(out, message.rosterIds[i]);
+            out.put((byte) fields);
+            if ((fields & (OnlineMessage.FIELD_READY | OnlineMessage.FIELD_ALIVE)) != 0) {
+                out.put((byte) ((message.rosterReady[i] ? FLAG_READY : 0) | (message.rosterAlive[i] ? FLAG_ALIVE : 0)));
+            }
+            if ((fields & OnlineMessage.FIELD_SCORE) != 0) {
+                writeVarInt(out, message.rosterScores[i]);
+            }
+            if ((fields & OnlineMessage.FIELD_NAME) != 0) {
+                writeString(out, message.rosterNames[i]);
+            }
+        }
+    }
+
+    private static void decodeBinarySnapshot(ByteBuffer in, OnlineMessage out) {
+        out.snapshot(readVarLong(in), readVarInt(in));
+        int birds = in.get() & 0xFF;
+        if (birds > OnlineMessage.MAX_ROSTER) {
+            throw new IllegalArgumentException("Too many birds: " + birds);
+        }
+        for (int i = 0; i < birds; i++) {
+            int id = readVarInt(in);
+            boolean alive = in.get() != 0;
+            float y = readQuantized(in);
+            float velocity = readQuantized(in);
+            int ackedInput = readVarInt(in);
+            out.addSnapshotBird(id, y, velocity, alive, ackedInput);
+        }
+        int pipes = in.get() & 0xFF;
+        if (pipes > OnlineMessage.MAX_SNAPSHOT_PIPES) {
+            throw new IllegalArgumentException("Too many pipes: " + pipes);
+        }
+        for (int i = 0; i < pipes; i++) {
+            float x = readQuantized(in);
+            out.addSnapshotPipe(x, readQuantized(in));
+        }
+    }
+
+    private static void encodeBinarySnapshot(ByteBuffer out, OnlineMessage message) {
+        writeVarLong(out, message.tick);
+        writeVarInt(out, message.tickRate);
+        out.put((byte) message.birdCount);
+        for (int i = 0; i < message.birdCount; i++) {
+            writeVarInt(out, message.birdIds[i]);
+            out.put((byte) (message.birdAlive[i] ? 1 : 0));
+            writeQuantized(out, message.birdY[i]);
+            writeQuantized(out, message.birdVelocity[i]);
+            writeVarInt(out, message.birdAckedInput[i]);
+        }
+        out.put((byte) message.pipeCount);
+        for (int i = 0; i < message.pipeCount; i++) {
+            writeQuantized(out, message.pipeX[i]);
+            writeQuantized(out, message.pipeGapY[i]);
+        }
+    }
+
+    private static void encodeBinary(ByteBuffer out, OnlineMessage message) {
+        if (message.reliableSequence > 0) {
+            out.put((byte) OnlineProtocol.OP_RELIABLE);
+            writeVarInt(out, message.reliableSequence);
+        }
+        out.put((byte) message.opcode);
+        switch (message.opcode) {
+            case OnlineProtocol.OP_HELLO:
+            case OnlineProtocol.OP_SPECTATE:
+                writeVarInt(out, message.roomId);
+                writeString(out, message.name);
+                return;
+            case OnlineProtocol.OP_QUEUE:
+                writeString(out, message.name);
+                return;
+            case OnlineProtocol.OP_JUMP:
+                writeVarInt(out, message.playerId);
+                writeVarInt(out, message.inputSequence);
+                writeVarLong(out, message.tick);
+                return;
+            case OnlineProtocol.OP_WELCOME:
+                writeVarInt(out, message.playerId);
+                out.putInt(message.channelEpoch);
+                return;
+            case OnlineProtocol.OP_ELIMINATED:
+            case OnlineProtocol.OP_LEAVE:
+            case OnlineProtocol.OP_CLIENT_LEFT:
+                writeVarInt(out, message.playerId);
+                return;
+            case OnlineProtocol.OP_ROOM:
+                out.put((byte) roomStateIndex(message.roomState));
+                writeVarInt(out, message.winnerId);
+                writeVarInt(out, message.rosterSize);
+                for (int i = 0; i < message.rosterSize; i++) {
+                    writeVarInt(out, message.rosterIds[i]);
+                    int flags = (message.rosterReady[i] ? FLAG_READY : 0) | (message.rosterAlive[i] ? FLAG_ALIVE : 0);
+                    out.put((byte) flags);
+                    writeVarInt(out, message.rosterScores[i]);
+                    writeString(out, message.rosterNames[i]);
+                }
+                return;
+            case OnlineProtocol.OP_ROOM_DELTA:
+                encodeBinaryRoomDelta(out, message);
+                return;
+            case OnlineProtocol.OP_ROOM_ACK:
+                writeVarInt(out, message.roomVersion);
+                return;
+            case OnlineProtocol.OP_ACK:
+                writeVarInt(out, message.ackCumulative);
+                writeVarInt(out, message.ackLatest);
+                out.putInt(message.ackBits);
+                out.putInt(message.channelEpoch);
+                return;
+            case OnlineProtocol.OP_SNAPSHOT:
+                encodeBinarySnapshot(out, message);
+                return;
+            case OnlineProtocol.OP_READY:
+                out.put((byte) (message.ready ? 1 : 0));
+                return;
+            case OnlineProtocol.OP_START_GAME:
+                writeQuantized(out, message.x);
+                writeQuantized(out, message.y);
+                writeVarLong(out, message.delayMs);
+                writeVarInt(out, message.courseSeed);
+                writeVarInt(out, message.tickRate);
+                return;
+            case OnlineProtocol.OP_SPAWN:
+                writeQuantized(out, message.y);
+                return;
+            case OnlineProtocol.OP_FIN:
+                writeVarInt(out, message.winnerId);
+                return;
+            case OnlineProtocol.OP_ERROR:
+                int code = errorCodeIndex(message.error);
+                out.put((byte) code);
+                if (code == 0) {
+                    writeString(out, message.error);
+                }
+                return;
+            case OnlineProtocol.OP_PING:
+            case OnlineProtocol.OP_PONG:
+                writeVarInt(out, message.pingSequence);
+                writeVarLong(out, message.pingTimestamp);
+                return;
+            case OnlineProtocol.OP_REMATCH:
+            case OnlineProtocol.OP_SERVER_CLOSED:
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown opcode " + message.opcode);
+        }
+    }
+
+    private static boolean decodeText(ByteBuffer in, OnlineMessage out) {
+        while (in.hasRemaining()) {
+            int start = in.position();
+            int end = indexOf(in, start, in.limit(), '\n');
+            in.position(end < in.limit() ? end + 1 : end);
+            while (start < end && in.get(start) <= ' ') {
+                start++;
+            }
+            while (end > start && in.get(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                return decodeTextLine(in, start, end, out);
+            }
+        }
+        return false;
+    }
+
+    private static boolean decodeTextLine(ByteBuffer in, int start, int end, OnlineMessage out) {
+        int commandEnd = indexOf(in, start, end, ':');
+        int opcode = textOpcode(in, start, commandEnd);
+        int f1 = Math.min(commandEnd + 1, end);
+        int e1 = indexOf(in, f1, end, ':');
+        int f2 = Math.min(e1 + 1, end);
+        int e2 = indexOf(in, f2, end, ':');
+        int f3 = Math.min(e2 + 1, end);
+        int e3 = indexOf(in, f3, end, ':');
+        boolean hasField1 = commandEnd < end;
+        switch (opcode) {
+            case OnlineProtocol.OP_HELLO:
+                out.hello(hasField1 ? readTextString(in, f1, e1) : null,
+                    e1 < end ? parseInt(in, f2, e2, OnlineProtocol.DEFAULT_ROOM_ID) : OnlineProtocol.DEFAULT_ROOM_ID);
+                return true;
+            case OnlineProtocol.OP_QUEUE:
+                out.queue(hasField1 ? readTextString(in, f1, e1) : null);
+                return true;
+            case OnlineProtocol.OP_JUMP:
+                out.jump(hasField1 ? parseInt(in, f1, e1, 0) : 0, e1 < end ? parseInt(in, f2, e2, 0) : 0,
+                    e2 < end ? parseLong(in, f3, e3, 0L) : 0L);
+                return true;
+            case OnlineProtocol.OP_WELCOME:
+            case OnlineProtocol.OP_ELIMINATED:
+            case OnlineProtocol.OP_LEAVE:
+            case OnlineProtocol.OP_CLIENT_LEFT:
+                out.reset(opcode);
+                out.playerId = hasField1 ? parseInt(in, f1, e1, 0) : 0;
+                return true;
+            case OnlineProtocol.OP_ROOM:
+                out.room(hasField1 ? roomStateValue(in, f1, e1) : OnlineProtocol.ROOM_WAITING,
+                    e1 < end ? parseInt(in, f2, e2, 0) : 0);
+                if (e3 < end) {
+                    decodeTextRoster(in, e3 + 1, end, out);
+                }
+                return true;
+            case OnlineProtocol.OP_READY:
+                out.readyState(!hasField1 || matches(in, f1, e1, ONE_BYTES) || matchesIgnoreCase(in, f1, e1, TRUE_BYTES));
+                return true;
+            case OnlineProtocol.OP_START_GAME:
+                if (e2 >= end) {
+                    return false;
+                }
+                int f4 = Math.min(e3 + 1, end);
+                int e4 = indexOf(in, f4, end, ':');
+                int f5 = Math.min(e4 + 1, end);
+                int e5 = indexOf(in, f5, end, ':');
+                if (e4 >= end) {
+                    return false;
+                }
+                out.startGame(parseFixed(in, f1, e1), parseFixed(in, f2, e2), parseInt(in, f3, e3, 0),
+                    parseInt(in, f4, e4, 0), parseInt(in, f5, e5, 0));
+                return true;
+            case OnlineProtocol.OP_SPAWN:
+                if (!hasField1) {
+                    return false;
+                }
+                out.spawn(parseFixed(in, f1, e1));
+                return true;
+            case OnlineProtocol.OP_REMATCH:
+                out.rematch();
+                return true;
+            case OnlineProtocol.OP_ROOM_ACK:
+                out.roomAck(hasField1 ? parseInt(in, f1, e1, 0) : 0);
+                return true;
+            case OnlineProtocol.OP_FIN:
+                out.fin(hasField1 ? parseInt(in, f1, e1, 0) : 0);
+                return true;
+            case OnlineProtocol.OP_ERROR:
+                out.error(hasField1 ? errorCodeValue(in, f1, e1) : "Unknown error");
+                return true;
+            case OnlineProtocol.OP_PING:
+            case OnlineProtocol.OP_PONG:
+                out.reset(opcode);
+                out.pingSequence = hasField1 ? parseInt(in, f1, e1, 0) : 0;
+                out.pingTimestamp = e1 < end ? parseLong(in, f2, e2, 0L) : 0L;
+                return true;
+            case OnlineProtocol.OP_SERVER_CLOSED:
+                out.reset(opcode);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void decodeTextRoster(ByteBuffer in, int start, int end, OnlineMessage out) {
+        int entryStart = start;
+        while (entryStart < end) {
+            int entryEnd = indexOf(in, entryStart, end, '|');
+            int idEnd = indexOf(in, entryStart, entryEnd, ',');
+            if (idEnd < entryEnd) {
+                int nameStart = idEnd + 1;
+                int nameEnd = indexOf(in, nameStart, entryEnd, ',');
+                int readyStart = Math.min(nameEnd + 1, entryEnd);
+                int readyEnd = indexOf(in, readyStart, entryEnd, ',');
+                int scoreStart = Math.min(readyEnd + 1, entryEnd);
+                int scoreEnd = indexOf(in, scoreStart, entryEnd, ',');
+                int aliveStart = Math.min(scoreEnd + 1, entryEnd);
+                out.addRosterEntry(parseInt(in, entryStart, idEnd, 0),
+                    readTextString(in, nameStart, nameEnd),
+                    matches(in, readyStart, readyEnd, ONE_BYTES),
+                    parseInt(in, scoreStart, scoreEnd, 0),
+                    matches(in, aliveStart, entryEnd, ONE_BYTES));
+            }
+            entryStart = entryEnd + 1;
+        }
+    }
+
+    private static void encodeText(ByteBuffer out, OnlineMessage message) {
+        if (out.position() > 0) {
+            out.put((byte) '\n');
+        }
+        out.put(TEXT_COMMAND_BYTES[message.opcode]);
+        switch (message.opcode) {
+            case OnlineProtocol.OP_HELLO:
+                out.put((byte) ':');
+                writeTextString(out, message.name);
+                out.put((byte) ':');
+                writeDecimal(out, message.roomId);
+                return;
+            case OnlineProtocol.OP_QUEUE:
+                out.put((byte) ':');
+                writeTextString(out, message.name);
+                return;
+            case OnlineProtocol.OP_JUMP:
+                out.put((byte) ':');
+                writeDecimal(out, message.playerId);
+                if (message.inputSequence > 0 || message.tick > 0L) {
+                    out.put((byte) ':');
+                    writeDecimal(out, message.inputSequence);
+                }
+                if (message.tick > 0L) {
+                    out.put((byte) ':');
+                    writeDecimal(out, message.tick);
+                }
+                return;
+            case OnlineProtocol.OP_WELCOME:
+            case OnlineProtocol.OP_ELIMINATED:
+            case OnlineProtocol.OP_LEAVE:
+            case OnlineProtocol.OP_CLIENT_LEFT:
+                out.put((byte) ':');
+                writeDecimal(out, message.playerId);
+                return;
+            case OnlineProtocol.OP_ROOM:
+                out.put((byte) ':');
+                out.put(ROOM_STATE_BYTES[roomStateIndex(message.roomState)]);
+                out.put((byte) ':');
+                writeDecimal(out, message.winnerId);
+                out.put((byte) ':');
+                writeDecimal(out, message.rosterSize);
+                out.put((byte) ':');
+                for (int i = 0; i < message.rosterSize; i++) {
+                    if (i > 0) {
+                        out.put((byte) '|');
+                    }
+                    writeDecimal(out, message.rosterIds[i]);
+                    out.put((byte) ',');
+                    writeTextString(out, message.rosterNames[i]);
+                    out.put((byte) ',');
+                    out.put((byte) (message.rosterReady[i] ? '1' : '0'));
+                    out.put((byte) ',');
+                    writeDecimal(out, message.rosterScores[i]);
+                    out.put((byte) ',');
+                    out.put((byte) (message.rosterAlive[i] ? '1' : '0'));
+                }
+                return;
+            case OnlineProtocol.OP_READY:
+            case OnlineProtocol.OP_REMATCH:
+                out.put((byte) ':');
+                out.put((byte) (message.ready ? '1' : '0'));
+                return;
+            case OnlineProtocol.OP_START_GAME:
+                out.put((byte) ':');
+                writeFixed(out, message.x);
+                out.put((byte) ':');
+                writeFixed(out, message.y);
+                out.put((byte) ':');
+                writeDecimal(out, message.delayMs);
+                out.put((byte) ':');
+                writeDecimal(out, message.courseSeed);
+                out.put((byte) ':');
+                writeDecimal(out, message.tickRate);
+                return;
+            case OnlineProtocol.OP_SPAWN:
+                out.put((byte) ':');
+                writeFixed(out, message.y);
+                return;
+            case OnlineProtocol.OP_FIN:
+                out.put((byte) ':');
+                writeDecimal(out, message.winnerId);
+                return;
+            case OnlineProtocol.OP_ROOM_ACK:
+                out.put((byte) ':');
+                writeDecimal(out, message.roomVersion);
+                return;
+            case OnlineProtocol.OP_PING:
+            case OnlineProtocol.OP_PONG:
+                if (message.pingSequence > 0) {
+                    out.put((byte) ':');
+                    writeDecimal(out, message.pingSequence);
+                    out.put((byte) ':');
+                    writeDecimal(out, message.pingTimestamp);
+                }
+                return;
+            case OnlineProtocol.OP_ROOM_DELTA:
+            case OnlineProtocol.OP_SNAPSHOT:
+            case OnlineProtocol.OP_RELIABLE:
+            case OnlineProtocol.OP_ACK:
+            case OnlineProtocol.OP_SPECTATE:
+                throw new IllegalArgumentException(commandName(message.opcode) + " is only sent over the binary wire format");
+            case OnlineProtocol.OP_ERROR:
+                out.put((byte) ':');
+                int code = errorCodeIndex(message.error);
+                if (code > 0) {
+                    out.put(ERROR_CODE_BYTES[code]);
+                } else {
+                    writeTextString(out, message.error);
+                }
+                return;
+            default:
+                return;
+        }
+    }
+
+    private static void writeDecimal(ByteBuffer out, long value) {
+        if (value < 0L) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        long divisor = 1L;
+        while (value / divisor >= 10L) {
+            divisor *= 10L;
+        }
+        while (divisor > 0L) {
+            out.put((byte) ('0' + (value / divisor) % 10L));
+            divisor /= 10L;
+        }
+    }
+
+    private static void writeFixed(ByteBuffer out, float value) {
+        int quantized = Math.round(value * QUANTIZE_SCALE);
+        if (quantized < 0) {
+            out.put((byte) '-');
+            quantized = -quantized;
+        }
+        writeDecimal(out, quantized / 100);
+        out.put((byte) '.');
+        out.put((byte) ('0' + (quantized / 10) % 10));
+        out.put((byte) ('0' + quantized % 10));
+    }
+
+    private static void writeTextString(ByteBuffer out, String value) {
+        if (value != null) {
+            out.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int indexOf(ByteBuffer in, int from, int to, char separator) {
+        for (int i = from; i < to; i++) {
+            if (in.get(i) == separator) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int parseInt(ByteBuffer in, int from, int to, int fallback) {
+        long value = parseLong(in, from, to, Long.MIN_VALUE);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return fallback;
+        }
+        return (int) value;
+    }
+
+    private static long parseLong(ByteBuffer in, int from, int to, long fallback) {
+        while (from < to && in.get(from) <= ' ') {
+            from++;
+        }
+        while (to > from && in.get(to - 1) <= ' ') {
+            to--;
+        }
+        boolean negative = from < to && in.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i >= to || to - i > 18) {
+            return fallback;
+        }
+        long value = 0L;
+        for (; i < to; i++) {
+            int digit = in.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return fallback;
+            }
+            value = value * 10L + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static float parseFixed(ByteBuffer in, int from, int to) {
+        while (from < to && in.get(from) <= ' ') {
+            from++;
+        }
+        boolean negative = from < to && in.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        long whole = 0L;
+        long fraction = 0L;
+        long fractionScale = 1L;
+        boolean inFraction = false;
+        for (; i < to; i++) {
+            byte b = in.get(i);
+            if (b == '.' && !inFraction) {
+                inFraction = true;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (inFraction) {
+                if (fractionScale < 1_000_000L) {
+                    fraction = fraction * 10L + digit;
+                    fractionScale *= 10L;
+                }
+            } else if (whole < 100_000_000L) {
+                whole = whole * 10L + digit;
+            }
+        }
+        float value = whole + fraction / (float) fractionScale;
+        return negative ? -value : value;
+    }
+
+    private static String readTextString(ByteBuffer in, int from, int to) {
+        byte[] bytes = new byte[Math.max(0, to - from)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = in.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    private static boolean matches(ByteBuffer in, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (in.get(from + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesIgnoreCase(ByteBuffer in, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((in.get(from + i) | 0x20) != (expected[i] | 0x20)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long result = 0L;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varlong");
+    }
+
+    static void writeQuantized(ByteBuffer out, float value) {
+        int quantized = Math.round(value * QUANTIZE_SCALE);
+        writeVarInt(out, (quantized << 1) ^ (quantized >> 31));
+    }
+
+    static float readQuantized(ByteBuffer in) {
+        int zigzag = readVarInt(in);
+        int quantized = (zigzag >>> 1) ^ -(zigzag & 1);
+        return quantized / QUANTIZE_SCALE;
+    }
+
+    private static void writeString(ByteBuffer out, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        writeVarInt(out, length);
+        out.put(bytes, 0, length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > MAX_STRING_BYTES || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int textOpcode(ByteBuffer in, int from, int to) {
+        for (int opcode = 1; opcode < OnlineProtocol.OP_COUNT; opcode++) {
+            if (matches(in, from, to, TEXT_COMMAND_BYTES[opcode])) {
+                return opcode;
+            }
+        }
+        return 0;
+    }
+
+    private static int roomStateIndex(String roomState) {
+        for (int i = 0; i < ROOM_STATES.length; i++) {
+            if (ROOM_STATES[i].equals(roomState)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static String roomStateValue(ByteBuffer in, int from, int to) {
+        for (int i = 0; i < ROOM_STATES.length; i++) {
+            if (matches(in, from, to, ROOM_STATE_BYTES[i])) {
+                return ROOM_STATES[i];
+            }
+        }
+        return ROOM_STATES[0];
+    }
+
+    private static String errorCodeValue(ByteBuffer in, int from, int to) {
+        for (int i = 1; i < ERROR_CODES.length; i++) {
+            if (matches(in, from, to, ERROR_CODE_BYTES[i])) {
+                return ERROR_CODES[i];
+            }
+        }
+        return readTextString(in, from, to);
+    }
+
+    private static int errorCodeIndex(String error) {
+        for (int i = 1; i < ERROR_CODES.length; i++) {
+            if (ERROR_CODES[i].equals(error)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+}
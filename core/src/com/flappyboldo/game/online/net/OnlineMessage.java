@@ -0,0 +1,299 @@
+package com.flappyboldo.game.online.net;
+
+public final class OnlineMessage {
+    public static final int MAX_ROSTER = 8;
+    public static final int MAX_SNAPSHOT_PIPES = 16;
+
+    public static final int FIELD_READY = 1;
+    public static final int FIELD_ALIVE = 2;
+    public static final int FIELD_SCORE = 4;
+    public static final int FIELD_NAME = 8;
+    public static final int FIELD_REMOVED = 16;
+    public static final int FIELDS_ALL = FIELD_READY | FIELD_ALIVE | FIELD_SCORE | FIELD_NAME;
+
+    public int opcode;
+    public int playerId;
+    public int roomId;
+    public int winnerId;
+    public int inputSequence;
+    public boolean ready;
+    public float x;
+    public float y;
+    public long delayMs;
+    public int courseSeed;
+    public String name;
+    public String error;
+    public String roomState;
+    public int roomVersion;
+    public int baseVersion;
+    public int reliableSequence;
+    public int ackCumulative;
+    public int ackLatest;
+    public int ackBits;
+    public int channelEpoch;
+    public int pingSequence;
+    public long pingTimestamp;
+
+    public int rosterSize;
+    public final int[] rosterIds = new int[MAX_ROSTER];
+    public final String[] rosterNames = new String[MAX_ROSTER];
+    public final boolean[] rosterReady = new boolean[MAX_ROSTER];
+    public final boolean[] rosterAlive = new boolean[MAX_ROSTER];
+    public final int[] rosterScores = new int[MAX_ROSTER];
+    public final int[] rosterFields = new int[MAX_ROSTER];
+
+    public long tick;
+    public int tickRate;
+    public int birdCount;
+    public final int[] birdIds = new int[MAX_ROSTER];
+    public final float[] birdY = new float[MAX_ROSTER];
+    public final float[] birdVelocity = new float[MAX_ROSTER];
+    public final boolean[] birdAlive = new boolean[MAX_ROSTER];
+    public final int[] birdAckedInput = new int[MAX_ROSTER];
+    public int pipeCount;
+    public final float[] pipeX = new float[MAX_SNAPSHOT_PIPES];
+    public final float[] pipeGapY = new float[MAX_SNAPSHOT_PIPES];
+
+    public OnlineMessage reset(int opcode) {
+        this.opcode = opcode;
+        this.playerId = 0;
+        this.roomId = OnlineProtocol.DEFAULT_ROOM_ID;
+        this.winnerId = 0;
+        this.inputSequence = 0;
+        this.ready = false;
+        this.x = 0f;
+        this.y = 0f;
+        this.delayMs = 0L;
+        this.courseSeed = 0;
+        this.name = null;
+        this.error = null;
+        this.roomState = null;
+        this.roomVersion = 0;
+        this.baseVersion = 0;
+        this.reliableSequence = 0;
+        this.pingSequence = 0;
+        this.pingTimestamp = 0L;
+        this.ackCumulative = 0;
+        this.ackLatest = 0;
+        this.ackBits = 0;
+        this.channelEpoch = 0;
+        this.rosterSize = 0;
+        this.tick = 0L;
+        this.tickRate = 0;
+        this.birdCount = 0;
+        this.pipeCount = 0;
+        return this;
+    }
+
+    public OnlineMessage hello(String playerName, int roomId) {
+        reset(OnlineProtocol.OP_HELLO);
+        this.name = playerName;
+        this.roomId = roomId;
+        return this;
+    }
+
+    public OnlineMessage queue(String playerName) {
+        reset(OnlineProtocol.OP_QUEUE);
+        this.name = playerName;
+        return this;
+    }
+
+    public OnlineMessage spectate(String spectatorName, int roomId) {
+        reset(OnlineProtocol.OP_SPECTATE);
+        this.name = spectatorName;
+        this.roomId = roomId;
+        return this;
+    }
+
+    public OnlineMessage welcome(int playerId) {
+        return welcome(playerId, 0);
+    }
+
+    public OnlineMessage welcome(int playerId, int channelEpoch) {
+        reset(OnlineProtocol.OP_WELCOME);
+        this.playerId = playerId;
+        this.channelEpoch = channelEpoch;
+        return this;
+    }
+
+    public OnlineMessage room(String roomState, int lastWinnerId) {
+        reset(OnlineProtocol.OP_ROOM);
+        this.roomState = roomState;
+        this.winnerId = lastWinnerId;
+        return this;
+    }
+
+    public OnlineMessage roomDelta(int version, int baseVersion) {
+        reset(OnlineProtocol.OP_ROOM_DELTA);
+        this.roomVersion = version;
+        this.baseVersion = baseVersion;
+        this.winnerId = -1;
+        return this;
+    }
+
+    public OnlineMessage roomAck(int version) {
+        reset(OnlineProtocol.OP_ROOM_ACK);
+        this.roomVersion = version;
+        return this;
+    }
+
+    public boolean addRosterEntry(int id, String playerName, boolean playerReady, int score, boolean alive) {
+        return addRosterDelta(id, FIELDS_ALL, playerName, playerReady, score, alive);
+    }
+
+    public boolean addRosterDelta(int id, int fields, String playerName, boolean playerReady, int score,
+                                  boolean alive) {
+        if (rosterSize >= MAX_ROSTER) {
+            return false;
+        }
+        rosterFields[rosterSize] = fields;
+        rosterIds[rosterSize] = id;
+        rosterNames[rosterSize] = playerName;
+        rosterReady[rosterSize] = playerReady;
+        rosterScores[rosterSize] = score;
+        rosterAlive[rosterSize] = alive;
+        rosterSize++;
+        return true;
+    }
+
+    public OnlineMessage snapshot(long simulationTick, int simulationTickRate) {
+        reset(OnlineProtocol.OP_SNAPSHOT);
+        this.tick = simulationTick;
+        this.tickRate = simulationTickRate;
+        return this;
+    }
+
+    public boolean addSnapshotBird(int id, float birdPositionY, float velocity, boolean alive, int ackedInput) {
+        if (birdCount >= MAX_ROSTER) {
+            return false;
+        }
+        birdIds[birdCount] = id;
+        birdY[birdCount] = birdPositionY;
+        birdVelocity[birdCount] = velocity;
+        birdAlive[birdCount] = alive;
+        birdAckedInput[birdCount] = ackedInput;
+        birdCount++;
+        return true;
+    }
+
+    public boolean addSnapshotPipe(float pipePositionX, float gapCenterY) {
+        if (pipeCount >= MAX_SNAPSHOT_PIPES) {
+            return false;
+        }
+        pipeX[pipeCount] = pipePositionX;
+        pipeGapY[pipeCount] = gapCenterY;
+        pipeCount++;
+        return true;
+    }
+
+    public OnlineMessage readyState(boolean playerReady) {
+        reset(OnlineProtocol.OP_READY);
+        this.ready = playerReady;
+        return this;
+    }
+
+    public OnlineMessage startGame(float spawnX, float spawnY, long startDelayMs, int seed, int simulationTickRate) {
+        reset(OnlineProtocol.OP_START_GAME);
+        this.x = spawnX;
+        this.y = spawnY;
+        this.delayMs = startDelayMs;
+        this.courseSeed = seed;
+        this.tickRate = simulationTickRate;
+        return this;
+    }
+
+    public OnlineMessage jump(int playerId) {
+        return jump(playerId, 0);
+    }
+
+    public OnlineMessage jump(int playerId, int sequence) {
+        return jump(playerId, sequence, 0L);
+    }
+
+    // inputTick es el tick del servidor que el cliente estimaba al saltar (0 si no lo conoce).
+    public OnlineMessage jump(int playerId, int sequence, long inputTick) {
+        reset(OnlineProtocol.OP_JUMP);
+        this.playerId = playerId;
+        this.inputSequence = sequence;
+        this.tick = inputTick;
+        return this;
+    }
+
+    public OnlineMessage spawn(float gapCenterY) {
+        reset(OnlineProtocol.OP_SPAWN);
+        this.y = gapCenterY;
+        return this;
+    }
+
+    public OnlineMessage rematch() {
+        reset(OnlineProtocol.OP_REMATCH);
+        this.ready = true;
+        return this;
+    }
+
+    public OnlineMessage eliminated(int playerId) {
+        reset(OnlineProtocol.OP_ELIMINATED);
+        this.playerId = playerId;
+        return this;
+    }
+
+    public OnlineMessage fin(int winnerId) {
+        reset(OnlineProtocol.OP_FIN);
+        this.winnerId = winnerId;
+        return this;
+    }
+
+    public OnlineMessage leave(int playerId) {
+        reset(OnlineProtocol.OP_LEAVE);
+        this.playerId = playerId;
+        return this;
+    }
+
+    public OnlineMessage clientLeft(int playerId) {
+        reset(OnlineProtocol.OP_CLIENT_LEFT);
+        this.playerId = playerId;
+        return this;
+    }
+
+    public OnlineMessage serverClosed() {
+        return reset(OnlineProtocol.OP_SERVER_CLOSED);
+    }
+
+    public OnlineMessage error(String errorCode) {
+        reset(OnlineProtocol.OP_ERROR);
+        this.error = errorCode;
+        return this;
+    }
+
+    public OnlineMessage ack(int cumulative, int latest, int bits, int channelEpoch) {
+        reset(OnlineProtocol.OP_ACK);
+        this.ackCumulative = cumulative;
+        this.ackLatest = latest;
+        this.ackBits = bits;
+        this.channelEpoch = channelEpoch;
+        return this;
+    }
+
+    public OnlineMessage ping() {
+        return ping(0, 0L);
+    }
+
+    // timestampMicros es el reloj monotono del emisor; el PONG lo devuelve sin tocar.
+    public OnlineMessage ping(int sequence, long timestampMicros) {
+        reset(OnlineProtocol.OP_PING);
+        this.pingSequence = sequence;
+        this.pingTimestamp = timestampMicros;
+        return this;
+    }
+
+    public OnlineMessage pong() {
+        return pong(0, 0L);
+    }
+
+    public OnlineMessage pong(int sequence, long echoedTimestampMicros) {
+        reset(OnlineProtocol.OP_PONG);
+        this.pingSequence = sequence;
+        this.pingTimestamp = echoedTimestampMicros;
+        return this;
+    }
+}
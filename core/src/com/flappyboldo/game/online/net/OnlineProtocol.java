@@ -2,10 +2,24 @@ package com.flappyboldo.game.online.net;
 
 public final class OnlineProtocol {
     public static final int PORT = 5555;
+    public static final int DEFAULT_ROOM_ID = 0;
+    public static final int MAX_ROOM_ID = 99999;
+    // Las salas desde FIRST_MATCH_ROOM_ID son del emparejamiento: un HELLO manual no puede crearlas ni entrar.
+    public static final int MAX_MANUAL_ROOM_ID = 49999;
+    public static final int FIRST_MATCH_ROOM_ID = MAX_MANUAL_ROOM_ID + 1;
+    // Sala que no se elige: el cliente entra en la cola y el servidor le asigna una sala nueva.
+    public static final int MATCHMAKING_ROOM_ID = -1;
 
     public static final String HELLO = "HELLO";
+    public static final String SPECTATE = "SPECTATE";
+    public static final String QUEUE = "QUEUE";
     public static final String WELCOME = "WELCOME";
     public static final String ROOM = "ROOM";
+    public static final String ROOM_DELTA = "ROOM_DELTA";
+    public static final String ROOM_ACK = "ROOM_ACK";
+    public static final String SNAPSHOT = "SNAPSHOT";
+    public static final String RELIABLE = "RELIABLE";
+    public static final String ACK = "ACK";
     public static final String READY = "READY";
     public static final String START_GAME = "START_GAME";
     public static final String JUMP = "JUMP";
@@ -26,6 +40,39 @@ public final class OnlineProtocol {
 
     public static final String ERROR_SERVER_FULL = "SERVER_FULL";
     public static final String ERROR_INVALID_MSG = "INVALID_MSG";
+    public static final String ERROR_UNSUPPORTED_VERSION = "UNSUPPORTED_VERSION";
+
+    public static final byte WIRE_MAGIC = (byte) 0xFB;
+    public static final int WIRE_VERSION = 8;
+    public static final String TEXT_WIRE_PROPERTY = "flappyboldo.textWire";
+
+    public static final int OP_HELLO = 1;
+    public static final int OP_WELCOME = 2;
+    public static final int OP_ROOM = 3;
+    public static final int OP_READY = 4;
+    public static final int OP_START_GAME = 5;
+    public static final int OP_JUMP = 6;
+    // Ya no se envia: el recorrido sale de la semilla de START_GAME. Se conserva para no renumerar.
+    public static final int OP_SPAWN = 7;
+    public static final int OP_REMATCH = 8;
+    public static final int OP_ELIMINATED = 9;
+    public static final int OP_FIN = 10;
+    public static final int OP_LEAVE = 11;
+    public static final int OP_CLIENT_LEFT = 12;
+    public static final int OP_SERVER_CLOSED = 13;
+    public static final int OP_ERROR = 14;
+    public static final int OP_PING = 15;
+    public static final int OP_PONG = 16;
+    public static final int OP_ROOM_DELTA = 17;
+    public static final int OP_ROOM_ACK = 18;
+    public static final int OP_SNAPSHOT = 19;
+    public static final int OP_RELIABLE = 20;
+    public static final int OP_ACK = 21;
+    // Alta y keepalive de espectador: mismo cuerpo que HELLO, solo por el formato binario.
+    public static final int OP_SPECTATE = 22;
+    // Entrar (y seguir) en la cola de emparejamiento; la respuesta es el WELCOME de la sala asignada.
+    public static final int OP_QUEUE = 23;
+    public static final int OP_COUNT = 24;
 
     private OnlineProtocol() {
     }
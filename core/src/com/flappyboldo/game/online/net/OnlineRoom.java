@@ -0,0 +1,742 @@
+package com.flappyboldo.game.online.net;
+
+import com.flappyboldo.game.replay.MatchRecording;
+import com.flappyboldo.game.replay.ReplayFormat;
+import com.flappyboldo.game.replay.ReplayRecorder;
+import com.flappyboldo.game.sim.FlappySimulation;
+import com.flappyboldo.game.sim.PipeCourse;
+import com.flappyboldo.game.sim.SimulationHistory;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+final class OnlineRoom {
+    static final int MAX_CLIENTS = 2;
+
+    private static final long CLIENT_TIMEOUT_MS = 1800L;
+    private static final long START_DELAY_MS = 1200L;
+    private static final long ROOM_RESEND_MS = 100L;
+    private static final int ROOM_HISTORY_SIZE = 32;
+    private static final long PING_INTERVAL_MS = 500L;
+
+    private static final float START_X = 24f;
+    private static final float START_Y = 100f;
+
+    private final OnlineServer server;
+    private final int roomId;
+    private final int tickRate;
+    private final int compensationTicks;
+    private final Random random;
+
+    private final List<ClientInfo> clients;
+    private final FlappySimulation simulation;
+    private final PipeCourse course;
+    private final SimulationHistory history;
+    private final OnlineMessage outbound;
+    private final RoomStateHistory roomHistory;
+
+    private long ticksUntilStart;
+    private int pendingJumpMask;
+    private RoomState roomState;
+    private int lastWinnerId;
+    private boolean roomDirty;
+    private OnlineServer.RoomSnapshot publishedSnapshot;
+    private int publishedVersion;
+    private boolean latencyChanged;
+    private MatchRecording recording;
+    private int recordedSpawnIndex;
+
+    OnlineRoom(OnlineServer server, int roomId, int tickRate, int lagCompensationMs) {
+        this.server = server;
+        this.roomId = roomId;
+        this.tickRate = tickRate;
+        this.compensationTicks = (int) (((long) lagCompensationMs * tickRate + 999L) / 1000L);
+        this.random = new Random();
+        this.clients = new ArrayList<>(MAX_CLIENTS);
+        this.simulation = new FlappySimulation(MAX_CLIENTS, START_X, tickRate);
+        this.course = new PipeCourse(0, tickRate);
+        this.simulation.setCourse(course);
+        this.history = new SimulationHistory(compensationTicks + 1, MAX_CLIENTS, START_X, tickRate);
+        this.outbound = new OnlineMessage();
+        this.roomHistory = new RoomStateHistory(ROOM_HISTORY_SIZE);
+        this.roomState = RoomState.WAITING;
+        this.lastWinnerId = 0;
+        this.ticksUntilStart = 0L;
+        this.roomDirty = false;
+    }
+
+    int getRoomId() {
+        return roomId;
+    }
+
+    boolean isEmpty() {
+        return clients.isEmpty();
+    }
+
+    int getClientCount() {
+        return clients.size();
+    }
+
+    int getPipeCount() {
+        return roomState == RoomState.PLAYING ? simulation.getPipeCount() : 0;
+    }
+
+    // Se reconstruye solo cuando el historial de sala registra una version nueva o llega un PONG.
+    OnlineServer.RoomSnapshot snapshot() {
+        RoomStateHistory.Entry latest = roomHistory.latest();
+        if (latest == null) {
+            return null;
+        }
+        if (publishedSnapshot == null || publishedVersion != latest.version || latencyChanged) {
+            List<OnlineServer.PlayerSnapshot> players = new ArrayList<>(latest.count);
+            for (int i = 0; i < latest.count; i++) {
+                ClientInfo client = findById(latest.ids[i]);
+                RttEstimator rtt = client != null ? client.rtt : null;
+                players.add(new OnlineServer.PlayerSnapshot(latest.ids[i], latest.names[i], latest.ready[i],
+                    latest.alive[i], latest.scores[i],
+                    rtt != null ? rtt.getSmoothedRttMillis() : 0f,
+                    rtt != null ? rtt.getJitterMillis() : 0f,
+                    rtt != null ? rtt.getLossRate() : 0f));
+            }
+            publishedSnapshot = new OnlineServer.RoomSnapshot(roomId, latest.roomState, latest.winnerId, players);
+            publishedVersion = latest.version;
+            latencyChanged = false;
+        }
+        return publishedSnapshot;
+    }
+
+    private ClientInfo findById(int playerId) {
+        for (int i = 0; i < clients.size(); i++) {
+            ClientInfo client = clients.get(i);
+            if (client.id == playerId) {
+                return client;
+            }
+        }
+        return null;
+    }
+
+    void handleCommand(ClientInfo sender, OnlineMessage message) {
+        switch (message.opcode) {
+            case OnlineProtocol.OP_JUMP:
+                if (message.inputSequence > sender.lastInputSequence) {
+                    sender.lastInputSequence = message.inputSequence;
+                } else if (message.inputSequence > 0) {
+                    return;
+                }
+                handleJump(sender, message.tick);
+                return;
+            case OnlineProtocol.OP_READY:
+                sender.ready = message.ready;
+                roomDirty = true;
+                evaluateStartCondition();
+                return;
+            case OnlineProtocol.OP_REMATCH:
+                if (roomState != RoomState.FINISHED) {
+                    return;
+                }
+                sender.rematchReady = true;
+                roomDirty = true;
+                evaluateRematchCondition();
+                return;
+            case OnlineProtocol.OP_LEAVE:
+                removeClient(sender.id, true);
+                return;
+            case OnlineProtocol.OP_ACK:
+                sender.reliable.onAck(message, System.nanoTime());
+                return;
+            case OnlineProtocol.OP_PONG:
+                if (sender.rtt.onPong(message.pingSequence, message.pingTimestamp, RttEstimator.nowMicros())) {
+                    latencyChanged = true;
+                }
+                return;
+            case OnlineProtocol.OP_ROOM_ACK:
+                if (message.roomVersion > sender.ackedRoomVersion
+                    && message.roomVersion <= roomHistory.getLatestVersion()) {
+                    sender.ackedRoomVersion = message.roomVersion;
+                }
+                return;
+            default:
+                break;
+        }
+    }
+
+    void handleHello(InetSocketAddress address, String playerName, boolean binaryWire, ClientInfo existing) {
+        if (existing != null && existing.room == this) {
+            existing.name = playerName;
+            if (existing.outbox.isBinary() != binaryWire) {
+                existing.outbox.reset(binaryWire);
+            }
+            existing.ackedRoomVersion = 0;
+            existing.lastSeenMs = System.currentTimeMillis();
+            server.queueReliable(outbound.welcome(existing.id, existing.reliable.getEpoch()), existing);
+            roomDirty = true;
+            return;
+        }
+
+        if (clients.size() >= MAX_CLIENTS) {
+            server.send(outbound.error(OnlineProtocol.ERROR_SERVER_FULL), address, binaryWire);
+            return;
+        }
+
+        int assignedId = nextAvailableId();
+        if (assignedId == -1) {
+            server.send(outbound.error(OnlineProtocol.ERROR_SERVER_FULL), address, binaryWire);
+            return;
+        }
+
+        ClientInfo client = new ClientInfo(this, assignedId, playerName, address, binaryWire,
+            server.nextChannelEpoch());
+        clients.add(client);
+        server.onClientJoined(client);
+        server.queueReliable(outbound.welcome(assignedId, client.reliable.getEpoch()), client);
+        evaluateWaitingState();
+        roomDirty = true;
+    }
+
+    void removeClient(int playerId, boolean notify) {
+        ClientInfo removed = null;
+        for (int i = 0; i < clients.size(); i++) {
+            if (clients.get(i).id == playerId) {
+                removed = clients.remove(i);
+                break;
+            }
+        }
+
+        if (removed == null) {
+            return;
+        }
+
+        recordLeave(removed);
+        server.onClientRemoved(removed);
+        if (notify) {
+            broadcastReliable(outbound.clientLeft(removed.id));
+        }
+        onRoomChangedAfterDisconnect();
+        roomDirty = true;
+    }
+
+    private void tickTimeouts(long nowMs) {
+        Iterator<ClientInfo> iterator = clients.iterator();
+        boolean changed = false;
+
+        while (iterator.hasNext()) {
+            ClientInfo client = iterator.next();
+            // Con la ventana fiable desbordada ya se perdieron mensajes: se trata como una sesion caida.
+            if (nowMs - client.lastSeenMs >= CLIENT_TIMEOUT_MS || client.reliable.isOverflowed()) {
+                iterator.remove();
+                recordLeave(client);
+                server.onClientRemoved(client);
+                broadcastReliable(outbound.clientLeft(client.id));
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            onRoomChangedAfterDisconnect();
+            roomDirty = true;
+        }
+    }
+
+    void tick(long nowMs, boolean sendTick) {
+        tickTimeouts(nowMs);
+        tickMatch();
+        if (sendTick) {
+            flushNetwork(nowMs);
+        }
+    }
+
+    private void tickMatch() {
+        if (roomState != RoomState.PLAYING) {
+            return;
+        }
+        if (ticksUntilStart > 0L) {
+            ticksUntilStart--;
+            return;
+        }
+
+        int jumpMask = pendingJumpMask;
+        pendingJumpMask = 0;
+        simulation.step(jumpMask);
+        history.record(simulation, jumpMask);
+        if (recording != null) {
+            recordSpawns();
+        }
+        syncBirds();
+        evaluateGameFinish();
+    }
+
+    // Solo se anuncia lo que ya no puede cambiar un salto compensado: el estado de hace compensationTicks.
+    private void syncBirds() {
+        FlappySimulation confirmed = history.frame(Math.max(0L, simulation.getTick() - compensationTicks));
+        if (confirmed == null) {
+            return;
+        }
+        for (int i = 0; i < clients.size(); i++) {
+            ClientInfo client = clients.get(i);
+            int slot = client.slot();
+            int score = confirmed.getBirdScore(slot);
+            if (score != client.score) {
+                client.score = score;
+                roomDirty = true;
+            }
+            if (client.alive && !confirmed.isBirdAlive(slot)) {
+                client.alive = false;
+                client.eliminatedTick = confirmed.getEliminatedTick(slot);
+                if (recording != null) {
+                    recording.eliminated(client.eliminatedTick, slot, score);
+                }
+                broadcastReliable(outbound.eliminated(client.id));
+                roomDirty = true;
+            }
+        }
+    }
+
+    private void flushNetwork(long nowMs) {
+        boolean changed = roomDirty;
+        if (roomDirty) {
+            roomDirty = false;
+            recordRoomState();
+        }
+        broadcastRoomState(changed, nowMs);
+        broadcastSnapshot();
+        sendPings(nowMs);
+        server.flushQueues(clients);
+    }
+
+    private void sendPings(long nowMs) {
+        for (int i = 0; i < clients.size(); i++) {
+            ClientInfo client = clients.get(i);
+            if (nowMs - client.lastPingMs >= PING_INTERVAL_MS) {
+                client.lastPingMs = nowMs;
+                server.queue(outbound.ping(client.rtt.nextPing(), RttEstimator.nowMicros()), client);
+            }
+        }
+    }
+
+    private void broadcastSnapshot() {
+        if (roomState != RoomState.PLAYING || ticksUntilStart > 0L) {
+            return;
+        }
+        writeSnapshot();
+        for (int i = 0; i < clients.size(); i++) {
+            ClientInfo client = clients.get(i);
+            if (client.outbox.isBinary()) {
+                server.queue(outbound, client);
+            }
+        }
+    }
+
+    // Frame autocontenido para espectadores: sala completa y, en partida, el SNAPSHOT del tick actual.
+    // Sin deltas ni sobre fiable: perder uno no importa porque el siguiente lo sustituye entero.
+    boolean writeSpectatorFrame(ByteBuffer out) {
+        RoomStateHistory.Entry latest = roomHistory.latest();
+        if (latest == null) {
+            return false;
+        }
+        out.clear();
+        OnlineCodec.writeFrameHeader(out, true);
+        if (!OnlineCodec.encode(out, writeFullRoom(latest), true)) {
+            return false;
+        }
+        if (roomState == RoomState.PLAYING && ticksUntilStart == 0L) {
+            OnlineCodec.encode(out, writeSnapshot(), true);
+        }
+        out.flip();
+        return true;
+    }
+
+    private OnlineMessage writeSnapshot() {
+        outbound.snapshot(simulation.getTick(), tickRate);
+        for (ClientInfo client : clients) {
+            int slot = client.slot();
+            outbound.addSnapshotBird(client.id, simulation.getBirdY(slot), simulation.getBirdVelocity(slot),
+                client.alive, client.lastInputSequence);
+        }
+        for (int i = 0; i < simulation.getPipeCount(); i++) {
+            outbound.addSnapshotPipe(simulation.getPipeX(i), simulation.getPipeGapY(i));
+        }
+        return outbound;
+    }
+
+    void closeRoom() {
+        finishRecording(0, true);
+        broadcast(outbound.serverClosed());
+        server.flushQueues(clients);
+    }
+
+    private void handleJump(ClientInfo sender, long inputTick) {
+        if (roomState != RoomState.PLAYING || ticksUntilStart > 0L || !sender.alive) {
+            return;
+        }
+        int jumpBit = 1 << sender.slot();
+        long currentTick = simulation.getTick();
+        long earliestTick = currentTick - compensationWindow(sender) + 1L;
+        long appliedTick = currentTick + 1L;
+        if (inputTick > 0L && inputTick <= currentTick) {
+            long lateTick = Math.max(inputTick, earliestTick);
+            if (history.applyLate(simulation, lateTick, jumpBit) >= 0) {
+                appliedTick = lateTick;
+            }
+        }
+        if (appliedTick > currentTick) {
+            pendingJumpMask |= jumpBit;
+        }
+        if (recording != null) {
+            recording.jump(appliedTick, sender.slot());
+        }
+        outbound.jump(sender.id);
+        for (int i = 0; i < clients.size(); i++) {
+            ClientInfo client = clients.get(i);
+            if (!client.outbox.isBinary()) {
+                // Los clientes binarios ven el salto en el siguiente SNAPSHOT.
+                server.queue(outbound, client);
+            }
+        }
+    }
+
+    // Un salto legitimo llega, como mucho, un RTT acotado (SRTT + 4 * RTTVAR) mas un intervalo de envio
+    // despues de su tick. Compensar mas alla solo deja a un cliente con RTT bajo reescribir el pasado.
+    private int compensationWindow(ClientInfo client) {
+        if (!client.rtt.isReady()) {
+            return compensationTicks;
+        }
+        long boundMicros = client.rtt.getRttBoundMicros() + 1_000_000L / server.getSendRate();
+        long ticks = (boundMicros * tickRate + 999_999L) / 1_000_000L;
+        return (int) Math.min(compensationTicks, Math.max(1L, ticks));
+    }
+
+    private void startMatch() {
+        roomState = RoomState.PLAYING;
+        lastWinnerId = 0;
+        int courseSeed = random.nextInt() & Integer.MAX_VALUE;
+        course.reset(courseSeed, tickRate);
+        simulation.reset(START_Y);
+        history.clear();
+        history.record(simulation, 0);
+        pendingJumpMask = 0;
+        ticksUntilStart = millisToTicks(START_DELAY_MS);
+
+        for (ClientInfo client : clients) {
+            client.alive = true;
+            client.score = 0;
+            client.eliminatedTick = -1L;
+            client.lastInputSequence = 0;
+            client.ready = false;
+            client.rematchReady = false;
+        }
+
+        beginRecording(courseSeed);
+
+        broadcastReliable(outbound.startGame(START_X, START_Y, START_DELAY_MS, courseSeed, tickRate));
+        roomDirty = true;
+    }
+
+    private void beginRecording(int courseSeed) {
+        ReplayRecorder recorder = server.getReplayRecorder();
+        if (recorder == null) {
+            return;
+        }
+        if (recording != null) {
+            recorder.submit(recording);
+        }
+        recording = recorder.acquire();
+        if (recording == null) {
+            return;
+        }
+        recording.begin(roomId, courseSeed, tickRate, compensationTicks, START_X, START_Y, MAX_CLIENTS);
+        for (int slot = 0; slot < MAX_CLIENTS; slot++) {
+            ClientInfo client = findById(slot + 1);
+            recording.player(client != null ? client.id : 0, client != null ? client.name : "");
+        }
+        recordedSpawnIndex = course.getNextIndex();
+    }
+
+    // Los tubos salen de la semilla; se anotan igualmente para que el verificador compare el recorrido.
+    private void recordSpawns() {
+        while (recordedSpawnIndex < course.getNextIndex()) {
+            recording.spawn(simulation.getTick(), recordedSpawnIndex, course.gapCenterY(recordedSpawnIndex));
+            recordedSpawnIndex++;
+        }
+    }
+
+    private void recordLeave(ClientInfo client) {
+        if (recording != null && roomState == RoomState.PLAYING) {
+            recording.leave(simulation.getTick(), client.slot());
+        }
+    }
+
+    private void finishRecording(int winnerId, boolean aborted) {
+        if (recording == null) {
+            return;
+        }
+        for (int slot = 0; slot < MAX_CLIENTS; slot++) {
+            ClientInfo client = findById(slot + 1);
+            if (client == null) {
+                recording.result(slot, ReplayFormat.RESULT_ABSENT, 0, -1L);
+            } else {
+                recording.result(slot, client.alive ? ReplayFormat.RESULT_ALIVE : ReplayFormat.RESULT_ELIMINATED,
+                    client.score, client.eliminatedTick);
+            }
+        }
+        long tick = simulation.getTick();
+        recording.finish(tick, Math.max(0L, tick - compensationTicks), winnerId, aborted);
+        server.getReplayRecorder().submit(recording);
+        recording = null;
+    }
+
+    private void evaluateStartCondition() {
+        if (roomState != RoomState.WAITING) {
+            return;
+        }
+        if (clients.size() != MAX_CLIENTS) {
+            evaluateWaitingState();
+            return;
+        }
+        for (ClientInfo client : clients) {
+            if (!client.ready) {
+                return;
+            }
+        }
+        startMatch();
+    }
+
+    private void evaluateWaitingState() {
+        if (roomState == RoomState.PLAYING) {
+            return;
+        }
+        if (clients.size() < MAX_CLIENTS) {
+            roomState = RoomState.WAITING;
+        }
+    }
+
+    private void evaluateGameFinish() {
+        if (roomState != RoomState.PLAYING) {
+            return;
+        }
+        if (ticksUntilStart > 0L) {
+            return;
+        }
+
+        if (clients.isEmpty()) {
+            finishMatch(0);
+            return;
+        }
+
+        List<ClientInfo> alivePlayers = new ArrayList<>(MAX_CLIENTS);
+        List<ClientInfo> deadPlayers = new ArrayList<>(MAX_CLIENTS);
+        for (ClientInfo client : clients) {
+            if (client.alive) {
+                alivePlayers.add(client);
+            } else {
+                deadPlayers.add(client);
+            }
+        }
+
+        if (alivePlayers.size() > 1) {
+            return;
+        }
+
+        if (alivePlayers.size() == 1) {
+            finishMatch(alivePlayers.get(0).id);
+            return;
+        }
+
+        if (deadPlayers.size() < 2) {
+            finishMatch(0);
+            return;
+        }
+
+        ClientInfo first = deadPlayers.get(0);
+        ClientInfo second = deadPlayers.get(1);
+        long firstTick = first.eliminatedTick;
+        long secondTick = second.eliminatedTick;
+        if (firstTick == secondTick) {
+            finishMatch(0);
+            return;
+        }
+
+        int winnerId = firstTick < secondTick ? second.id : first.id;
+        finishMatch(winnerId);
+    }
+
+    private void finishMatch(int winnerId) {
+        roomState = RoomState.FINISHED;
+        lastWinnerId = winnerId;
+        ticksUntilStart = 0L;
+        for (ClientInfo client : clients) {
+            client.ready = false;
+            client.rematchReady = false;
+        }
+        finishRecording(winnerId, false);
+        broadcastReliable(outbound.fin(winnerId));
+        roomDirty = true;
+    }
+
+    private void evaluateRematchCondition() {
+        if (roomState != RoomState.FINISHED || clients.size() != MAX_CLIENTS) {
+            return;
+        }
+        for (ClientInfo client : clients) {
+            if (!client.rematchReady) {
+                return;
+            }
+        }
+        startMatch();
+    }
+
+    private long millisToTicks(long millis) {
+        return Math.max(1L, (millis * tickRate + 999L) / 1000L);
+    }
+
+    private void onRoomChangedAfterDisconnect() {
+        if (roomState == RoomState.PLAYING) {
+            if (clients.size() == 1) {
+                finishMatch(clients.get(0).id);
+                return;
+            }
+            if (clients.isEmpty()) {
+                finishMatch(0);
+                return;
+            }
+        }
+
+        if (clients.size() < MAX_CLIENTS) {
+            roomState = RoomState.WAITING;
+            ticksUntilStart = 0L;
+        }
+    }
+
+    private void recordRoomState() {
+        RoomStateHistory.Entry entry = roomHistory.beginRecord();
+        entry.roomState = roomState.protocolValue;
+        entry.winnerId = lastWinnerId;
+        for (ClientInfo client : clients) {
+            entry.addPlayer(client.id, client.name, client.ready, client.score, client.alive);
+        }
+        roomHistory.commitRecord(entry);
+    }
+
+    private void broadcastRoomState(boolean changed, long nowMs) {
+        RoomStateHistory.Entry latest = roomHistory.latest();
+        if (latest == null) {
+            return;
+        }
+        for (int i = 0; i < clients.size(); i++) {
+            ClientInfo client = clients.get(i);
+            if (!client.outbox.isBinary()) {
+                if (changed) {
+                    server.queue(writeFullRoom(latest), client);
+                }
+                continue;
+            }
+            if (client.ackedRoomVersion == latest.version) {
+                continue;
+            }
+            if (!changed && nowMs - client.lastRoomSentMs < ROOM_RESEND_MS) {
+                continue;
+            }
+            roomHistory.writeDelta(client.ackedRoomVersion, outbound);
+            server.queue(outbound, client);
+            client.lastRoomSentMs = nowMs;
+        }
+    }
+
+    private OnlineMessage writeFullRoom(RoomStateHistory.Entry entry) {
+        outbound.room(entry.roomState, entry.winnerId);
+        for (int i = 0; i < entry.count; i++) {
+            outbound.addRosterEntry(entry.ids[i], entry.names[i], entry.ready[i], entry.scores[i], entry.alive[i]);
+        }
+        return outbound;
+    }
+
+    private int nextAvailableId() {
+        boolean has1 = false;
+        boolean has2 = false;
+        for (ClientInfo client : clients) {
+            if (client.id == 1) {
+                has1 = true;
+            } else if (client.id == 2) {
+                has2 = true;
+            }
+        }
+        if (!has1) {
+            return 1;
+        }
+        if (!has2) {
+            return 2;
+        }
+        return -1;
+    }
+
+    private void broadcast(OnlineMessage message) {
+        server.queueToAll(message, clients);
+    }
+
+    private void broadcastReliable(OnlineMessage message) {
+        server.queueReliableToAll(message, clients);
+    }
+
+    private enum RoomState {
+        WAITING(OnlineProtocol.ROOM_WAITING),
+        PLAYING(OnlineProtocol.ROOM_PLAYING),
+        FINISHED(OnlineProtocol.ROOM_FINISHED);
+
+        private final String protocolValue;
+
+        RoomState(String protocolValue) {
+            this.protocolValue = protocolValue;
+        }
+    }
+
+    static final class ClientInfo {
+        private final int id;
+        private String name;
+        final OnlineRoom room;
+        final InetSocketAddress address;
+        int session;
+        long lastSeenMs;
+        final OutboundQueue outbox;
+        final ReliableChannel reliable;
+        final RttEstimator rtt;
+        private long lastPingMs;
+        private int ackedRoomVersion;
+        private long lastRoomSentMs;
+        private int lastInputSequence;
+
+        private boolean alive;
+        private boolean ready;
+        private boolean rematchReady;
+        private int score;
+        private long eliminatedTick;
+
+        private ClientInfo(OnlineRoom room, int id, String name, InetSocketAddress address, boolean binaryWire,
+                           int channelEpoch) {
+            this.room = room;
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.session = -1;
+            this.outbox = new OutboundQueue(binaryWire);
+            this.rtt = new RttEstimator();
+            this.reliable = new ReliableChannel(channelEpoch, rtt);
+            this.lastSeenMs = System.currentTimeMillis();
+            this.alive = true;
+            this.ready = false;
+            this.rematchReady = false;
+            this.score = 0;
+            this.eliminatedTick = -1L;
+        }
+
+        int getId() {
+            return id;
+        }
+
+        private int slot() {
+            return id - 1;
+        }
+    }
+}
@@ -1,97 +1,189 @@
 package com.flappyboldo.game.online.net;
 
+import com.flappyboldo.game.replay.ReplayRecorder;
+
+import java.io.File;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Random;
-import java.util.StringJoiner;
+import java.util.Map;
 
 public class OnlineServer extends Thread {
-    private static final int MAX_CLIENTS = 2;
-    private static final int RECEIVE_BUFFER_SIZE = 1024;
-    private static final int SOCKET_TIMEOUT_MS = 16;
-    private static final long CLIENT_TIMEOUT_MS = 1800L;
-    private static final long SPAWN_MIN_MS = 1100L;
-    private static final long SPAWN_MAX_MS = 2200L;
-    private static final long START_DELAY_MS = 1200L;
-    private static final float FIXED_STEP_SECONDS = 1f / 120f;
-    private static final float MAX_FRAME_DELTA_SECONDS = 0.25f;
-
-    private static final float WORLD_HEIGHT = 200f;
-    private static final float WORLD_WIDTH = 100f;
-    private static final float GROUND_HEIGHT = 0.15f * WORLD_HEIGHT;
-    private static final float PIPE_WIDTH = WORLD_WIDTH / 6f;
-    private static final float PIPE_GAP_HEIGHT = WORLD_HEIGHT / 3f;
-    private static final float PIPE_SPEED = 50f;
-    private static final float BIRD_WIDTH = 0.15f * WORLD_WIDTH;
-    private static final float BIRD_HEIGHT = WORLD_HEIGHT / 17f;
-    private static final float GRAVITY = 400f;
-    private static final float JUMP_FORCE = 130f;
-
-    private static final float GAP_MIN_CENTER = WORLD_HEIGHT * 0.30f;
-    private static final float GAP_MAX_CENTER = WORLD_HEIGHT * 0.70f;
-    private static final float START_X = 24f;
-    private static final float START_Y = 100f;
-
-    private final DatagramSocket socket;
+    public static final int DEFAULT_LAG_COMPENSATION_MS = 150;
+    public static final int MAX_LAG_COMPENSATION_MS = 1000;
+    public static final int DEFAULT_SPECTATOR_RATE = 10;
+
+    private static final int MAX_ROOMS = 512;
+    private static final int RECEIVE_BUFFER_SIZE = 1500;
+    private static final int SEND_BUFFER_SIZE = 1500;
+    private static final int UDP_IP_HEADER_BYTES = 28;
+    private static final int WIRE_HEADER_BYTES = 2;
+    private static final int MAX_SPECTATORS_PER_ROOM = 256;
+    private static final int MAX_SPECTATORS = 8192;
+    private static final long SPECTATOR_TIMEOUT_MS = 3000L;
+    private static final int SPECTATOR_SWEEP_BUDGET = 32;
+    private static final int SOCKET_SEND_BUFFER_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_QUEUED = 65536;
+
+    private final DatagramChannel channel;
+    private final Selector selector;
     private final int port;
-    private final Random random;
-
-    private final List<ClientInfo> clients;
-    private final List<PipeState> pipes;
+    private final ByteBuffer receiveBuffer;
+    private final ByteBuffer sendBuffer;
+    private final ByteBuffer binaryMessageBuffer;
+    private final ByteBuffer textMessageBuffer;
+    private final OnlineMessage inboundMessage;
+    private final OnlineMessage orderedMessage;
+    private final OnlineMessage replyMessage;
+    private final ServerTickScheduler scheduler;
+    private final int lagCompensationMs;
+    private final int spectatorRate;
+    private final int spectatorIntervalTicks;
+
+    private final Map<Integer, OnlineRoom> rooms;
+    private final ClientIndex clientIndex;
+    private final ServerMetrics metrics;
+    private final SpectatorRegistry spectators;
+    private final SpectatorFanout spectatorFanout;
+    private final Matchmaker matchmaker;
+
+    private volatile ServerSnapshot publishedSnapshot;
+    private ReplayRecorder replayRecorder;
+    private int nextMatchRoomId;
+    private int channelEpoch;
 
     private volatile boolean running;
-    private long nextSpawnAtMs;
-    private long lastSimulationTickMs;
-    private long matchStartsAtMs;
-    private float simulationAccumulatorSeconds;
-    private long simulationTick;
-    private RoomState roomState;
-    private int lastWinnerId;
-
-    public OnlineServer(int port) throws SocketException {
+    private volatile long coalescedDatagrams;
+    private volatile long coalescedMessages;
+    private volatile long coalescedBytes;
+    private volatile long coalescingBytesSaved;
+
+    public OnlineServer(int port) throws IOException {
+        this(port, ServerTickScheduler.DEFAULT_TICK_RATE, ServerTickScheduler.DEFAULT_SEND_RATE);
+    }
+
+    public OnlineServer(int port, int tickRate, int sendRate) throws IOException {
+        this(port, tickRate, sendRate, DEFAULT_LAG_COMPENSATION_MS);
+    }
+
+    public OnlineServer(int port, int tickRate, int sendRate, int lagCompensationMs) throws IOException {
+        this(port, tickRate, sendRate, lagCompensationMs, Math.min(DEFAULT_SPECTATOR_RATE, sendRate));
+    }
+
+    public OnlineServer(int port, int tickRate, int sendRate, int lagCompensationMs, int spectatorRate)
+        throws IOException {
+        if (spectatorRate < 1 || spectatorRate > sendRate) {
+            throw new IllegalArgumentException("Spectator rate must be between 1 and the send rate");
+        }
+        if (lagCompensationMs < 0 || lagCompensationMs > MAX_LAG_COMPENSATION_MS) {
+            throw new IllegalArgumentException("Lag compensation must be between 0 and " + MAX_LAG_COMPENSATION_MS + " ms");
+        }
         this.port = port;
-        this.socket = new DatagramSocket(port);
-        this.socket.setSoTimeout(SOCKET_TIMEOUT_MS);
-        this.random = new Random();
-        this.clients = new ArrayList<>(MAX_CLIENTS);
-        this.pipes = new ArrayList<>();
+        this.scheduler = new ServerTickScheduler(tickRate, sendRate);
+        this.lagCompensationMs = lagCompensationMs;
+        this.spectatorRate = spectatorRate;
+        this.spectatorIntervalTicks = Math.max(1, Math.round(tickRate / (float) spectatorRate));
+        this.channel = DatagramChannel.open();
+        this.channel.configureBlocking(false);
+        this.channel.bind(new InetSocketAddress(port));
+        // El sistema puede recortar el tamano pedido: el presupuesto de espectadores parte del efectivo.
+        this.channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_SEND_BUFFER_BYTES);
+        int sendBufferBytes = this.channel.getOption(StandardSocketOptions.SO_SNDBUF);
+        this.selector = Selector.open();
+        this.channel.register(selector, SelectionKey.OP_READ);
+        this.receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        this.sendBuffer = ByteBuffer.allocateDirect(SEND_BUFFER_SIZE);
+        this.binaryMessageBuffer = ByteBuffer.allocateDirect(OutboundQueue.MAX_DATAGRAM_SIZE);
+        this.textMessageBuffer = ByteBuffer.allocateDirect(OutboundQueue.MAX_DATAGRAM_SIZE);
+        this.inboundMessage = new OnlineMessage();
+        this.orderedMessage = new OnlineMessage();
+        this.replyMessage = new OnlineMessage();
+        this.rooms = new LinkedHashMap<>();
+        this.clientIndex = new ClientIndex();
+        this.metrics = new ServerMetrics();
+        this.spectators = new SpectatorRegistry(MAX_SPECTATORS_PER_ROOM, MAX_SPECTATORS);
+        this.spectatorFanout = new SpectatorFanout(channel, metrics,
+            Math.max(OutboundQueue.MAX_DATAGRAM_SIZE, sendBufferBytes / 2));
+        this.matchmaker = new Matchmaker(this, metrics, MAX_QUEUED);
+        this.nextMatchRoomId = OnlineProtocol.FIRST_MATCH_ROOM_ID;
+        // Arranca en un valor distinto cada vez para que un cliente de un servidor anterior no coincida.
+        this.channelEpoch = (int) System.nanoTime();
+        this.publishedSnapshot = new ServerSnapshot(Collections.<RoomSnapshot>emptyList(), 0L);
         this.running = true;
-        this.roomState = RoomState.WAITING;
-        this.lastWinnerId = 0;
-        this.lastSimulationTickMs = System.currentTimeMillis();
-        this.matchStartsAtMs = 0L;
-        this.simulationAccumulatorSeconds = 0f;
-        this.simulationTick = 0L;
     }
 
     @Override
     public void run() {
-        byte[] buffer = new byte[RECEIVE_BUFFER_SIZE];
-        while (running) {
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-            try {
-                socket.receive(packet);
-                handlePacket(packet);
-            } catch (SocketTimeoutException ignored) {
-                // Tick de servidor.
-            } catch (IOException e) {
-                if (running) {
-                    System.out.println("Online server error: " + e.getMessage());
+        scheduler.start(System.nanoTime());
+        spectatorFanout.start();
+        try {
+            while (running) {
+                try {
+                    waitForPacketsOrTick();
+                    drainPackets();
+                } catch (IOException e) {
+                    if (running) {
+                        System.out.println("Online server error: " + e.getMessage());
+                    }
                 }
+
+                runDueTicks();
             }
+        } finally {
+            closeQuietly();
+        }
+    }
 
-            long now = System.currentTimeMillis();
-            tickTimeouts(now);
-            tickMatch(now);
+    private void runDueTicks() {
+        long now = System.nanoTime();
+        int dueTicks = scheduler.dueTicks(now);
+        if (dueTicks > 0) {
+            metrics.recordTickLag(scheduler.getLastLateNanos());
+        }
+        for (int i = 0; i < dueTicks && running; i++) {
+            long tickStart = System.nanoTime();
+            boolean sendTick = scheduler.beginTick();
+            tickRooms(System.currentTimeMillis(), sendTick);
+            long tickEnd = System.nanoTime();
+            scheduler.endTick(tickStart, tickEnd);
+            metrics.recordTick(tickEnd - tickStart);
+        }
+        scheduler.reportOverruns(now);
+    }
+
+    private void waitForPacketsOrTick() throws IOException {
+        long waitNanos = scheduler.nanosUntilNextTick(System.nanoTime());
+        long waitMs = waitNanos / 1_000_000L;
+        if (waitMs >= 1L) {
+            selector.select(waitMs);
+        } else {
+            selector.selectNow();
+        }
+        selector.selectedKeys().clear();
+    }
+
+    private void drainPackets() throws IOException {
+        while (running) {
+            receiveBuffer.clear();
+            SocketAddress sender = channel.receive(receiveBuffer);
+            if (sender == null) {
+                return;
+            }
+            receiveBuffer.flip();
+            int bytes = receiveBuffer.remaining();
+            long start = System.nanoTime();
+            handlePacket(receiveBuffer, (InetSocketAddress) sender);
+            metrics.recordPacketIn(bytes, System.nanoTime() - start);
         }
     }
 
@@ -100,485 +192,545 @@ public class OnlineServer extends Thread {
             return;
         }
         running = false;
-        broadcast(OnlineProtocol.SERVER_CLOSED);
-        socket.close();
-        interrupt();
+        for (OnlineRoom room : rooms.values()) {
+            room.closeRoom();
+        }
+        if (replayRecorder != null) {
+            replayRecorder.close();
+        }
+        selector.wakeup();
     }
 
-    public int getPort() {
-        return port;
+    private void closeQuietly() {
+        spectatorFanout.close();
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // Cierre best effort.
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Cierre best effort.
+        }
     }
 
-    public synchronized ServerSnapshot getSnapshot() {
-        List<PlayerSnapshot> players = new ArrayList<>();
-        for (ClientInfo client : clients) {
-            players.add(new PlayerSnapshot(client.id, client.name, client.ready, client.alive, client.score));
+    // Debe llamarse antes de start(): las salas leen el grabador desde el hilo del servidor.
+    public void enableReplayRecording(File directory, long maxFileBytes) throws IOException {
+        if (isAlive()) {
+            throw new IllegalStateException("Replay recording must be enabled before the server starts");
         }
-        return new ServerSnapshot(roomState.protocolValue, lastWinnerId, players);
+        ReplayRecorder recorder = new ReplayRecorder(directory, maxFileBytes);
+        recorder.start();
+        replayRecorder = recorder;
     }
 
-    private synchronized void handlePacket(DatagramPacket packet) {
-        String raw = new String(packet.getData(), 0, packet.getLength()).trim();
-        if (raw.isEmpty()) {
-            return;
-        }
+    public ReplayRecorder getReplayRecorder() {
+        return replayRecorder;
+    }
 
-        String[] parts = raw.split(":", 3);
-        String command = parts[0];
-        ClientInfo sender = findByAddress(packet.getAddress(), packet.getPort());
-        if (sender != null) {
-            sender.lastSeenMs = System.currentTimeMillis();
-        }
+    public int getPort() {
+        return port;
+    }
 
-        if (OnlineProtocol.HELLO.equals(command)) {
-            String playerName = parts.length > 1 ? sanitizeName(parts[1]) : "Player";
-            handleHello(packet.getAddress(), packet.getPort(), playerName);
-            return;
-        }
+    public int getTickRate() {
+        return scheduler.getTickRate();
+    }
 
-        if (OnlineProtocol.PING.equals(command)) {
-            send(OnlineProtocol.PONG, packet.getAddress(), packet.getPort());
-            return;
-        }
+    public int getSendRate() {
+        return scheduler.getSendRate();
+    }
 
-        if (sender == null) {
-            send(OnlineProtocol.ERROR + ":" + OnlineProtocol.ERROR_INVALID_MSG,
-                packet.getAddress(), packet.getPort());
-            return;
-        }
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
 
-        if (OnlineProtocol.JUMP.equals(command)) {
-            handleJump(sender);
-            return;
-        }
+    public int getLagCompensationMs() {
+        return lagCompensationMs;
+    }
 
-        if (OnlineProtocol.READY.equals(command)) {
-            boolean ready = parts.length < 2 || "1".equals(parts[1]) || "true".equalsIgnoreCase(parts[1]);
-            sender.ready = ready;
-            broadcastRoomState();
-            evaluateStartCondition();
-            return;
-        }
+    public int getSpectatorRate() {
+        return spectatorRate;
+    }
 
-        if (OnlineProtocol.REMATCH.equals(command)) {
-            if (roomState != RoomState.FINISHED) {
-                return;
-            }
-            sender.rematchReady = true;
-            broadcastRoomState();
-            evaluateRematchCondition();
-            return;
-        }
+    public long getSpectatorFramesSent() {
+        return spectatorFanout.getFramesSent();
+    }
 
-        if (OnlineProtocol.LEAVE.equals(command)) {
-            removeClient(sender.id, true);
-        }
+    public long getSpectatorDatagramsSent() {
+        return spectatorFanout.getDatagramsSent();
     }
 
-    private void handleHello(InetAddress address, int port, String playerName) {
-        ClientInfo existing = findByAddress(address, port);
-        if (existing != null) {
-            existing.name = playerName;
-            existing.lastSeenMs = System.currentTimeMillis();
-            send(OnlineProtocol.WELCOME + ":" + existing.id, existing.address, existing.port);
-            broadcastRoomState();
-            return;
-        }
+    public long getSpectatorFramesDropped() {
+        return spectatorFanout.getFramesDropped();
+    }
 
-        if (clients.size() >= MAX_CLIENTS) {
-            send(OnlineProtocol.ERROR + ":" + OnlineProtocol.ERROR_SERVER_FULL, address, port);
-            return;
-        }
+    public long getTickOverrunCount() {
+        return scheduler.getOverrunCount();
+    }
 
-        int assignedId = nextAvailableId();
-        if (assignedId == -1) {
-            send(OnlineProtocol.ERROR + ":" + OnlineProtocol.ERROR_SERVER_FULL, address, port);
-            return;
-        }
+    public long getCoalescedDatagramCount() {
+        return coalescedDatagrams;
+    }
 
-        ClientInfo client = new ClientInfo(assignedId, playerName, address, port);
-        clients.add(client);
-        send(OnlineProtocol.WELCOME + ":" + assignedId, address, port);
-        evaluateWaitingState();
-        broadcastRoomState();
+    public long getCoalescedMessageCount() {
+        return coalescedMessages;
     }
 
-    private void handleJump(ClientInfo sender) {
-        if (roomState != RoomState.PLAYING || System.currentTimeMillis() < matchStartsAtMs || !sender.alive) {
-            return;
-        }
-        sender.velocity = JUMP_FORCE;
-        broadcast(OnlineProtocol.JUMP + ":" + sender.id);
+    public long getCoalescedByteCount() {
+        return coalescedBytes;
     }
 
-    private void startMatch() {
-        roomState = RoomState.PLAYING;
-        lastWinnerId = 0;
-        pipes.clear();
-        long now = System.currentTimeMillis();
-        matchStartsAtMs = now + START_DELAY_MS;
-        lastSimulationTickMs = now;
-        simulationAccumulatorSeconds = 0f;
-        simulationTick = 0L;
-        scheduleNextSpawn(matchStartsAtMs);
+    public long getCoalescingBytesSaved() {
+        return coalescingBytesSaved;
+    }
 
-        for (ClientInfo client : clients) {
-            client.alive = true;
-            client.score = 0;
-            client.y = START_Y;
-            client.velocity = 0f;
-            client.eliminatedTick = -1L;
-            client.ready = false;
-            client.rematchReady = false;
-        }
+    public double getMessagesPerDatagram() {
+        long datagrams = coalescedDatagrams;
+        return datagrams == 0L ? 0.0 : coalescedMessages / (double) datagrams;
+    }
 
-        String startMsg = String.format(Locale.US, "%s:%.2f:%.2f:%d",
-            OnlineProtocol.START_GAME, START_X, START_Y, START_DELAY_MS);
-        broadcast(startMsg);
-        broadcastRoomState();
+    // Lo publica el hilo de simulacion; leerlo nunca bloquea el bucle de ticks.
+    public ServerSnapshot getSnapshot() {
+        return publishedSnapshot;
     }
 
-    private void evaluateStartCondition() {
-        if (roomState != RoomState.WAITING) {
+    private synchronized void handlePacket(ByteBuffer data, InetSocketAddress address) {
+        int format = OnlineCodec.readFrameHeader(data);
+        if (format == OnlineCodec.FORMAT_INVALID) {
             return;
         }
-        if (clients.size() != MAX_CLIENTS) {
-            evaluateWaitingState();
+        if (format == OnlineCodec.FORMAT_UNSUPPORTED) {
+            send(replyMessage.error(OnlineProtocol.ERROR_UNSUPPORTED_VERSION), address, false);
             return;
         }
-        for (ClientInfo client : clients) {
-            if (!client.ready) {
-                return;
+
+        boolean binary = format == OnlineCodec.FORMAT_BINARY;
+        boolean decodedAny = false;
+        int messageStart = data.position();
+        while (OnlineCodec.decode(data, format, inboundMessage)) {
+            decodedAny = true;
+            int messageEnd = data.position();
+            if (inboundMessage.reliableSequence > 0) {
+                handleReliable(inboundMessage, data, messageStart, messageEnd, address, binary);
+            } else {
+                handleMessage(inboundMessage, address, binary);
             }
+            messageStart = messageEnd;
+        }
+        if (!decodedAny && clientIndex.find(address) == null) {
+            send(replyMessage.error(OnlineProtocol.ERROR_INVALID_MSG), address, binary);
         }
-        startMatch();
     }
 
-    private void evaluateWaitingState() {
-        if (roomState == RoomState.PLAYING) {
+    private void handleReliable(OnlineMessage message, ByteBuffer data, int from, int to, InetSocketAddress address,
+                                boolean binary) {
+        OnlineRoom.ClientInfo sender = clientIndex.find(address);
+        if (sender == null) {
+            handleMessage(message, address, binary);
             return;
         }
-        if (clients.size() < MAX_CLIENTS) {
-            roomState = RoomState.WAITING;
+        if (sender.reliable.accept(message.reliableSequence, data, from, to) != ReliableChannel.DELIVER) {
+            return;
+        }
+        handleMessage(message, address, binary);
+        ByteBuffer ordered;
+        while (clientIndex.get(sender.session) == sender && (ordered = sender.reliable.pollOrdered()) != null) {
+            if (OnlineCodec.decode(ordered, OnlineCodec.FORMAT_BINARY, orderedMessage)) {
+                handleMessage(orderedMessage, address, binary);
+            }
         }
     }
 
-    private void tickTimeouts(long nowMs) {
-        synchronized (this) {
-            Iterator<ClientInfo> iterator = clients.iterator();
-            boolean changed = false;
+    private void handleMessage(OnlineMessage message, InetSocketAddress address, boolean binary) {
+        metrics.countInbound(message.opcode);
+        OnlineRoom.ClientInfo sender = clientIndex.find(address);
+        OnlineRoom room = sender != null ? sender.room : null;
+        if (sender != null) {
+            sender.lastSeenMs = System.currentTimeMillis();
+        }
 
-            while (iterator.hasNext()) {
-                ClientInfo client = iterator.next();
-                if (nowMs - client.lastSeenMs >= CLIENT_TIMEOUT_MS) {
-                    iterator.remove();
-                    broadcast(OnlineProtocol.CLIENT_LEFT + ":" + client.id);
-                    changed = true;
-                }
+        if (message.opcode == OnlineProtocol.OP_HELLO) {
+            spectators.leave(address);
+            matchmaker.cancel(address);
+            String playerName = sanitizeName(message.name);
+            int roomId = sanitizeRoomId(message.roomId);
+            if (roomId > OnlineProtocol.MAX_MANUAL_ROOM_ID) {
+                send(replyMessage.error(OnlineProtocol.ERROR_INVALID_MSG), address, binary);
+                return;
             }
+            handleHello(address, playerName, roomId, binary, room, sender);
+            return;
+        }
 
-            if (changed) {
-                onRoomChangedAfterDisconnect();
-                broadcastRoomState();
-            }
+        if (message.opcode == OnlineProtocol.OP_QUEUE) {
+            handleQueue(address, sanitizeName(message.name), binary, sender);
+            return;
         }
-    }
 
-    private void tickMatch(long nowMs) {
-        synchronized (this) {
-            if (roomState != RoomState.PLAYING) {
-                return;
-            }
-            if (nowMs < matchStartsAtMs) {
-                lastSimulationTickMs = nowMs;
-                return;
-            }
-            float frameDelta = (nowMs - lastSimulationTickMs) / 1000f;
-            if (frameDelta <= 0f) {
+        if (message.opcode == OnlineProtocol.OP_SPECTATE) {
+            matchmaker.cancel(address);
+            int roomId = sanitizeRoomId(message.roomId);
+            // Una sala del emparejamiento solo se puede mirar mientras existe.
+            if (roomId > OnlineProtocol.MAX_MANUAL_ROOM_ID && !rooms.containsKey(roomId)) {
+                send(replyMessage.error(OnlineProtocol.ERROR_INVALID_MSG), address, true);
                 return;
             }
-            if (frameDelta > MAX_FRAME_DELTA_SECONDS) {
-                frameDelta = MAX_FRAME_DELTA_SECONDS;
-            }
-            lastSimulationTickMs = nowMs;
-            simulationAccumulatorSeconds += frameDelta;
-
-            boolean roomChanged = false;
-            if (nowMs >= nextSpawnAtMs) {
-                float gapY = randomFloat(GAP_MIN_CENTER, GAP_MAX_CENTER);
-                pipes.add(new PipeState(WORLD_WIDTH, gapY));
-                broadcast(OnlineProtocol.SPAWN + ":" + String.format(Locale.US, "%.2f", gapY));
-                scheduleNextSpawn(nowMs);
-                roomChanged = true;
-            }
+            handleSpectate(address, roomId, sender);
+            return;
+        }
 
-            while (simulationAccumulatorSeconds >= FIXED_STEP_SECONDS && roomState == RoomState.PLAYING) {
-                simulationAccumulatorSeconds -= FIXED_STEP_SECONDS;
-                simulationTick++;
-                if (simulateStep(FIXED_STEP_SECONDS, simulationTick)) {
-                    roomChanged = true;
+        if (message.opcode == OnlineProtocol.OP_PING) {
+            send(replyMessage.pong(message.pingSequence, message.pingTimestamp), address, binary);
+            return;
+        }
+
+        if (sender == null) {
+            if (spectators.touch(address, System.currentTimeMillis())) {
+                // Los espectadores son de solo lectura: se ignora todo salvo LEAVE.
+                if (message.opcode == OnlineProtocol.OP_LEAVE) {
+                    spectators.leave(address);
                 }
+                return;
             }
-
-            if (roomChanged) {
-                broadcastRoomState();
+            if (matchmaker.touch(address, System.currentTimeMillis())) {
+                if (message.opcode == OnlineProtocol.OP_PONG) {
+                    matchmaker.onPong(address, message.pingSequence, message.pingTimestamp, RttEstimator.nowMicros());
+                } else if (message.opcode == OnlineProtocol.OP_LEAVE) {
+                    matchmaker.cancel(address);
+                }
+                return;
             }
+            send(replyMessage.error(OnlineProtocol.ERROR_INVALID_MSG), address, binary);
+            return;
         }
-    }
 
-    private boolean simulateStep(float deltaSeconds, long tickId) {
-        boolean roomChanged = false;
+        room.handleCommand(sender, message);
+    }
 
-        for (ClientInfo client : clients) {
-            if (!client.alive) {
-                continue;
-            }
-            client.velocity -= GRAVITY * deltaSeconds;
-            client.y += client.velocity * deltaSeconds;
-            if (client.y > WORLD_HEIGHT - BIRD_HEIGHT) {
-                client.y = WORLD_HEIGHT - BIRD_HEIGHT;
-                client.velocity = 0f;
-            }
+    private void handleHello(InetSocketAddress address, String playerName, int roomId, boolean binary,
+                             OnlineRoom currentRoom, OnlineRoom.ClientInfo sender) {
+        if (currentRoom != null && currentRoom.getRoomId() != roomId && sender != null) {
+            currentRoom.removeClient(sender.getId(), true);
         }
 
-        for (int i = pipes.size() - 1; i >= 0; i--) {
-            PipeState pipe = pipes.get(i);
-            pipe.x -= PIPE_SPEED * deltaSeconds;
-            if (pipe.x + PIPE_WIDTH < 0f) {
-                pipes.remove(i);
+        OnlineRoom room = rooms.get(roomId);
+        if (room == null) {
+            if (rooms.size() >= MAX_ROOMS) {
+                send(replyMessage.error(OnlineProtocol.ERROR_SERVER_FULL), address, binary);
+                return;
             }
+            room = new OnlineRoom(this, roomId, scheduler.getTickRate(), lagCompensationMs);
+            rooms.put(roomId, room);
         }
 
-        for (ClientInfo client : clients) {
-            if (!client.alive) {
-                continue;
-            }
-            if (client.y <= GROUND_HEIGHT) {
-                eliminate(client.id, tickId);
-                roomChanged = true;
-                continue;
-            }
-
-            for (PipeState pipe : pipes) {
-                if (!pipe.scoreCounted[client.id] && pipe.x + PIPE_WIDTH < START_X) {
-                    pipe.scoreCounted[client.id] = true;
-                    client.score++;
-                    roomChanged = true;
-                }
-
-                if (START_X + BIRD_WIDTH >= pipe.x && START_X <= pipe.x + PIPE_WIDTH) {
-                    float gapBottom = pipe.gapCenterY - PIPE_GAP_HEIGHT / 2f;
-                    float gapTop = gapBottom + PIPE_GAP_HEIGHT;
-                    if (client.y < gapBottom || client.y + BIRD_HEIGHT > gapTop) {
-                        eliminate(client.id, tickId);
-                        roomChanged = true;
-                        break;
-                    }
-                }
-            }
+        room.handleHello(address, playerName, binary, sender);
+        if (room.isEmpty()) {
+            rooms.remove(roomId);
         }
-
-        evaluateGameFinish();
-        return roomChanged;
     }
 
-    private void eliminate(int playerId, long tickId) {
-        ClientInfo client = findById(playerId);
-        if (client == null || !client.alive) {
+    // SPECTATE solo llega por el formato binario (el de texto no lo decodifica) y se repite como keepalive.
+    private void handleSpectate(InetSocketAddress address, int roomId, OnlineRoom.ClientInfo sender) {
+        if (sender != null) {
+            sender.room.removeClient(sender.getId(), true);
+        }
+        if (spectators.join(address, roomId, System.currentTimeMillis()) == SpectatorRegistry.FULL) {
+            send(replyMessage.error(OnlineProtocol.ERROR_SERVER_FULL), address, true);
             return;
         }
-        client.alive = false;
-        client.velocity = 0f;
-        client.eliminatedTick = tickId;
-        broadcast(OnlineProtocol.ELIMINATED + ":" + playerId);
+        send(replyMessage.welcome(0), address, true);
     }
 
-    private void evaluateGameFinish() {
-        if (roomState != RoomState.PLAYING) {
+    // El cliente repite QUEUE hasta ver el WELCOME de su sala: si ya la tiene, se le vuelve a dar la bienvenida.
+    private void handleQueue(InetSocketAddress address, String playerName, boolean binary,
+                             OnlineRoom.ClientInfo sender) {
+        if (sender != null) {
+            sender.room.handleHello(address, playerName, binary, sender);
             return;
         }
-        if (System.currentTimeMillis() < matchStartsAtMs) {
-            return;
+        spectators.leave(address);
+        if (matchmaker.enqueue(address, playerName, binary, System.nanoTime(), System.currentTimeMillis())
+            == Matchmaker.FULL) {
+            send(replyMessage.error(OnlineProtocol.ERROR_SERVER_FULL), address, binary);
         }
+    }
 
-        if (clients.isEmpty()) {
-            finishMatch(0);
-            return;
+    // Cada ClientInfo nuevo abre una epoca de canal fiable; 0 queda para "sin sesion".
+    int nextChannelEpoch() {
+        channelEpoch++;
+        if (channelEpoch == 0) {
+            channelEpoch++;
         }
+        return channelEpoch;
+    }
 
-        List<ClientInfo> alivePlayers = new ArrayList<>(MAX_CLIENTS);
-        List<ClientInfo> deadPlayers = new ArrayList<>(MAX_CLIENTS);
-        for (ClientInfo client : clients) {
-            if (client.alive) {
-                alivePlayers.add(client);
-            } else {
-                deadPlayers.add(client);
-            }
+    // Sala nueva para una pareja de la cola; false si no caben mas salas (la pareja sigue esperando).
+    boolean openMatchRoom(InetSocketAddress firstAddress, String firstName, boolean firstBinary,
+                          InetSocketAddress secondAddress, String secondName, boolean secondBinary) {
+        if (rooms.size() >= MAX_ROOMS) {
+            return false;
         }
+        while (rooms.containsKey(nextMatchRoomId)) {
+            nextMatchRoomId = nextMatchRoomId >= OnlineProtocol.MAX_ROOM_ID ? OnlineProtocol.FIRST_MATCH_ROOM_ID
+                : nextMatchRoomId + 1;
+        }
+        int roomId = nextMatchRoomId;
+        OnlineRoom room = new OnlineRoom(this, roomId, scheduler.getTickRate(), lagCompensationMs);
+        rooms.put(roomId, room);
+        room.handleHello(firstAddress, firstName, firstBinary, null);
+        room.handleHello(secondAddress, secondName, secondBinary, null);
+        return true;
+    }
 
-        if (alivePlayers.size() > 1) {
-            return;
+    private synchronized void tickRooms(long nowMs, boolean sendTick) {
+        boolean spectatorTick = spectators.size() > 0 && scheduler.getTickCount() % spectatorIntervalTicks == 0L;
+        if (spectatorTick) {
+            spectatorFanout.beginTick();
         }
+        Iterator<OnlineRoom> iterator = rooms.values().iterator();
+        while (iterator.hasNext()) {
+            OnlineRoom room = iterator.next();
+            room.tick(nowMs, sendTick);
+            if (room.isEmpty()) {
+                iterator.remove();
+            } else if (spectatorTick) {
+                publishToSpectators(room);
+            }
+        }
+        spectators.sweep(nowMs, SPECTATOR_TIMEOUT_MS, SPECTATOR_SWEEP_BUDGET);
+        // Despues de recorrer las salas: emparejar crea salas nuevas en el mapa.
+        matchmaker.tick(System.nanoTime(), nowMs);
+        if (sendTick) {
+            publishSnapshot();
+            updateGauges();
+        }
+    }
 
-        if (alivePlayers.size() == 1) {
-            finishMatch(alivePlayers.get(0).id);
+    // Coste fijo por sala mirada: se codifica un frame y se entrega con el array de destinos de la sala,
+    // sin recorrerlo. El envio a cada espectador lo hace el hilo de reparto.
+    private void publishToSpectators(OnlineRoom room) {
+        InetSocketAddress[] recipients = spectators.recipients(room.getRoomId());
+        if (recipients == null) {
             return;
         }
-
-        if (deadPlayers.size() < 2) {
-            finishMatch(0);
+        SpectatorFanout.Frame frame = spectatorFanout.acquire();
+        if (frame == null) {
             return;
         }
-
-        ClientInfo first = deadPlayers.get(0);
-        ClientInfo second = deadPlayers.get(1);
-        if (first.eliminatedTick == second.eliminatedTick) {
-            finishMatch(0);
+        if (!room.writeSpectatorFrame(frame.data)) {
+            spectatorFanout.release(frame);
             return;
         }
-
-        int winnerId = first.eliminatedTick < second.eliminatedTick ? second.id : first.id;
-        finishMatch(winnerId);
+        spectatorFanout.submit(frame, recipients);
     }
 
-    private void finishMatch(int winnerId) {
-        roomState = RoomState.FINISHED;
-        lastWinnerId = winnerId;
-        matchStartsAtMs = 0L;
-        simulationAccumulatorSeconds = 0f;
-        for (ClientInfo client : clients) {
-            client.ready = false;
-            client.rematchReady = false;
+    private void updateGauges() {
+        int players = 0;
+        int pipes = 0;
+        for (OnlineRoom room : rooms.values()) {
+            players += room.getClientCount();
+            pipes += room.getPipeCount();
         }
-        broadcast(OnlineProtocol.FIN + ":" + winnerId);
-        broadcastRoomState();
+        metrics.setGauges(rooms.size(), players, pipes, spectators.size(), matchmaker.size());
     }
 
-    private void evaluateRematchCondition() {
-        if (roomState != RoomState.FINISHED || clients.size() != MAX_CLIENTS) {
+    // El estado de sala solo cambia de version en los ticks de envio, asi que basta publicar ahi.
+    private void publishSnapshot() {
+        List<RoomSnapshot> current = publishedSnapshot.rooms;
+        boolean changed = false;
+        int count = 0;
+        for (OnlineRoom room : rooms.values()) {
+            RoomSnapshot snapshot = room.snapshot();
+            if (snapshot == null) {
+                continue;
+            }
+            if (count >= current.size() || current.get(count) != snapshot) {
+                changed = true;
+            }
+            count++;
+        }
+        if (!changed && count == current.size()) {
             return;
         }
-        for (ClientInfo client : clients) {
-            if (!client.rematchReady) {
-                return;
+        List<RoomSnapshot> roomSnapshots = new ArrayList<>(count);
+        for (OnlineRoom room : rooms.values()) {
+            RoomSnapshot snapshot = room.snapshot();
+            if (snapshot != null) {
+                roomSnapshots.add(snapshot);
             }
         }
-        startMatch();
+        publishedSnapshot = new ServerSnapshot(roomSnapshots, scheduler.getTickCount());
     }
 
-    private void scheduleNextSpawn(long nowMs) {
-        long interval = (long) randomFloat(SPAWN_MIN_MS, SPAWN_MAX_MS);
-        nextSpawnAtMs = nowMs + interval;
+    void onClientJoined(OnlineRoom.ClientInfo client) {
+        clientIndex.add(client);
     }
 
-    private void removeClient(int playerId, boolean notify) {
-        ClientInfo removed = null;
-        for (int i = 0; i < clients.size(); i++) {
-            if (clients.get(i).id == playerId) {
-                removed = clients.remove(i);
-                break;
-            }
-        }
+    void onClientRemoved(OnlineRoom.ClientInfo client) {
+        clientIndex.remove(client);
+    }
 
-        if (removed == null) {
+    synchronized void send(OnlineMessage message, InetSocketAddress address, boolean binary) {
+        if (!encodeFrame(sendBuffer, message, binary)) {
             return;
         }
-
-        if (notify) {
-            broadcast(OnlineProtocol.CLIENT_LEFT + ":" + removed.id);
+        metrics.countOutbound(message.opcode);
+        sendEncoded(sendBuffer, address);
+    }
+
+    synchronized void queueToAll(OnlineMessage message, List<OnlineRoom.ClientInfo> recipients) {
+        boolean binaryEncoded = false;
+        boolean textEncoded = false;
+        for (int i = 0; i < recipients.size(); i++) {
+            OnlineRoom.ClientInfo client = recipients.get(i);
+            ByteBuffer encoded;
+            if (client.outbox.isBinary()) {
+                if (!binaryEncoded) {
+                    binaryEncoded = encodeMessage(binaryMessageBuffer, message, true);
+                    if (!binaryEncoded) {
+                        continue;
+                    }
+                }
+                encoded = binaryMessageBuffer;
+            } else {
+                if (!textEncoded) {
+                    textEncoded = encodeMessage(textMessageBuffer, message, false);
+                    if (!textEncoded) {
+                        continue;
+                    }
+                }
+                encoded = textMessageBuffer;
+            }
+            metrics.countOutbound(message.opcode);
+            appendToOutbox(client, encoded);
         }
-        onRoomChangedAfterDisconnect();
-        broadcastRoomState();
     }
 
-    private void onRoomChangedAfterDisconnect() {
-        if (roomState == RoomState.PLAYING) {
-            if (clients.size() == 1) {
-                finishMatch(clients.get(0).id);
-                return;
-            }
-            if (clients.isEmpty()) {
-                finishMatch(0);
-                return;
-            }
+    synchronized void queueReliableToAll(OnlineMessage message, List<OnlineRoom.ClientInfo> recipients) {
+        for (int i = 0; i < recipients.size(); i++) {
+            queueReliable(message, recipients.get(i));
         }
+    }
 
-        if (clients.size() < MAX_CLIENTS) {
-            roomState = RoomState.WAITING;
-            matchStartsAtMs = 0L;
+    synchronized void queueReliable(OnlineMessage message, OnlineRoom.ClientInfo client) {
+        if (!client.outbox.isBinary()) {
+            // El formato de texto no tiene canal fiable.
+            queue(message, client);
+            return;
+        }
+        ByteBuffer encoded = client.reliable.send(message, System.nanoTime());
+        metrics.countOutbound(message.opcode);
+        if (encoded != null) {
+            appendToOutbox(client, encoded);
+        } else if (client.reliable.isOverflowed()) {
+            // La sala cierra la sesion en su siguiente tick.
+            metrics.recordReliableOverflow();
+        } else {
+            metrics.recordReliableBacklogged();
         }
     }
 
-    private void broadcastRoomState() {
-        StringJoiner joiner = new StringJoiner("|");
-        for (ClientInfo client : clients) {
-            joiner.add(client.id + "," + client.name + "," + (client.ready ? "1" : "0")
-                + "," + client.score + "," + (client.alive ? "1" : "0"));
+    synchronized void queue(OnlineMessage message, OnlineRoom.ClientInfo client) {
+        boolean binary = client.outbox.isBinary();
+        ByteBuffer encoded = binary ? binaryMessageBuffer : textMessageBuffer;
+        if (encodeMessage(encoded, message, binary)) {
+            metrics.countOutbound(message.opcode);
+            appendToOutbox(client, encoded);
         }
+    }
 
-        String payload = OnlineProtocol.ROOM + ":"
-            + roomState.protocolValue + ":"
-            + lastWinnerId + ":"
-            + clients.size() + ":"
-            + joiner;
-        broadcast(payload);
+    private void appendToOutbox(OnlineRoom.ClientInfo client, ByteBuffer encoded) {
+        encoded.rewind();
+        if (!client.outbox.append(encoded)) {
+            flushQueue(client);
+            encoded.rewind();
+            client.outbox.append(encoded);
+        }
     }
 
-    private int nextAvailableId() {
-        boolean has1 = false;
-        boolean has2 = false;
-        for (ClientInfo client : clients) {
-            if (client.id == 1) {
-                has1 = true;
-            } else if (client.id == 2) {
-                has2 = true;
+    synchronized void flushQueues(List<OnlineRoom.ClientInfo> recipients) {
+        long nowNanos = System.nanoTime();
+        for (int i = 0; i < recipients.size(); i++) {
+            OnlineRoom.ClientInfo client = recipients.get(i);
+            if (client.outbox.isBinary()) {
+                appendReliableControl(client, nowNanos);
             }
+            flushQueue(client);
         }
-        if (!has1) {
-            return 1;
+    }
+
+    private void appendReliableControl(OnlineRoom.ClientInfo client, long nowNanos) {
+        ByteBuffer resend;
+        while ((resend = client.reliable.pollResend(nowNanos)) != null) {
+            appendToOutbox(client, resend);
         }
-        if (!has2) {
-            return 2;
+        ByteBuffer promoted;
+        while ((promoted = client.reliable.pollBacklog(nowNanos)) != null) {
+            appendToOutbox(client, promoted);
+        }
+        if (client.reliable.hasPendingAck()
+            && encodeMessage(binaryMessageBuffer, client.reliable.writeAck(replyMessage), true)) {
+            metrics.countOutbound(OnlineProtocol.OP_ACK);
+            appendToOutbox(client, binaryMessageBuffer);
         }
-        return -1;
     }
 
-    private ClientInfo findByAddress(InetAddress address, int port) {
-        for (ClientInfo client : clients) {
-            if (client.port == port && client.address.equals(address)) {
-                return client;
-            }
+    private void flushQueue(OnlineRoom.ClientInfo client) {
+        OutboundQueue outbox = client.outbox;
+        if (outbox.isEmpty()) {
+            return;
         }
-        return null;
+        int messages = outbox.getMessageCount();
+        ByteBuffer frame = outbox.frame();
+        int frameBytes = frame.remaining();
+        sendEncoded(frame, client.address);
+        outbox.reset(outbox.isBinary());
+
+        coalescedDatagrams++;
+        coalescedMessages += messages;
+        coalescedBytes += frameBytes;
+        int headerBytes = UDP_IP_HEADER_BYTES + (outbox.isBinary() ? WIRE_HEADER_BYTES : 0);
+        coalescingBytesSaved += (long) (messages - 1) * headerBytes;
     }
 
-    private ClientInfo findById(int id) {
-        for (ClientInfo client : clients) {
-            if (client.id == id) {
-                return client;
-            }
+    private boolean encodeMessage(ByteBuffer buffer, OnlineMessage message, boolean binary) {
+        buffer.clear();
+        if (!OnlineCodec.encode(buffer, message, binary)) {
+            return false;
         }
-        return null;
+        buffer.flip();
+        return true;
     }
 
-    private void send(String message, InetAddress address, int port) {
+    private boolean encodeFrame(ByteBuffer buffer, OnlineMessage message, boolean binary) {
+        buffer.clear();
+        OnlineCodec.writeFrameHeader(buffer, binary);
+        if (!OnlineCodec.encode(buffer, message, binary)) {
+            return false;
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private void sendEncoded(ByteBuffer frame, InetSocketAddress address) {
         try {
-            byte[] data = message.getBytes();
-            DatagramPacket packet = new DatagramPacket(data, data.length, address, port);
-            socket.send(packet);
+            int bytes = frame.remaining();
+            if (channel.send(frame, address) > 0) {
+                metrics.recordPacketOut(bytes);
+            } else {
+                metrics.recordPlayerSendDropped();
+            }
         } catch (IOException ignored) {
             // Cliente inaccesible.
         }
     }
 
-    private void broadcast(String message) {
-        for (ClientInfo client : clients) {
-            send(message, client.address, client.port);
+    private int sanitizeRoomId(int value) {
+        if (value < 0 || value > OnlineProtocol.MAX_ROOM_ID) {
+            return OnlineProtocol.DEFAULT_ROOM_ID;
         }
-    }
-
-    private float randomFloat(float min, float max) {
-        return min + random.nextFloat() * (max - min);
+        return value;
     }
 
     private String sanitizeName(String raw) {
@@ -599,80 +751,58 @@ public class OnlineServer extends Thread {
         public final boolean ready;
         public final boolean alive;
         public final int score;
+        public final float rttMillis;
+        public final float jitterMillis;
+        public final float lossRate;
 
         public PlayerSnapshot(int id, String name, boolean ready, boolean alive, int score) {
+            this(id, name, ready, alive, score, 0f, 0f, 0f);
+        }
+
+        public PlayerSnapshot(int id, String name, boolean ready, boolean alive, int score,
+                              float rttMillis, float jitterMillis, float lossRate) {
             this.id = id;
             this.name = name;
             this.ready = ready;
             this.alive = alive;
             this.score = score;
+            this.rttMillis = rttMillis;
+            this.jitterMillis = jitterMillis;
+            this.lossRate = lossRate;
         }
     }
 
-    public static final class ServerSnapshot {
+    public static final class RoomSnapshot {
+        public final int roomId;
         public final String roomState;
         public final int lastWinnerId;
         public final List<PlayerSnapshot> players;
 
-        public ServerSnapshot(String roomState, int lastWinnerId, List<PlayerSnapshot> players) {
+        public RoomSnapshot(int roomId, String roomState, int lastWinnerId, List<PlayerSnapshot> players) {
+            this.roomId = roomId;
             this.roomState = roomState;
             this.lastWinnerId = lastWinnerId;
             this.players = Collections.unmodifiableList(new ArrayList<>(players));
         }
     }
 
-    private enum RoomState {
-        WAITING(OnlineProtocol.ROOM_WAITING),
-        PLAYING(OnlineProtocol.ROOM_PLAYING),
-        FINISHED(OnlineProtocol.ROOM_FINISHED);
-
-        private final String protocolValue;
+    public static final class ServerSnapshot {
+        public final List<RoomSnapshot> rooms;
+        public final int playerCount;
+        public final long serverTick;
 
-        RoomState(String protocolValue) {
-            this.protocolValue = protocolValue;
+        public ServerSnapshot(List<RoomSnapshot> rooms) {
+            this(rooms, 0L);
         }
-    }
-
-    private static final class ClientInfo {
-        private final int id;
-        private String name;
-        private final InetAddress address;
-        private final int port;
-        private long lastSeenMs;
-
-        private boolean alive;
-        private boolean ready;
-        private boolean rematchReady;
-        private int score;
-        private float y;
-        private float velocity;
-        private long eliminatedTick;
 
-        private ClientInfo(int id, String name, InetAddress address, int port) {
-            this.id = id;
-            this.name = name;
-            this.address = address;
-            this.port = port;
-            this.lastSeenMs = System.currentTimeMillis();
-            this.alive = true;
-            this.ready = false;
-            this.rematchReady = false;
-            this.score = 0;
-            this.y = START_Y;
-            this.velocity = 0f;
-            this.eliminatedTick = -1L;
-        }
-    }
-
-    private static final class PipeState {
-        private float x;
-        private final float gapCenterY;
-        private final boolean[] scoreCounted;
-
-        private PipeState(float x, float gapCenterY) {
-            this.x = x;
-            this.gapCenterY = gapCenterY;
-            this.scoreCounted = new boolean[] {false, false, false};
+        public ServerSnapshot(List<RoomSnapshot> rooms, long serverTick) {
+            this.serverTick = serverTick;
+            this.rooms = Collections.unmodifiableList(new ArrayList<>(rooms));
+            int players = 0;
+            for (RoomSnapshot room : rooms) {
+                players += room.players.size();
+            }
+            this.playerCount = players;
         }
     }
 }
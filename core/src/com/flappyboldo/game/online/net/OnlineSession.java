@@ -10,22 +10,40 @@ public class OnlineSession {
     private final String playerName;
     private final String roomIp;
     private final int roomPort;
+    private final int roomId;
     private final OnlineClient client;
 
-    private OnlineSession(String playerName, String roomIp, int roomPort, OnlineClient client) {
+    private OnlineSession(String playerName, String roomIp, int roomPort, int roomId, OnlineClient client) {
         this.playerName = playerName;
         this.roomIp = roomIp;
         this.roomPort = roomPort;
+        this.roomId = roomId;
         this.client = client;
     }
 
     public static OnlineSession joinRoom(String playerName, String ip, int port) throws IOException {
+        return joinRoom(playerName, ip, port, OnlineProtocol.DEFAULT_ROOM_ID);
+    }
+
+    public static OnlineSession joinRoom(String playerName, String ip, int port, int roomId) throws IOException {
+        String sanitizedName = sanitizePlayerName(playerName);
+        String sanitizedIp = sanitizeIp(ip);
+        int sanitizedPort = sanitizePort(port);
+        int sanitizedRoomId = sanitizeRoomId(roomId);
+        OnlineClient client = new OnlineClient(sanitizedIp, sanitizedPort, sanitizedName, sanitizedRoomId);
+        client.start();
+        return new OnlineSession(sanitizedName, sanitizedIp, sanitizedPort, sanitizedRoomId, client);
+    }
+
+    // Sin IP de sala acordada: el servidor empareja con otro jugador de la cola y asigna una sala nueva.
+    public static OnlineSession joinQueue(String playerName, String ip, int port) throws IOException {
         String sanitizedName = sanitizePlayerName(playerName);
         String sanitizedIp = sanitizeIp(ip);
         int sanitizedPort = sanitizePort(port);
-        OnlineClient client = new OnlineClient(sanitizedIp, sanitizedPort, sanitizedName);
+        OnlineClient client = new OnlineClient(sanitizedIp, sanitizedPort, sanitizedName,
+            OnlineProtocol.MATCHMAKING_ROOM_ID);
         client.start();
-        return new OnlineSession(sanitizedName, sanitizedIp, sanitizedPort, client);
+        return new OnlineSession(sanitizedName, sanitizedIp, sanitizedPort, OnlineProtocol.MATCHMAKING_ROOM_ID, client);
     }
 
     public String getPlayerName() {
@@ -40,10 +58,30 @@ public class OnlineSession {
         return roomPort;
     }
 
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public boolean isMatchmaking() {
+        return roomId == OnlineProtocol.MATCHMAKING_ROOM_ID;
+    }
+
     public int getLocalPlayerId() {
         return client != null ? client.getLocalPlayerId() : 0;
     }
 
+    public float getRttMillis() {
+        return client != null ? client.getRttMillis() : 0f;
+    }
+
+    public float getJitterMillis() {
+        return client != null ? client.getJitterMillis() : 0f;
+    }
+
+    public float getLossRate() {
+        return client != null ? client.getLossRate() : 0f;
+    }
+
     public void setListener(OnlineClientListener listener) {
         if (client != null) {
             client.setListener(listener);
@@ -56,6 +94,18 @@ public class OnlineSession {
         }
     }
 
+    public void sendJump(int playerId, int inputSequence) {
+        if (client != null) {
+            client.sendJump(playerId, inputSequence);
+        }
+    }
+
+    public void sendJump(int playerId, int inputSequence, long inputTick) {
+        if (client != null) {
+            client.sendJump(playerId, inputSequence, inputTick);
+        }
+    }
+
     public void sendReady(boolean ready) {
         if (client != null) {
             client.sendReady(ready);
@@ -98,6 +148,21 @@ public class OnlineSession {
         }
     }
 
+    public static boolean isValidRoomId(String roomId) {
+        try {
+            int value = Integer.parseInt(roomId == null ? "" : roomId.trim());
+            sanitizeRoomId(value);
+            return true;
+        } catch (Exception ignored) {
+            return false;
+        }
+    }
+
+    public static int parseRoomId(String roomId) {
+        int value = Integer.parseInt(roomId == null ? "" : roomId.trim());
+        return sanitizeRoomId(value);
+    }
+
     public static int parsePort(String port) {
         int value = Integer.parseInt(port == null ? "" : port.trim());
         return sanitizePort(value);
@@ -118,6 +183,13 @@ public class OnlineSession {
         return port;
     }
 
+    private static int sanitizeRoomId(int roomId) {
+        if (roomId < 0 || roomId > OnlineProtocol.MAX_MANUAL_ROOM_ID) {
+            throw new IllegalArgumentException("Room must be between 0 and " + OnlineProtocol.MAX_MANUAL_ROOM_ID);
+        }
+        return roomId;
+    }
+
     private static String sanitizePlayerName(String name) {
         String value = name == null ? "" : name.trim();
         if (value.isEmpty()) {
@@ -132,6 +204,7 @@ public class OnlineSession {
 
     @Override
     public String toString() {
-        return String.format(Locale.US, "OnlineSession{player=%s, ip=%s, port=%d}", playerName, roomIp, roomPort);
+        return String.format(Locale.US, "OnlineSession{player=%s, ip=%s, port=%d, room=%d}",
+            playerName, roomIp, roomPort, roomId);
     }
 }
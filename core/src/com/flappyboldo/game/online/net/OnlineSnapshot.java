@@ -0,0 +1,46 @@
+package com.flappyboldo.game.online.net;
+
+import java.util.Arrays;
+
+public final class OnlineSnapshot {
+    public final long tick;
+    public final int tickRate;
+    public final int birdCount;
+    public final int[] birdIds;
+    public final float[] birdY;
+    public final float[] birdVelocity;
+    public final boolean[] birdAlive;
+    public final int[] birdAckedInput;
+    public final int pipeCount;
+    public final float[] pipeX;
+    public final float[] pipeGapY;
+    public final long receivedAtNanos;
+
+    private OnlineSnapshot(OnlineMessage message, long receivedAtNanos) {
+        this.tick = message.tick;
+        this.tickRate = message.tickRate;
+        this.birdCount = message.birdCount;
+        this.birdIds = Arrays.copyOf(message.birdIds, message.birdCount);
+        this.birdY = Arrays.copyOf(message.birdY, message.birdCount);
+        this.birdVelocity = Arrays.copyOf(message.birdVelocity, message.birdCount);
+        this.birdAlive = Arrays.copyOf(message.birdAlive, message.birdCount);
+        this.birdAckedInput = Arrays.copyOf(message.birdAckedInput, message.birdCount);
+        this.pipeCount = message.pipeCount;
+        this.pipeX = Arrays.copyOf(message.pipeX, message.pipeCount);
+        this.pipeGapY = Arrays.copyOf(message.pipeGapY, message.pipeCount);
+        this.receivedAtNanos = receivedAtNanos;
+    }
+
+    public static OnlineSnapshot copyOf(OnlineMessage message, long receivedAtNanos) {
+        return new OnlineSnapshot(message, receivedAtNanos);
+    }
+
+    public int indexOfBird(int playerId) {
+        for (int i = 0; i < birdCount; i++) {
+            if (birdIds[i] == playerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
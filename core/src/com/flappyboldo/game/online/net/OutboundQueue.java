@@ -0,0 +1,53 @@
+package com.flappyboldo.game.online.net;
+
+import java.nio.ByteBuffer;
+
+final class OutboundQueue {
+    static final int MAX_DATAGRAM_SIZE = 1200;
+
+    private final ByteBuffer buffer;
+    private boolean binary;
+    private int messageCount;
+
+    OutboundQueue(boolean binary) {
+        this.buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        reset(binary);
+    }
+
+    void reset(boolean binaryWire) {
+        this.binary = binaryWire;
+        buffer.clear();
+        OnlineCodec.writeFrameHeader(buffer, binaryWire);
+        messageCount = 0;
+    }
+
+    boolean isBinary() {
+        return binary;
+    }
+
+    boolean isEmpty() {
+        return messageCount == 0;
+    }
+
+    int getMessageCount() {
+        return messageCount;
+    }
+
+    boolean append(ByteBuffer encodedMessage) {
+        int separator = !binary && messageCount > 0 ? 1 : 0;
+        if (encodedMessage.remaining() + separator > buffer.remaining()) {
+            return false;
+        }
+        if (separator > 0) {
+            buffer.put((byte) '\n');
+        }
+        buffer.put(encodedMessage);
+        messageCount++;
+        return true;
+    }
+
+    ByteBuffer frame() {
+        buffer.flip();
+        return buffer;
+    }
+}
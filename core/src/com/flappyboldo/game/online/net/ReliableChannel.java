@@ -0,0 +1,308 @@
+package com.flappyboldo.game.online.net;
+
+import java.nio.ByteBuffer;
+
+// El lado receptor es publico para que el generador de carga confirme con el mismo codigo que el cliente.
+public final class ReliableChannel {
+    public static final int DELIVER = 0;
+    public static final int BUFFERED = 1;
+    public static final int DUPLICATE = 2;
+    public static final int DROPPED = 3;
+
+    private static final int WINDOW = 64;
+    private static final int SLOT_BYTES = 512;
+    // OP_RELIABLE y la secuencia como varint, que se anteponen al sacar un mensaje del backlog.
+    private static final int RELIABLE_PREFIX_BYTES = 6;
+    private static final int ACK_BITS = 32;
+    // Mensajes que esperan hueco en la ventana. Si tambien se llena, la sesion se da por muerta.
+    private static final int BACKLOG = 128;
+    private static final long INITIAL_RTO_NANOS = 200_000_000L;
+    private static final long MIN_RTO_NANOS = 40_000_000L;
+    private static final long MAX_RTO_NANOS = 1_000_000_000L;
+
+    private final int[] sendSequences;
+    private final ByteBuffer[] sendPayloads;
+    private final long[] firstSentNanos;
+    private final long[] lastSentNanos;
+    private final int[] sendAttempts;
+    private int nextSendSequence;
+    private int pendingCount;
+
+    private final ByteBuffer[] backlog;
+    private int backlogHead;
+    private int backlogCount;
+    private boolean overflowed;
+
+    private final int[] receiveSequences;
+    private final ByteBuffer[] receivePayloads;
+    private int nextDeliverSequence;
+    private int latestReceived;
+    private long receivedBits;
+    private boolean ackPending;
+
+    private final RttEstimator rtt;
+    private long retransmitCount;
+    private int epoch;
+
+    // La epoca identifica la sesion del servidor: viaja en WELCOME y en cada ACK. El estimador es el de la
+    // sesion: los ACK le aportan muestras y el RTO se calcula a partir de el.
+    public ReliableChannel(int channelEpoch, RttEstimator rtt) {
+        this.rtt = rtt;
+        this.sendSequences = new int[WINDOW];
+        this.sendPayloads = new ByteBuffer[WINDOW];
+        this.firstSentNanos = new long[WINDOW];
+        this.lastSentNanos = new long[WINDOW];
+        this.sendAttempts = new int[WINDOW];
+        this.receiveSequences = new int[WINDOW];
+        this.receivePayloads = new ByteBuffer[WINDOW];
+        // Todos los huecos se reservan al usarse: casi ninguna sesion llega al backlog, y el generador de
+        // carga solo recibe.
+        this.backlog = new ByteBuffer[BACKLOG];
+        reset();
+        this.epoch = channelEpoch;
+    }
+
+    // Sesion nueva en el otro extremo: sus secuencias vuelven a empezar en 1 en ambos sentidos.
+    public void restart(int channelEpoch) {
+        reset();
+        epoch = channelEpoch;
+    }
+
+    void reset() {
+        for (int i = 0; i < WINDOW; i++) {
+            sendSequences[i] = 0;
+            receiveSequences[i] = 0;
+        }
+        nextSendSequence = 1;
+        pendingCount = 0;
+        backlogHead = 0;
+        backlogCount = 0;
+        overflowed = false;
+        nextDeliverSequence = 1;
+        latestReceived = 0;
+        receivedBits = 0L;
+        ackPending = false;
+    }
+
+    // Devuelve el mensaje codificado con su secuencia, o null si no entra en la ventana: entonces espera en
+    // el backlog (pollBacklog lo saca al liberarse huecos) o, con el backlog lleno, la sesion queda
+    // desbordada y el mensaje se pierde. Nunca se manda sin fiabilidad.
+    ByteBuffer send(OnlineMessage message, long nowNanos) {
+        if (backlogCount == 0 && sendSequences[nextSendSequence % WINDOW] == 0) {
+            ByteBuffer payload = sendSlot(nextSendSequence % WINDOW);
+            payload.clear();
+            message.reliableSequence = nextSendSequence;
+            boolean encoded = OnlineCodec.encode(payload, message, true);
+            message.reliableSequence = 0;
+            if (!encoded) {
+                return null;
+            }
+            payload.flip();
+            return commit(nowNanos);
+        }
+        if (backlogCount == BACKLOG) {
+            overflowed = true;
+            return null;
+        }
+        int index = (backlogHead + backlogCount) % BACKLOG;
+        ByteBuffer body = backlog[index];
+        if (body == null) {
+            body = ByteBuffer.allocate(SLOT_BYTES);
+            backlog[index] = body;
+        }
+        body.clear();
+        body.limit(SLOT_BYTES - RELIABLE_PREFIX_BYTES);
+        if (OnlineCodec.encode(body, message, true)) {
+            body.flip();
+            backlogCount++;
+        }
+        return null;
+    }
+
+    // Siguiente mensaje del backlog que ya cabe en la ventana, listo para enviar; null si no hay.
+    ByteBuffer pollBacklog(long nowNanos) {
+        if (backlogCount == 0 || sendSequences[nextSendSequence % WINDOW] != 0) {
+            return null;
+        }
+        ByteBuffer body = backlog[backlogHead];
+        backlogHead = (backlogHead + 1) % BACKLOG;
+        backlogCount--;
+        ByteBuffer payload = sendSlot(nextSendSequence % WINDOW);
+        payload.clear();
+        payload.put((byte) OnlineProtocol.OP_RELIABLE);
+        OnlineCodec.writeVarInt(payload, nextSendSequence);
+        payload.put(body);
+        payload.flip();
+        return commit(nowNanos);
+    }
+
+    private ByteBuffer sendSlot(int slot) {
+        ByteBuffer payload = sendPayloads[slot];
+        if (payload == null) {
+            payload = ByteBuffer.allocate(SLOT_BYTES);
+            sendPayloads[slot] = payload;
+        }
+        return payload;
+    }
+
+    private ByteBuffer commit(long nowNanos) {
+        int sequence = nextSendSequence++;
+        int slot = sequence % WINDOW;
+        sendSequences[slot] = sequence;
+        firstSentNanos[slot] = nowNanos;
+        lastSentNanos[slot] = nowNanos;
+        sendAttempts[slot] = 1;
+        pendingCount++;
+        return sendPayloads[slot];
+    }
+
+    ByteBuffer pollResend(long nowNanos) {
+        if (pendingCount == 0) {
+            return null;
+        }
+        long rtoNanos = rtoNanos();
+        for (int i = 0; i < WINDOW; i++) {
+            if (sendSequences[i] == 0) {
+                continue;
+            }
+            long timeout = Math.min(MAX_RTO_NANOS, rtoNanos << Math.min(sendAttempts[i] - 1, 4));
+            if (nowNanos - lastSentNanos[i] >= timeout) {
+                lastSentNanos[i] = nowNanos;
+                sendAttempts[i]++;
+                retransmitCount++;
+                return sendPayloads[i];
+            }
+        }
+        return null;
+    }
+
+    void onAck(OnlineMessage ack, long nowNanos) {
+        // Un ACK de otra sesion confirmaria secuencias que en esta son otros mensajes.
+        if (ack.channelEpoch != epoch) {
+            return;
+        }
+        for (int i = 0; i < WINDOW && pendingCount > 0; i++) {
+            int sequence = sendSequences[i];
+            if (sequence == 0 || !isAcked(sequence, ack)) {
+                continue;
+            }
+            if (sendAttempts[i] == 1) {
+                // Solo se mide RTT con mensajes no retransmitidos (Karn).
+                rtt.onSample((nowNanos - firstSentNanos[i]) / 1_000L);
+            }
+            sendSequences[i] = 0;
+            pendingCount--;
+        }
+    }
+
+    private static boolean isAcked(int sequence, OnlineMessage ack) {
+        if (sequence <= ack.ackCumulative || sequence == ack.ackLatest) {
+            return true;
+        }
+        int distance = ack.ackLatest - sequence - 1;
+        return distance >= 0 && distance < ACK_BITS && (ack.ackBits & (1 << distance)) != 0;
+    }
+
+    // Las muestras de PING/PONG ya fijan el RTO antes del primer ACK.
+    private long rtoNanos() {
+        if (!rtt.isReady()) {
+            return INITIAL_RTO_NANOS;
+        }
+        return Math.max(MIN_RTO_NANOS, Math.min(MAX_RTO_NANOS, rtt.getRttBoundMicros() * 1_000L));
+    }
+
+    public int accept(int sequence, ByteBuffer source, int from, int to) {
+        if (sequence < nextDeliverSequence) {
+            ackPending = true;
+            return DUPLICATE;
+        }
+        if (sequence - nextDeliverSequence >= WINDOW) {
+            return DROPPED;
+        }
+        markReceived(sequence);
+        ackPending = true;
+        if (sequence == nextDeliverSequence) {
+            nextDeliverSequence++;
+            return DELIVER;
+        }
+
+        int slot = sequence % WINDOW;
+        if (receiveSequences[slot] == sequence) {
+            return DUPLICATE;
+        }
+        int length = to - from;
+        ByteBuffer payload = receivePayloads[slot];
+        if (payload == null || length > payload.capacity()) {
+            payload = ByteBuffer.allocate(Math.max(SLOT_BYTES, length));
+            receivePayloads[slot] = payload;
+        }
+        payload.clear();
+        for (int i = from; i < to; i++) {
+            payload.put(source.get(i));
+        }
+        payload.flip();
+        receiveSequences[slot] = sequence;
+        return BUFFERED;
+    }
+
+    // Siguiente mensaje en orden que llego adelantado; hay que decodificarlo antes de volver a llamar.
+    public ByteBuffer pollOrdered() {
+        int slot = nextDeliverSequence % WINDOW;
+        if (receiveSequences[slot] != nextDeliverSequence) {
+            return null;
+        }
+        receiveSequences[slot] = 0;
+        nextDeliverSequence++;
+        return receivePayloads[slot];
+    }
+
+    private void markReceived(int sequence) {
+        if (sequence > latestReceived) {
+            int shift = sequence - latestReceived;
+            receivedBits = shift >= 64 ? 0L : receivedBits << shift;
+            if (latestReceived > 0 && shift <= 64) {
+                receivedBits |= 1L << (shift - 1);
+            }
+            latestReceived = sequence;
+        } else if (sequence < latestReceived) {
+            int distance = latestReceived - sequence - 1;
+            if (distance < 64) {
+                receivedBits |= 1L << distance;
+            }
+        }
+    }
+
+    public boolean hasPendingAck() {
+        return ackPending;
+    }
+
+    public OnlineMessage writeAck(OnlineMessage out) {
+        ackPending = false;
+        return out.ack(nextDeliverSequence - 1, latestReceived, (int) receivedBits, epoch);
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    int getPendingCount() {
+        return pendingCount;
+    }
+
+    int getBacklogCount() {
+        return backlogCount;
+    }
+
+    // Ventana y backlog llenos: el otro extremo no confirma nada y hay mensajes fiables perdidos.
+    boolean isOverflowed() {
+        return overflowed;
+    }
+
+    long getRetransmitCount() {
+        return retransmitCount;
+    }
+
+    long getRtoMillis() {
+        return rtoNanos() / 1_000_000L;
+    }
+}
@@ -0,0 +1,222 @@
+package com.flappyboldo.game.online.net;
+
+final class RoomStateHistory {
+    private final Entry[] entries;
+    private final Entry empty;
+    private int latestVersion;
+
+    RoomStateHistory(int capacity) {
+        this.entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+        }
+        this.empty = new Entry();
+        this.latestVersion = 0;
+    }
+
+    int getLatestVersion() {
+        return latestVersion;
+    }
+
+    Entry latest() {
+        return get(latestVersion);
+    }
+
+    Entry get(int version) {
+        if (version <= 0) {
+            return null;
+        }
+        Entry entry = entries[version % entries.length];
+        return entry.version == version ? entry : null;
+    }
+
+    Entry beginRecord() {
+        int version = latestVersion + 1;
+        Entry entry = entries[version % entries.length];
+        entry.clear(version);
+        return entry;
+    }
+
+    void commitRecord(Entry entry) {
+        latestVersion = entry.version;
+    }
+
+    void writeDelta(int baseVersion, OnlineMessage out) {
+        Entry current = latest();
+        Entry base = get(baseVersion);
+        out.roomDelta(current.version, base == null ? 0 : base.version);
+        if (base == null || !current.roomState.equals(base.roomState)) {
+            out.roomState = current.roomState;
+        }
+        if (base == null || current.winnerId != base.winnerId) {
+            out.winnerId = current.winnerId;
+        }
+
+        for (int i = 0; i < current.count; i++) {
+            int baseIndex = base == null ? -1 : base.indexOf(current.ids[i]);
+            int fields;
+            if (baseIndex < 0) {
+                fields = OnlineMessage.FIELDS_ALL;
+            } else {
+                fields = 0;
+                if (current.ready[i] != base.ready[baseIndex]) {
+                    fields |= OnlineMessage.FIELD_READY;
+                }
+                if (current.alive[i] != base.alive[baseIndex]) {
+                    fields |= OnlineMessage.FIELD_ALIVE;
+                }
+                if (current.scores[i] != base.scores[baseIndex]) {
+                    fields |= OnlineMessage.FIELD_SCORE;
+                }
+                if (!current.names[i].equals(base.names[baseIndex])) {
+                    fields |= OnlineMessage.FIELD_NAME;
+                }
+            }
+            if (fields != 0) {
+                out.addRosterDelta(current.ids[i], fields, current.names[i], current.ready[i],
+                    current.scores[i], current.alive[i]);
+            }
+        }
+
+        if (base == null) {
+            return;
+        }
+        for (int i = 0; i < base.count; i++) {
+            if (current.indexOf(base.ids[i]) < 0) {
+                out.addRosterDelta(base.ids[i], OnlineMessage.FIELD_REMOVED, null, false, 0, false);
+            }
+        }
+    }
+
+    Entry applyDelta(OnlineMessage delta) {
+        Entry known = get(delta.roomVersion);
+        if (known != null) {
+            return known;
+        }
+        Entry base = delta.baseVersion == 0 ? empty : get(delta.baseVersion);
+        if (base == null) {
+            return null;
+        }
+
+        Entry entry = entries[delta.roomVersion % entries.length];
+        if (entry == base) {
+            return null;
+        }
+        entry.copyFrom(base, delta.roomVersion);
+        if (delta.roomState != null) {
+            entry.roomState = delta.roomState;
+        }
+        if (delta.winnerId >= 0) {
+            entry.winnerId = delta.winnerId;
+        }
+        for (int i = 0; i < delta.rosterSize; i++) {
+            int fields = delta.rosterFields[i];
+            int index = entry.indexOf(delta.rosterIds[i]);
+            if ((fields & OnlineMessage.FIELD_REMOVED) != 0) {
+                if (index >= 0) {
+                    entry.remove(index);
+                }
+                continue;
+            }
+            if (index < 0) {
+                index = entry.add(delta.rosterIds[i]);
+                if (index < 0) {
+                    continue;
+                }
+            }
+            if ((fields & OnlineMessage.FIELD_READY) != 0) {
+                entry.ready[index] = delta.rosterReady[i];
+            }
+            if ((fields & OnlineMessage.FIELD_ALIVE) != 0) {
+                entry.alive[index] = delta.rosterAlive[i];
+            }
+            if ((fields & OnlineMessage.FIELD_SCORE) != 0) {
+                entry.scores[index] = delta.rosterScores[i];
+            }
+            if ((fields & OnlineMessage.FIELD_NAME) != 0) {
+                entry.names[index] = delta.rosterNames[i];
+            }
+        }
+        if (delta.roomVersion > latestVersion) {
+            latestVersion = delta.roomVersion;
+        }
+        return entry;
+    }
+
+    static final class Entry {
+        int version;
+        String roomState = OnlineProtocol.ROOM_WAITING;
+        int winnerId;
+        int count;
+        final int[] ids = new int[OnlineMessage.MAX_ROSTER];
+        final String[] names = new String[OnlineMessage.MAX_ROSTER];
+        final boolean[] ready = new boolean[OnlineMessage.MAX_ROSTER];
+        final boolean[] alive = new boolean[OnlineMessage.MAX_ROSTER];
+        final int[] scores = new int[OnlineMessage.MAX_ROSTER];
+
+        void clear(int newVersion) {
+            version = newVersion;
+            roomState = OnlineProtocol.ROOM_WAITING;
+            winnerId = 0;
+            count = 0;
+        }
+
+        void copyFrom(Entry other, int newVersion) {
+            version = newVersion;
+            roomState = other.roomState;
+            winnerId = other.winnerId;
+            count = other.count;
+            System.arraycopy(other.ids, 0, ids, 0, count);
+            System.arraycopy(other.names, 0, names, 0, count);
+            System.arraycopy(other.ready, 0, ready, 0, count);
+            System.arraycopy(other.alive, 0, alive, 0, count);
+            System.arraycopy(other.scores, 0, scores, 0, count);
+        }
+
+        void addPlayer(int id, String name, boolean playerReady, int score, boolean playerAlive) {
+            int index = add(id);
+            if (index < 0) {
+                return;
+            }
+            names[index] = name;
+            ready[index] = playerReady;
+            scores[index] = score;
+            alive[index] = playerAlive;
+        }
+
+        int indexOf(int id) {
+            for (int i = 0; i < count; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int add(int id) {
+            if (count >= ids.length) {
+                return -1;
+            }
+            int index = count++;
+            ids[index] = id;
+            names[index] = "";
+            ready[index] = false;
+            alive[index] = false;
+            scores[index] = 0;
+            return index;
+        }
+
+        private void remove(int index) {
+            int last = count - 1;
+            for (int i = index; i < last; i++) {
+                ids[i] = ids[i + 1];
+                names[i] = names[i + 1];
+                ready[i] = ready[i + 1];
+                alive[i] = alive[i + 1];
+                scores[i] = scores[i + 1];
+            }
+            names[last] = null;
+            count = last;
+        }
+    }
+}
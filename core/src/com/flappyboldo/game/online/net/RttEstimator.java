@@ -0,0 +1,123 @@
+package com.flappyboldo.game.online.net;
+
+// RTT suavizado y varianza (RFC 6298) a partir de PING/PONG con marca de tiempo y de los ACK del canal
+// fiable, mas una estimacion de perdida: un PING sin respuesta cuando su hueco se reutiliza cuenta como
+// perdido. Es la unica estimacion de la sesion: de ella salen el RTO, la ventana de compensacion y el
+// retardo de interpolacion.
+public final class RttEstimator {
+    private static final int LOSS_WINDOW = 8;
+    private static final float LOSS_GAIN = 1f / 8f;
+
+    private final int[] sentSequences;
+    private final boolean[] answered;
+    private int nextSequence;
+
+    private volatile boolean ready;
+    private volatile long smoothedRttMicros;
+    private volatile long rttVarianceMicros;
+    private volatile long lastRttMicros;
+    private volatile float lossRate;
+    private long pingsSent;
+    private long pongsReceived;
+
+    public RttEstimator() {
+        this.sentSequences = new int[LOSS_WINDOW];
+        this.answered = new boolean[LOSS_WINDOW];
+        reset();
+    }
+
+    public void reset() {
+        for (int i = 0; i < LOSS_WINDOW; i++) {
+            sentSequences[i] = 0;
+            answered[i] = false;
+        }
+        nextSequence = 1;
+        ready = false;
+        smoothedRttMicros = 0L;
+        rttVarianceMicros = 0L;
+        lastRttMicros = 0L;
+        lossRate = 0f;
+        pingsSent = 0L;
+        pongsReceived = 0L;
+    }
+
+    // Reserva la secuencia del siguiente PING y cierra la del hueco que se reutiliza.
+    public int nextPing() {
+        int sequence = nextSequence++;
+        int slot = sequence % LOSS_WINDOW;
+        if (sentSequences[slot] != 0) {
+            float sample = answered[slot] ? 0f : 1f;
+            lossRate += (sample - lossRate) * LOSS_GAIN;
+        }
+        sentSequences[slot] = sequence;
+        answered[slot] = false;
+        pingsSent++;
+        return sequence;
+    }
+
+    public boolean onPong(int sequence, long echoedMicros, long nowMicros) {
+        int slot = sequence % LOSS_WINDOW;
+        if (sequence <= 0 || sentSequences[slot] != sequence || answered[slot]) {
+            return false;
+        }
+        long sample = nowMicros - echoedMicros;
+        if (sample < 0L) {
+            return false;
+        }
+        answered[slot] = true;
+        pongsReceived++;
+        onSample(sample);
+        return true;
+    }
+
+    // Muestra de RTT medida fuera de PING/PONG (ACK de un mensaje fiable no retransmitido).
+    public void onSample(long sample) {
+        lastRttMicros = sample;
+        if (!ready) {
+            smoothedRttMicros = sample;
+            rttVarianceMicros = sample / 2L;
+            ready = true;
+        } else {
+            rttVarianceMicros += (Math.abs(smoothedRttMicros - sample) - rttVarianceMicros) / 4L;
+            smoothedRttMicros += (sample - smoothedRttMicros) / 8L;
+        }
+    }
+
+    public static long nowMicros() {
+        return System.nanoTime() / 1_000L;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public float getSmoothedRttMillis() {
+        return smoothedRttMicros / 1_000f;
+    }
+
+    // Desviacion media del RTT: el cliente la usa como suelo del jitter del interpolador.
+    public float getJitterMillis() {
+        return rttVarianceMicros / 1_000f;
+    }
+
+    // SRTT + 4 * RTTVAR: el RTO de RFC 6298 y el retraso maximo esperable de un salto en el servidor.
+    public long getRttBoundMicros() {
+        return smoothedRttMicros + 4L * rttVarianceMicros;
+    }
+
+    public float getLastRttMillis() {
+        return lastRttMicros / 1_000f;
+    }
+
+    public float getLossRate() {
+        return lossRate;
+    }
+
+    public long getPingsSent() {
+        return pingsSent;
+    }
+
+    public long getPongsReceived() {
+        return pongsReceived;
+    }
+}
@@ -0,0 +1,204 @@
+package com.flappyboldo.game.online.net;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Registro de metricas del servidor. Grabar no reserva memoria: histogramas de un solo escritor,
+// contadores LongAdder (con celdas por hilo) y medidores volatiles que se leen sin bloquear el tick.
+public final class ServerMetrics {
+    private final LatencyHistogram tickNanos;
+    private final LatencyHistogram tickLagNanos;
+    private final LatencyHistogram packetNanos;
+    private final LatencyHistogram queueWaitNanos;
+    private final LatencyHistogram matchRttGapNanos;
+
+    private final LongAdder[] messagesIn;
+    private final LongAdder[] messagesOut;
+    private final LongAdder packetsIn;
+    private final LongAdder packetsOut;
+    private final LongAdder bytesIn;
+    private final LongAdder bytesOut;
+    private final LongAdder playerSendsDropped;
+    private final LongAdder spectatorSendsDropped;
+    private final LongAdder reliableBacklogged;
+    private final LongAdder reliableOverflows;
+
+    private volatile int roomCount;
+    private volatile int playerCount;
+    private volatile int pipeCount;
+    private volatile int spectatorCount;
+    private volatile int queuedCount;
+
+    ServerMetrics() {
+        this.tickNanos = new LatencyHistogram();
+        this.tickLagNanos = new LatencyHistogram();
+        this.packetNanos = new LatencyHistogram();
+        this.queueWaitNanos = new LatencyHistogram();
+        this.matchRttGapNanos = new LatencyHistogram();
+        this.messagesIn = newCounters(OnlineProtocol.OP_COUNT);
+        this.messagesOut = newCounters(OnlineProtocol.OP_COUNT);
+        this.packetsIn = new LongAdder();
+        this.packetsOut = new LongAdder();
+        this.bytesIn = new LongAdder();
+        this.bytesOut = new LongAdder();
+        this.playerSendsDropped = new LongAdder();
+        this.spectatorSendsDropped = new LongAdder();
+        this.reliableBacklogged = new LongAdder();
+        this.reliableOverflows = new LongAdder();
+    }
+
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    void recordTick(long nanos) {
+        tickNanos.record(nanos);
+    }
+
+    void recordTickLag(long nanos) {
+        tickLagNanos.record(nanos);
+    }
+
+    // Tiempo hasta partida: de entrar en la cola a tener sala asignada.
+    void recordQueueWait(long nanos) {
+        queueWaitNanos.record(nanos);
+    }
+
+    void recordMatchRttGap(long nanos) {
+        matchRttGapNanos.record(nanos);
+    }
+
+    void recordPacketIn(int bytes, long handlingNanos) {
+        packetsIn.increment();
+        bytesIn.add(bytes);
+        packetNanos.record(handlingNanos);
+    }
+
+    void recordPacketOut(int bytes) {
+        packetsOut.increment();
+        bytesOut.add(bytes);
+    }
+
+    // Datagrama a un jugador que el socket no admitio (buffer de envio lleno).
+    void recordPlayerSendDropped() {
+        playerSendsDropped.increment();
+    }
+
+    // Envios a espectadores saltados por el presupuesto del tick o por el buffer lleno.
+    void recordSpectatorDatagramsDropped(int count) {
+        spectatorSendsDropped.add(count);
+    }
+
+    // Mensaje fiable que espero en el backlog porque la ventana del cliente estaba llena.
+    void recordReliableBacklogged() {
+        reliableBacklogged.increment();
+    }
+
+    // Mensaje fiable perdido con ventana y backlog llenos; la sesion se cierra por ello.
+    void recordReliableOverflow() {
+        reliableOverflows.increment();
+    }
+
+    void countInbound(int opcode) {
+        if (opcode >= 0 && opcode < messagesIn.length) {
+            messagesIn[opcode].increment();
+        }
+    }
+
+    void countOutbound(int opcode) {
+        if (opcode >= 0 && opcode < messagesOut.length) {
+            messagesOut[opcode].increment();
+        }
+    }
+
+    void setGauges(int rooms, int players, int pipes, int spectators, int queued) {
+        roomCount = rooms;
+        playerCount = players;
+        pipeCount = pipes;
+        spectatorCount = spectators;
+        queuedCount = queued;
+    }
+
+    public LatencyHistogram getTickNanos() {
+        return tickNanos;
+    }
+
+    public LatencyHistogram getTickLagNanos() {
+        return tickLagNanos;
+    }
+
+    public LatencyHistogram getPacketNanos() {
+        return packetNanos;
+    }
+
+    public LatencyHistogram getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    public LatencyHistogram getMatchRttGapNanos() {
+        return matchRttGapNanos;
+    }
+
+    public long getMessagesIn(int opcode) {
+        return opcode >= 0 && opcode < messagesIn.length ? messagesIn[opcode].sum() : 0L;
+    }
+
+    public long getMessagesOut(int opcode) {
+        return opcode >= 0 && opcode < messagesOut.length ? messagesOut[opcode].sum() : 0L;
+    }
+
+    public long getPacketsIn() {
+        return packetsIn.sum();
+    }
+
+    public long getPacketsOut() {
+        return packetsOut.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getPlayerSendsDropped() {
+        return playerSendsDropped.sum();
+    }
+
+    public long getSpectatorSendsDropped() {
+        return spectatorSendsDropped.sum();
+    }
+
+    public long getReliableBacklogged() {
+        return reliableBacklogged.sum();
+    }
+
+    public long getReliableOverflows() {
+        return reliableOverflows.sum();
+    }
+
+    public int getRoomCount() {
+        return roomCount;
+    }
+
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    public int getPipeCount() {
+        return pipeCount;
+    }
+
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+}
@@ -0,0 +1,136 @@
+package com.flappyboldo.game.online.net;
+
+import java.util.Locale;
+
+public final class ServerTickScheduler {
+    public static final int DEFAULT_TICK_RATE = 120;
+    public static final int DEFAULT_SEND_RATE = 30;
+    public static final int MAX_TICK_RATE = 1000;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long REPORT_INTERVAL_NANOS = NANOS_PER_SECOND;
+    private static final long MAX_CATCH_UP_NANOS = 250_000_000L;
+
+    private final int tickRate;
+    private final int sendRate;
+    private final int sendIntervalTicks;
+    private final long tickIntervalNanos;
+    private final int maxCatchUpTicks;
+
+    private long nextTickAtNanos;
+    private long tickCount;
+    private long overrunCount;
+    private long skippedTickCount;
+    private long overrunsSinceReport;
+    private long skippedSinceReport;
+    private long worstOverrunNanosSinceReport;
+    private long lastReportAtNanos;
+    private long lastLateNanos;
+
+    public ServerTickScheduler(int tickRate, int sendRate) {
+        if (tickRate < 1 || tickRate > MAX_TICK_RATE) {
+            throw new IllegalArgumentException("Tick rate must be between 1 and " + MAX_TICK_RATE);
+        }
+        if (sendRate < 1 || sendRate > tickRate) {
+            throw new IllegalArgumentException("Send rate must be between 1 and the tick rate");
+        }
+        this.tickRate = tickRate;
+        this.sendRate = sendRate;
+        this.sendIntervalTicks = Math.max(1, Math.round(tickRate / (float) sendRate));
+        this.tickIntervalNanos = NANOS_PER_SECOND / tickRate;
+        this.maxCatchUpTicks = (int) Math.max(1L, MAX_CATCH_UP_NANOS / tickIntervalNanos);
+    }
+
+    public void start(long nowNanos) {
+        nextTickAtNanos = nowNanos + tickIntervalNanos;
+        lastReportAtNanos = nowNanos;
+        tickCount = 0L;
+    }
+
+    public long nanosUntilNextTick(long nowNanos) {
+        return Math.max(0L, nextTickAtNanos - nowNanos);
+    }
+
+    public int dueTicks(long nowNanos) {
+        long late = nowNanos - nextTickAtNanos;
+        if (late < 0L) {
+            return 0;
+        }
+        lastLateNanos = late;
+        long due = 1L + late / tickIntervalNanos;
+        if (due > maxCatchUpTicks) {
+            // Demasiado atrasado: se descartan ticks en lugar de acelerar la simulacion.
+            skippedTickCount += due - maxCatchUpTicks;
+            skippedSinceReport += due - maxCatchUpTicks;
+            nextTickAtNanos = nowNanos + tickIntervalNanos;
+            return maxCatchUpTicks;
+        }
+        nextTickAtNanos += due * tickIntervalNanos;
+        return (int) due;
+    }
+
+    public boolean beginTick() {
+        tickCount++;
+        return tickCount % sendIntervalTicks == 0L;
+    }
+
+    public void endTick(long tickStartNanos, long tickEndNanos) {
+        long duration = tickEndNanos - tickStartNanos;
+        if (duration <= tickIntervalNanos) {
+            return;
+        }
+        overrunCount++;
+        overrunsSinceReport++;
+        if (duration > worstOverrunNanosSinceReport) {
+            worstOverrunNanosSinceReport = duration;
+        }
+    }
+
+    public void reportOverruns(long nowNanos) {
+        if (nowNanos - lastReportAtNanos < REPORT_INTERVAL_NANOS) {
+            return;
+        }
+        if (overrunsSinceReport > 0L || skippedSinceReport > 0L) {
+            System.out.println(String.format(Locale.US,
+                "Tick overrun: %d ticks over the %.2f ms budget (worst %.2f ms), %d ticks skipped in the last %.1f s",
+                overrunsSinceReport,
+                tickIntervalNanos / 1_000_000.0,
+                worstOverrunNanosSinceReport / 1_000_000.0,
+                skippedSinceReport,
+                (nowNanos - lastReportAtNanos) / (double) NANOS_PER_SECOND));
+        }
+        overrunsSinceReport = 0L;
+        skippedSinceReport = 0L;
+        worstOverrunNanosSinceReport = 0L;
+        lastReportAtNanos = nowNanos;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getSendRate() {
+        return sendRate;
+    }
+
+    public long getTickIntervalNanos() {
+        return tickIntervalNanos;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    // Retraso del primer tick pendiente en la ultima llamada a dueTicks que devolvio trabajo.
+    public long getLastLateNanos() {
+        return lastLateNanos;
+    }
+
+    public long getSkippedTickCount() {
+        return skippedTickCount;
+    }
+}
@@ -0,0 +1,134 @@
+package com.flappyboldo.game.online.net;
+
+public final class SnapshotInterpolator {
+    private static final int CAPACITY = 32;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double MIN_DELAY_SECONDS = 0.05;
+    private static final double MAX_DELAY_SECONDS = 0.30;
+    private static final double CLOCK_SMOOTHING = 0.02;
+    private static final double JITTER_SMOOTHING = 0.1;
+
+    private final OnlineSnapshot[] snapshots;
+    private int head;
+    private int count;
+
+    private boolean clockReady;
+    private double clockOffsetSeconds;
+    private double sendIntervalSeconds;
+    private double jitterSeconds;
+    private double rttJitterSeconds;
+    private double lastArrivalSeconds;
+
+    public SnapshotInterpolator() {
+        this.snapshots = new OnlineSnapshot[CAPACITY];
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            snapshots[i] = null;
+        }
+        head = 0;
+        count = 0;
+        clockReady = false;
+        clockOffsetSeconds = 0.0;
+        sendIntervalSeconds = 0.0;
+        jitterSeconds = 0.0;
+        rttJitterSeconds = 0.0;
+        lastArrivalSeconds = 0.0;
+    }
+
+    public void add(OnlineSnapshot snapshot) {
+        if (snapshot == null || snapshot.tickRate <= 0) {
+            return;
+        }
+        OnlineSnapshot newest = latest();
+        if (newest != null && snapshot.tick <= newest.tick) {
+            return;
+        }
+
+        double arrivalSeconds = snapshot.receivedAtNanos / NANOS_PER_SECOND;
+        double serverSeconds = snapshot.tick / (double) snapshot.tickRate;
+        double clockSample = arrivalSeconds - serverSeconds;
+        if (!clockReady) {
+            clockOffsetSeconds = clockSample;
+            clockReady = true;
+        } else {
+            double tickGapSeconds = (snapshot.tick - newest.tick) / (double) snapshot.tickRate;
+            double arrivalGapSeconds = arrivalSeconds - lastArrivalSeconds;
+            sendIntervalSeconds += (tickGapSeconds - sendIntervalSeconds) * JITTER_SMOOTHING;
+            jitterSeconds += (Math.abs(arrivalGapSeconds - tickGapSeconds) - jitterSeconds) * JITTER_SMOOTHING;
+            if (clockSample < clockOffsetSeconds) {
+                // Un paquete mas rapido: el reloj se ajusta de inmediato hacia la latencia minima.
+                clockOffsetSeconds = clockSample;
+            } else {
+                clockOffsetSeconds += (clockSample - clockOffsetSeconds) * CLOCK_SMOOTHING;
+            }
+        }
+        lastArrivalSeconds = arrivalSeconds;
+
+        int index = (head + count) % CAPACITY;
+        if (count == CAPACITY) {
+            head = (head + 1) % CAPACITY;
+        } else {
+            count++;
+        }
+        snapshots[index] = snapshot;
+    }
+
+    public OnlineSnapshot latest() {
+        return count == 0 ? null : snapshots[(head + count - 1) % CAPACITY];
+    }
+
+    // Desviacion del RTT de la sesion. Media va en cada sentido: es el suelo del jitter de llegada, que
+    // arranca en cero y se suaviza despacio mientras el RTT ya tiene muestras desde el lobby.
+    public void setRttJitterMillis(float jitterMillis) {
+        rttJitterSeconds = Math.max(0.0, jitterMillis / 1_000.0);
+    }
+
+    public double getDelaySeconds() {
+        double jitter = Math.max(jitterSeconds, rttJitterSeconds * 0.5);
+        double delay = sendIntervalSeconds * 1.5 + jitter * 2.0;
+        return Math.max(MIN_DELAY_SECONDS, Math.min(MAX_DELAY_SECONDS, delay));
+    }
+
+    public float sampleBirdY(int playerId, long nowNanos, float fallback) {
+        OnlineSnapshot newest = latest();
+        if (newest == null) {
+            return fallback;
+        }
+        double renderTick = renderTick(nowNanos, newest.tickRate);
+        OnlineSnapshot before = null;
+        OnlineSnapshot after = null;
+        for (int i = 0; i < count; i++) {
+            OnlineSnapshot snapshot = snapshots[(head + i) % CAPACITY];
+            if (snapshot.indexOfBird(playerId) < 0) {
+                continue;
+            }
+            if (snapshot.tick <= renderTick) {
+                before = snapshot;
+            } else {
+                after = snapshot;
+                break;
+            }
+        }
+        if (before == null && after == null) {
+            return fallback;
+        }
+        if (before == null) {
+            return after.birdY[after.indexOfBird(playerId)];
+        }
+        float fromY = before.birdY[before.indexOfBird(playerId)];
+        if (after == null) {
+            return fromY;
+        }
+        float toY = after.birdY[after.indexOfBird(playerId)];
+        float alpha = (float) ((renderTick - before.tick) / (double) (after.tick - before.tick));
+        return fromY + (toY - fromY) * alpha;
+    }
+
+    private double renderTick(long nowNanos, int tickRate) {
+        double serverSeconds = nowNanos / NANOS_PER_SECOND - clockOffsetSeconds - getDelaySeconds();
+        return serverSeconds * tickRate;
+    }
+}
@@ -0,0 +1,161 @@
+package com.flappyboldo.game.online.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reparto a espectadores en su propio hilo. El tick codifica una vez el estado de la sala en un frame del
+// pool y lo entrega con el array de destinos; este hilo manda los mismos bytes a cada direccion. Si el pool
+// se agota (el reparto va retrasado) el frame se descarta: el siguiente es autocontenido y lo sustituye.
+// El socket es el de los jugadores: cada tick de espectadores gasta como mucho bytesPerTick y una rafaga se
+// corta en cuanto el socket no admite mas, para que el reparto nunca llene el buffer de envio de las partidas.
+final class SpectatorFanout extends Thread {
+    private static final int POOL_SIZE = 256;
+    private static final long POLL_MS = 100L;
+    private static final long CLOSE_TIMEOUT_MS = 2_000L;
+
+    private final DatagramChannel channel;
+    private final ServerMetrics metrics;
+    private final int bytesPerTick;
+    private final ArrayBlockingQueue<Frame> free;
+    private final ArrayBlockingQueue<Frame> pending;
+    private final LongAdder framesDropped;
+
+    private volatile boolean running;
+    private volatile long tickGeneration;
+    private long budgetGeneration;
+    private long budgetBytes;
+    private volatile long framesSent;
+    private volatile long datagramsSent;
+
+    SpectatorFanout(DatagramChannel channel, ServerMetrics metrics, int bytesPerTick) {
+        this.channel = channel;
+        this.metrics = metrics;
+        this.bytesPerTick = bytesPerTick;
+        this.free = new ArrayBlockingQueue<>(POOL_SIZE);
+        this.pending = new ArrayBlockingQueue<>(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            free.offer(new Frame());
+        }
+        this.framesDropped = new LongAdder();
+        this.running = true;
+        this.budgetGeneration = -1L;
+        setName("spectator-fanout");
+        setDaemon(true);
+    }
+
+    // Hilo del tick: abre el presupuesto de bytes de un nuevo tick de espectadores.
+    void beginTick() {
+        tickGeneration++;
+    }
+
+    // Hilo del tick: null si no queda frame libre.
+    Frame acquire() {
+        Frame frame = free.poll();
+        if (frame == null) {
+            framesDropped.increment();
+            return null;
+        }
+        frame.data.clear();
+        return frame;
+    }
+
+    // Hilo del tick: data ya debe estar en modo lectura. El array de destinos no se modifica nunca.
+    void submit(Frame frame, InetSocketAddress[] recipients) {
+        frame.recipients = recipients;
+        if (!pending.offer(frame)) {
+            framesDropped.increment();
+            release(frame);
+        }
+    }
+
+    void release(Frame frame) {
+        frame.recipients = null;
+        free.offer(frame);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            Frame frame;
+            try {
+                frame = pending.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (frame == null) {
+                continue;
+            }
+            try {
+                deliver(frame);
+            } finally {
+                release(frame);
+            }
+        }
+    }
+
+    private void deliver(Frame frame) {
+        ByteBuffer data = frame.data;
+        InetSocketAddress[] recipients = frame.recipients;
+        int bytes = data.remaining();
+        long generation = tickGeneration;
+        if (generation != budgetGeneration) {
+            budgetGeneration = generation;
+            budgetBytes = bytesPerTick;
+        }
+        int sent = 0;
+        int i = 0;
+        for (; i < recipients.length && budgetBytes >= bytes; i++) {
+            data.position(0);
+            try {
+                // DatagramChannel.send es seguro entre hilos: comparte el socket del servidor.
+                if (channel.send(data, recipients[i]) == 0) {
+                    // Buffer de envio lleno: lo que quede del tick seria a costa de los jugadores.
+                    budgetBytes = 0L;
+                    break;
+                }
+                metrics.recordPacketOut(bytes);
+                budgetBytes -= bytes;
+                sent++;
+            } catch (IOException ignored) {
+                // Espectador inaccesible: caduca por falta de keepalive.
+            }
+        }
+        if (i < recipients.length) {
+            metrics.recordSpectatorDatagramsDropped(recipients.length - i);
+        }
+        framesSent++;
+        datagramsSent += sent;
+    }
+
+    // Sin interrupt(): interrumpir un send en curso cerraria el canal, que es el del servidor.
+    void close() {
+        running = false;
+        try {
+            join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getFramesSent() {
+        return framesSent;
+    }
+
+    long getDatagramsSent() {
+        return datagramsSent;
+    }
+
+    long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    static final class Frame {
+        final ByteBuffer data = ByteBuffer.allocateDirect(OutboundQueue.MAX_DATAGRAM_SIZE);
+        private InetSocketAddress[] recipients;
+    }
+}
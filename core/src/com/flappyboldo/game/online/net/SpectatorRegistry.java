@@ -0,0 +1,148 @@
+package com.flappyboldo.game.online.net;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Espectadores por sala. Solo lo usa el hilo del servidor; cada sala publica un array inmutable de
+// direcciones que se sustituye entero al cambiar, asi el hilo de reparto lo lee sin copiarlo ni bloquear.
+final class SpectatorRegistry {
+    static final int JOINED = 0;
+    static final int REFRESHED = 1;
+    static final int FULL = 2;
+
+    private static final InetSocketAddress[] NO_ADDRESSES = new InetSocketAddress[0];
+
+    private final int maxPerRoom;
+    private final int maxTotal;
+    private final Map<InetSocketAddress, Spectator> byAddress;
+    private final Map<Integer, Group> groups;
+    private final List<Spectator> all;
+    private int sweepCursor;
+
+    SpectatorRegistry(int maxPerRoom, int maxTotal) {
+        this.maxPerRoom = maxPerRoom;
+        this.maxTotal = maxTotal;
+        this.byAddress = new HashMap<>();
+        this.groups = new HashMap<>();
+        this.all = new ArrayList<>();
+    }
+
+    int size() {
+        return all.size();
+    }
+
+    int join(InetSocketAddress address, int roomId, long nowMs) {
+        Spectator existing = byAddress.get(address);
+        if (existing != null) {
+            if (existing.roomId == roomId) {
+                existing.lastSeenMs = nowMs;
+                return REFRESHED;
+            }
+            remove(existing);
+        }
+        Group group = groups.get(roomId);
+        if (all.size() >= maxTotal || (group != null && group.members.size() >= maxPerRoom)) {
+            return FULL;
+        }
+        if (group == null) {
+            group = new Group();
+            groups.put(roomId, group);
+        }
+        Spectator spectator = new Spectator(address, roomId, nowMs);
+        spectator.index = all.size();
+        all.add(spectator);
+        byAddress.put(address, spectator);
+        group.members.add(spectator);
+        group.publish();
+        return JOINED;
+    }
+
+    boolean touch(InetSocketAddress address, long nowMs) {
+        Spectator spectator = byAddress.get(address);
+        if (spectator == null) {
+            return false;
+        }
+        spectator.lastSeenMs = nowMs;
+        return true;
+    }
+
+    boolean leave(InetSocketAddress address) {
+        Spectator spectator = byAddress.get(address);
+        if (spectator == null) {
+            return false;
+        }
+        remove(spectator);
+        return true;
+    }
+
+    // null si nadie mira la sala: el tick no codifica nada para ella.
+    InetSocketAddress[] recipients(int roomId) {
+        Group group = groups.get(roomId);
+        return group != null ? group.addresses : null;
+    }
+
+    // Revisa como mucho budget espectadores por llamada, en turno rotatorio, para que el coste del tick
+    // no crezca con el numero de espectadores.
+    int sweep(long nowMs, long timeoutMs, int budget) {
+        int removed = 0;
+        for (int i = 0; i < budget && !all.isEmpty(); i++) {
+            if (sweepCursor >= all.size()) {
+                sweepCursor = 0;
+            }
+            Spectator spectator = all.get(sweepCursor);
+            if (nowMs - spectator.lastSeenMs >= timeoutMs) {
+                remove(spectator);
+                removed++;
+            } else {
+                sweepCursor++;
+            }
+        }
+        return removed;
+    }
+
+    private void remove(Spectator spectator) {
+        byAddress.remove(spectator.address);
+        int last = all.size() - 1;
+        Spectator moved = all.remove(last);
+        if (moved != spectator) {
+            all.set(spectator.index, moved);
+            moved.index = spectator.index;
+        }
+        Group group = groups.get(spectator.roomId);
+        group.members.remove(spectator);
+        if (group.members.isEmpty()) {
+            groups.remove(spectator.roomId);
+        } else {
+            group.publish();
+        }
+    }
+
+    private static final class Group {
+        private final List<Spectator> members = new ArrayList<>();
+        private InetSocketAddress[] addresses = NO_ADDRESSES;
+
+        private void publish() {
+            InetSocketAddress[] next = new InetSocketAddress[members.size()];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = members.get(i).address;
+            }
+            addresses = next;
+        }
+    }
+
+    private static final class Spectator {
+        private final InetSocketAddress address;
+        private final int roomId;
+        private long lastSeenMs;
+        private int index;
+
+        private Spectator(InetSocketAddress address, int roomId, long nowMs) {
+            this.address = address;
+            this.roomId = roomId;
+            this.lastSeenMs = nowMs;
+        }
+    }
+}
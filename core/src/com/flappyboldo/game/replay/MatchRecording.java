@@ -0,0 +1,128 @@
+package com.flappyboldo.game.replay;
+
+import java.nio.ByteBuffer;
+
+// Buffer de una partida. Lo llena el hilo del tick sin reservar memoria; si se llena, la partida
+// se marca como truncada y se dejan de anotar eventos, pero siempre queda sitio para el cierre.
+public final class MatchRecording {
+    static final int CAPACITY = 32 * 1024;
+    private static final int END_RESERVE = 256;
+
+    private final ByteBuffer buffer;
+    private boolean active;
+    private int flags;
+
+    MatchRecording() {
+        this.buffer = ByteBuffer.allocate(CAPACITY);
+    }
+
+    public void begin(int roomId, int courseSeed, int tickRate, int compensationTicks, float birdX, float startY,
+                      int birdCount) {
+        buffer.clear();
+        flags = 0;
+        active = true;
+        buffer.putInt(0);
+        ReplayFormat.writeVarInt(buffer, roomId);
+        ReplayFormat.writeVarLong(buffer, System.currentTimeMillis());
+        ReplayFormat.writeVarInt(buffer, courseSeed);
+        ReplayFormat.writeVarInt(buffer, tickRate);
+        ReplayFormat.writeVarInt(buffer, compensationTicks);
+        ReplayFormat.writeFloat(buffer, birdX);
+        ReplayFormat.writeFloat(buffer, startY);
+        ReplayFormat.writeVarInt(buffer, birdCount);
+    }
+
+    // Tras begin, una vez por jugador: id 0 deja el hueco vacio.
+    public void player(int id, String name) {
+        ReplayFormat.writeVarInt(buffer, id);
+        ReplayFormat.writeString(buffer, name);
+    }
+
+    public void jump(long tick, int slot) {
+        if (reserve()) {
+            buffer.put((byte) ReplayFormat.EV_JUMP);
+            ReplayFormat.writeVarLong(buffer, tick);
+            ReplayFormat.writeVarInt(buffer, slot);
+        }
+    }
+
+    public void spawn(long tick, int index, float gapCenterY) {
+        if (reserve()) {
+            buffer.put((byte) ReplayFormat.EV_SPAWN);
+            ReplayFormat.writeVarLong(buffer, tick);
+            ReplayFormat.writeVarInt(buffer, index);
+            ReplayFormat.writeFloat(buffer, gapCenterY);
+        }
+    }
+
+    public void eliminated(long tick, int slot, int score) {
+        if (reserve()) {
+            buffer.put((byte) ReplayFormat.EV_ELIMINATED);
+            ReplayFormat.writeVarLong(buffer, tick);
+            ReplayFormat.writeVarInt(buffer, slot);
+            ReplayFormat.writeVarInt(buffer, score);
+        }
+    }
+
+    public void leave(long tick, int slot) {
+        if (reserve()) {
+            buffer.put((byte) ReplayFormat.EV_LEAVE);
+            ReplayFormat.writeVarLong(buffer, tick);
+            ReplayFormat.writeVarInt(buffer, slot);
+        }
+    }
+
+    // Resultado confirmado de un hueco; va antes de finish y no cuenta contra el limite de eventos.
+    public void result(int slot, int status, int score, long eliminatedTick) {
+        if (!active) {
+            return;
+        }
+        buffer.put((byte) ReplayFormat.EV_RESULT);
+        ReplayFormat.writeVarInt(buffer, slot);
+        ReplayFormat.writeVarInt(buffer, status);
+        ReplayFormat.writeVarInt(buffer, score);
+        ReplayFormat.writeVarLong(buffer, eliminatedTick + 1L);
+    }
+
+    public void finish(long tick, long confirmedTick, int winnerId, boolean aborted) {
+        if (!active) {
+            return;
+        }
+        if (aborted) {
+            flags |= ReplayFormat.FLAG_ABORTED;
+        }
+        buffer.put((byte) ReplayFormat.EV_END);
+        ReplayFormat.writeVarLong(buffer, tick);
+        ReplayFormat.writeVarLong(buffer, confirmedTick);
+        ReplayFormat.writeVarInt(buffer, winnerId);
+        ReplayFormat.writeVarInt(buffer, flags);
+        buffer.putInt(0, buffer.position() - 4);
+        buffer.flip();
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    private boolean reserve() {
+        if (!active) {
+            return false;
+        }
+        if (buffer.remaining() < END_RESERVE) {
+            flags |= ReplayFormat.FLAG_TRUNCATED;
+            return false;
+        }
+        return true;
+    }
+
+    ByteBuffer data() {
+        return buffer;
+    }
+
+    void clear() {
+        buffer.clear();
+        active = false;
+        flags = 0;
+    }
+}
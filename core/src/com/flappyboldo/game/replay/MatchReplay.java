@@ -0,0 +1,56 @@
+package com.flappyboldo.game.replay;
+
+// Una partida leida de un archivo de repeticion. Los saltos estan en el tick en que actuaron, no en
+// el orden en que llegaron: los tardios aparecen despues de ticks posteriores.
+public final class MatchReplay {
+    public String source;
+    public int roomId;
+    public long startedAtMillis;
+    public int courseSeed;
+    public int tickRate;
+    public int compensationTicks;
+    public float birdX;
+    public float startY;
+    public int birdCount;
+    public int[] playerIds;
+    public String[] playerNames;
+
+    public int jumpCount;
+    public long[] jumpTicks = new long[16];
+    public int[] jumpSlots = new int[16];
+
+    public int spawnCount;
+    public long[] spawnTicks = new long[8];
+    public int[] spawnIndices = new int[8];
+    public float[] spawnGaps = new float[8];
+
+    public int eliminationCount;
+    public long[] eliminationTicks = new long[2];
+    public int[] eliminationSlots = new int[2];
+    public int[] eliminationScores = new int[2];
+
+    public int leaveCount;
+    public long[] leaveTicks = new long[2];
+    public int[] leaveSlots = new int[2];
+
+    public int[] resultStatus;
+    public int[] resultScores;
+    public long[] resultEliminatedTicks;
+
+    public long endTick;
+    public long confirmedTick;
+    public int winnerId;
+    public int flags;
+
+    public boolean isTruncated() {
+        return (flags & ReplayFormat.FLAG_TRUNCATED) != 0;
+    }
+
+    public boolean isAborted() {
+        return (flags & ReplayFormat.FLAG_ABORTED) != 0;
+    }
+
+    public String describe() {
+        return source + " room " + roomId + " seed " + courseSeed + " (" + endTick + " ticks)";
+    }
+}
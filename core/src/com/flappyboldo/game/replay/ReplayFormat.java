@@ -0,0 +1,98 @@
+package com.flappyboldo.game.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Formato de repeticion: cada archivo empieza con MAGIC + VERSION y sigue con partidas completas,
+// una detras de otra. Cada partida es [longitud int32][cabecera][eventos...][EV_END].
+// Los ticks son absolutos desde el inicio de la partida y van como varint, igual que en el protocolo.
+public final class ReplayFormat {
+    public static final byte[] MAGIC = {'F', 'B', 'R', 'P'};
+    public static final int VERSION = 1;
+    public static final String FILE_EXTENSION = ".fbr";
+
+    public static final int EV_JUMP = 1;
+    public static final int EV_SPAWN = 2;
+    public static final int EV_ELIMINATED = 3;
+    public static final int EV_LEAVE = 4;
+    public static final int EV_RESULT = 5;
+    public static final int EV_END = 6;
+
+    public static final int RESULT_ABSENT = 0;
+    public static final int RESULT_ALIVE = 1;
+    public static final int RESULT_ELIMINATED = 2;
+
+    public static final int FLAG_TRUNCATED = 1;
+    public static final int FLAG_ABORTED = 2;
+
+    public static final int MAX_NAME_BYTES = 64;
+
+    private ReplayFormat() {
+    }
+
+    public static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static long readVarLong(ByteBuffer in) {
+        long result = 0L;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varlong");
+    }
+
+    // Los float viajan en bits crudos: la verificacion compara valores exactos, no cuantizados.
+    public static void writeFloat(ByteBuffer out, float value) {
+        out.putInt(Float.floatToRawIntBits(value));
+    }
+
+    public static float readFloat(ByteBuffer in) {
+        return Float.intBitsToFloat(in.getInt());
+    }
+
+    public static void writeString(ByteBuffer out, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_NAME_BYTES);
+        writeVarInt(out, length);
+        out.put(bytes, 0, length);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > MAX_NAME_BYTES || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
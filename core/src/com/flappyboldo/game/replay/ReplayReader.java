@@ -0,0 +1,197 @@
+package com.flappyboldo.game.replay;
+
+import com.flappyboldo.game.sim.FlappySimulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Lee un archivo .fbr mapeado en memoria. Una partida a medio escribir al final (el servidor murio
+// mientras escribia) no invalida las anteriores: se descarta y se informa con getDiscardedBytes().
+public final class ReplayReader {
+    private final File file;
+    private int discardedBytes;
+
+    public ReplayReader(File file) {
+        this.file = file;
+    }
+
+    public List<MatchReplay> readAll() throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        }
+        readHeader(data);
+        List<MatchReplay> matches = new ArrayList<>();
+        discardedBytes = 0;
+        while (data.remaining() >= 4) {
+            int length = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                discardedBytes = data.remaining() + 4;
+                break;
+            }
+            ByteBuffer record = data.slice();
+            record.limit(length);
+            data.position(data.position() + length);
+            try {
+                matches.add(parse(record));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupt match record in " + file + " at byte " + (data.position() - length), e);
+            }
+        }
+        discardedBytes += data.remaining();
+        return matches;
+    }
+
+    public int getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    private void readHeader(ByteBuffer data) throws IOException {
+        byte[] magic = new byte[ReplayFormat.MAGIC.length];
+        if (data.remaining() < magic.length + 1) {
+            throw new IOException("Not a replay file: " + file);
+        }
+        data.get(magic);
+        if (!Arrays.equals(magic, ReplayFormat.MAGIC)) {
+            throw new IOException("Not a replay file: " + file);
+        }
+        int version = data.get() & 0xFF;
+        if (version != ReplayFormat.VERSION) {
+            throw new IOException("Unsupported replay version " + version + " in " + file);
+        }
+    }
+
+    private MatchReplay parse(ByteBuffer in) {
+        MatchReplay match = new MatchReplay();
+        match.source = file.getName();
+        match.roomId = ReplayFormat.readVarInt(in);
+        match.startedAtMillis = ReplayFormat.readVarLong(in);
+        match.courseSeed = ReplayFormat.readVarInt(in);
+        match.tickRate = ReplayFormat.readVarInt(in);
+        if (match.tickRate <= 0) {
+            throw new IllegalArgumentException("Invalid tick rate " + match.tickRate);
+        }
+        match.compensationTicks = ReplayFormat.readVarInt(in);
+        match.birdX = ReplayFormat.readFloat(in);
+        match.startY = ReplayFormat.readFloat(in);
+        int birdCount = ReplayFormat.readVarInt(in);
+        if (birdCount < 1 || birdCount > FlappySimulation.MAX_BIRDS) {
+            throw new IllegalArgumentException("Invalid bird count " + birdCount);
+        }
+        match.birdCount = birdCount;
+        match.playerIds = new int[birdCount];
+        match.playerNames = new String[birdCount];
+        match.resultStatus = new int[birdCount];
+        match.resultScores = new int[birdCount];
+        match.resultEliminatedTicks = new long[birdCount];
+        Arrays.fill(match.resultEliminatedTicks, -1L);
+        for (int slot = 0; slot < birdCount; slot++) {
+            match.playerIds[slot] = ReplayFormat.readVarInt(in);
+            match.playerNames[slot] = ReplayFormat.readString(in);
+        }
+
+        boolean ended = false;
+        while (in.hasRemaining() && !ended) {
+            int event = in.get() & 0xFF;
+            switch (event) {
+                case ReplayFormat.EV_JUMP:
+                    addJump(match, ReplayFormat.readVarLong(in), readSlot(in, birdCount));
+                    break;
+                case ReplayFormat.EV_SPAWN:
+                    addSpawn(match, ReplayFormat.readVarLong(in), ReplayFormat.readVarInt(in), ReplayFormat.readFloat(in));
+                    break;
+                case ReplayFormat.EV_ELIMINATED:
+                    addElimination(match, ReplayFormat.readVarLong(in), readSlot(in, birdCount),
+                        ReplayFormat.readVarInt(in));
+                    break;
+                case ReplayFormat.EV_LEAVE:
+                    addLeave(match, ReplayFormat.readVarLong(in), readSlot(in, birdCount));
+                    break;
+                case ReplayFormat.EV_RESULT: {
+                    int slot = readSlot(in, birdCount);
+                    match.resultStatus[slot] = ReplayFormat.readVarInt(in);
+                    match.resultScores[slot] = ReplayFormat.readVarInt(in);
+                    match.resultEliminatedTicks[slot] = ReplayFormat.readVarLong(in) - 1L;
+                    break;
+                }
+                case ReplayFormat.EV_END:
+                    match.endTick = ReplayFormat.readVarLong(in);
+                    match.confirmedTick = ReplayFormat.readVarLong(in);
+                    match.winnerId = ReplayFormat.readVarInt(in);
+                    match.flags = ReplayFormat.readVarInt(in);
+                    ended = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown replay event " + event);
+            }
+        }
+        if (!ended) {
+            throw new IllegalArgumentException("Match record without end");
+        }
+        return match;
+    }
+
+    private static int readSlot(ByteBuffer in, int birdCount) {
+        int slot = ReplayFormat.readVarInt(in);
+        if (slot < 0 || slot >= birdCount) {
+            throw new IllegalArgumentException("Invalid slot " + slot);
+        }
+        return slot;
+    }
+
+    private static void addJump(MatchReplay match, long tick, int slot) {
+        int n = match.jumpCount;
+        if (n == match.jumpTicks.length) {
+            match.jumpTicks = Arrays.copyOf(match.jumpTicks, n * 2);
+            match.jumpSlots = Arrays.copyOf(match.jumpSlots, n * 2);
+        }
+        match.jumpTicks[n] = tick;
+        match.jumpSlots[n] = slot;
+        match.jumpCount = n + 1;
+    }
+
+    private static void addSpawn(MatchReplay match, long tick, int index, float gap) {
+        int n = match.spawnCount;
+        if (n == match.spawnTicks.length) {
+            match.spawnTicks = Arrays.copyOf(match.spawnTicks, n * 2);
+            match.spawnIndices = Arrays.copyOf(match.spawnIndices, n * 2);
+            match.spawnGaps = Arrays.copyOf(match.spawnGaps, n * 2);
+        }
+        match.spawnTicks[n] = tick;
+        match.spawnIndices[n] = index;
+        match.spawnGaps[n] = gap;
+        match.spawnCount = n + 1;
+    }
+
+    private static void addElimination(MatchReplay match, long tick, int slot, int score) {
+        int n = match.eliminationCount;
+        if (n == match.eliminationTicks.length) {
+            match.eliminationTicks = Arrays.copyOf(match.eliminationTicks, n * 2);
+            match.eliminationSlots = Arrays.copyOf(match.eliminationSlots, n * 2);
+            match.eliminationScores = Arrays.copyOf(match.eliminationScores, n * 2);
+        }
+        match.eliminationTicks[n] = tick;
+        match.eliminationSlots[n] = slot;
+        match.eliminationScores[n] = score;
+        match.eliminationCount = n + 1;
+    }
+
+    private static void addLeave(MatchReplay match, long tick, int slot) {
+        int n = match.leaveCount;
+        if (n == match.leaveTicks.length) {
+            match.leaveTicks = Arrays.copyOf(match.leaveTicks, n * 2);
+            match.leaveSlots = Arrays.copyOf(match.leaveSlots, n * 2);
+        }
+        match.leaveTicks[n] = tick;
+        match.leaveSlots[n] = slot;
+        match.leaveCount = n + 1;
+    }
+}
@@ -0,0 +1,196 @@
+package com.flappyboldo.game.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Escritor de repeticiones en su propio hilo. El tick solo toma y devuelve buffers de un pool acotado con
+// poll/offer, que nunca esperan: si el pool o la cola se agotan, la partida se descarta y se cuenta.
+public final class ReplayRecorder extends Thread {
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024L * 1024L;
+
+    // Una partida en curso por sala mas las que esperan al disco; los buffers se crean al primer uso.
+    private static final int MAX_RECORDINGS = 1024;
+    private static final long POLL_MS = 100L;
+    private static final long CLOSE_TIMEOUT_MS = 2_000L;
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final ArrayBlockingQueue<MatchRecording> free;
+    private final ArrayBlockingQueue<MatchRecording> pending;
+    private final ByteBuffer fileHeader;
+    private final LongAdder matchesDropped;
+    private final AtomicInteger allocated;
+
+    private volatile boolean running;
+    private volatile long matchesWritten;
+    private volatile long bytesWritten;
+    private volatile File currentFile;
+
+    private FileChannel channel;
+    private long fileBytes;
+    private int fileSequence;
+    private boolean failureReported;
+
+    public ReplayRecorder(File directory, long maxFileBytes) throws IOException {
+        if (maxFileBytes < MatchRecording.CAPACITY) {
+            throw new IllegalArgumentException("Replay files must allow at least " + MatchRecording.CAPACITY + " bytes");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create replay directory " + directory);
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.free = new ArrayBlockingQueue<>(MAX_RECORDINGS);
+        this.pending = new ArrayBlockingQueue<>(MAX_RECORDINGS);
+        this.allocated = new AtomicInteger();
+        this.fileHeader = ByteBuffer.allocate(ReplayFormat.MAGIC.length + 1);
+        this.fileHeader.put(ReplayFormat.MAGIC).put((byte) ReplayFormat.VERSION).flip();
+        this.matchesDropped = new LongAdder();
+        this.running = true;
+        setName("replay-writer");
+        setDaemon(true);
+    }
+
+    // Hilo del tick: null si no queda buffer libre (la partida no se graba).
+    public MatchRecording acquire() {
+        MatchRecording recording = free.poll();
+        if (recording != null) {
+            return recording;
+        }
+        if (allocated.incrementAndGet() <= MAX_RECORDINGS) {
+            return new MatchRecording();
+        }
+        allocated.decrementAndGet();
+        matchesDropped.increment();
+        return null;
+    }
+
+    // Hilo del tick: entrega una partida cerrada con finish o devuelve al pool una sin cerrar.
+    public void submit(MatchRecording recording) {
+        if (recording.isActive() || !pending.offer(recording)) {
+            matchesDropped.increment();
+            release(recording);
+        }
+    }
+
+    private void release(MatchRecording recording) {
+        recording.clear();
+        free.offer(recording);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running || !pending.isEmpty()) {
+                MatchRecording recording;
+                try {
+                    recording = pending.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (recording == null) {
+                    continue;
+                }
+                try {
+                    write(recording.data());
+                    matchesWritten++;
+                } catch (IOException e) {
+                    matchesDropped.increment();
+                    reportFailure(e);
+                    closeFile();
+                } finally {
+                    release(recording);
+                }
+            }
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        if (channel == null || fileBytes + length > maxFileBytes) {
+            rollFile();
+        }
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        fileBytes += length;
+        bytesWritten += length;
+    }
+
+    private void rollFile() throws IOException {
+        closeFile();
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file;
+        do {
+            file = new File(directory, "replay-" + stamp + "-" + (fileSequence++) + ReplayFormat.FILE_EXTENSION);
+        } while (file.exists());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        fileHeader.rewind();
+        while (fileHeader.hasRemaining()) {
+            channel.write(fileHeader);
+        }
+        fileBytes = fileHeader.limit();
+        currentFile = file;
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException ignored) {
+            // Cierre best effort.
+        }
+        channel = null;
+    }
+
+    private void reportFailure(IOException e) {
+        if (!failureReported) {
+            failureReported = true;
+            System.out.println("Replay recording error: " + e.getMessage());
+        }
+    }
+
+    // Deja que el escritor vacie la cola y cierre el archivo actual. Sin interrupt(): cerraria el canal.
+    public void close() {
+        running = false;
+        try {
+            join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    public long getMatchesWritten() {
+        return matchesWritten;
+    }
+
+    public long getMatchesDropped() {
+        return matchesDropped.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+}
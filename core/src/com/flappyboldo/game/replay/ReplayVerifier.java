@@ -0,0 +1,191 @@
+package com.flappyboldo.game.replay;
+
+import com.flappyboldo.game.sim.FlappySimulation;
+import com.flappyboldo.game.sim.PipeCourse;
+
+import java.util.Arrays;
+
+// Vuelve a simular una partida grabada a paso fijo, sin esperas, y la compara con lo que anuncio el
+// servidor: recorrido de tubos, eliminaciones, marcadores y ganador. Sin estado: apto para varios hilos.
+public final class ReplayVerifier {
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_MISMATCH = 1;
+    public static final int STATUS_SKIPPED = 2;
+
+    private static final int SLOT_BITS = 4;
+
+    private ReplayVerifier() {
+    }
+
+    public static Result verify(MatchReplay match) {
+        if (match.isTruncated()) {
+            return new Result(STATUS_SKIPPED, "truncated recording", 0L);
+        }
+        if (match.tickRate <= 0 || match.confirmedTick > match.endTick) {
+            return new Result(STATUS_MISMATCH, "invalid header or end ticks", 0L);
+        }
+        FlappySimulation simulation = new FlappySimulation(match.birdCount, match.birdX, match.tickRate);
+        PipeCourse course = new PipeCourse(match.courseSeed, match.tickRate);
+        simulation.setCourse(course);
+        simulation.reset(match.startY);
+
+        // El servidor anuncia el estado confirmado de hace compensationTicks: se compara ese mismo tick.
+        // Con confirmedTick 0 la partida acabo antes de salir de la ventana y cuenta el estado inicial.
+        if (match.confirmedTick == 0L) {
+            String failure = checkConfirmed(match, simulation);
+            if (failure != null) {
+                return new Result(STATUS_MISMATCH, failure, 0L);
+            }
+        }
+
+        long[] jumps = sortedJumps(match);
+        int nextJump = 0;
+        int nextSpawn = 0;
+        // Los saltos tardios se grabaron en el tick en que actuaron, asi que basta un paso por tick.
+        while (simulation.getTick() < match.endTick) {
+            long tick = simulation.getTick() + 1L;
+            int jumpMask = 0;
+            while (nextJump < jumps.length && (jumps[nextJump] >>> SLOT_BITS) <= tick) {
+                if ((jumps[nextJump] >>> SLOT_BITS) == tick) {
+                    jumpMask |= 1 << (int) (jumps[nextJump] & ((1 << SLOT_BITS) - 1));
+                }
+                nextJump++;
+            }
+            simulation.step(jumpMask);
+
+            while (nextSpawn < course.getNextIndex()) {
+                String failure = checkSpawn(match, course, nextSpawn, tick);
+                if (failure != null) {
+                    return new Result(STATUS_MISMATCH, failure, tick);
+                }
+                nextSpawn++;
+            }
+            if (tick == match.confirmedTick) {
+                String failure = checkConfirmed(match, simulation);
+                if (failure != null) {
+                    return new Result(STATUS_MISMATCH, failure, tick);
+                }
+            }
+        }
+        if (nextSpawn != match.spawnCount) {
+            return new Result(STATUS_MISMATCH, (match.spawnCount - nextSpawn) + " recorded pipes never spawned",
+                simulation.getTick());
+        }
+        return new Result(STATUS_OK, null, simulation.getTick());
+    }
+
+    // El recorrido empieza en el indice 0, asi que el n-esimo tubo grabado es el de indice n.
+    private static String checkSpawn(MatchReplay match, PipeCourse course, int index, long tick) {
+        float gap = course.gapCenterY(index);
+        if (index >= match.spawnCount) {
+            return "pipe " + index + " spawned at tick " + tick + " but was not recorded";
+        }
+        if (match.spawnTicks[index] != tick || match.spawnIndices[index] != index
+            || Float.floatToRawIntBits(match.spawnGaps[index]) != Float.floatToRawIntBits(gap)) {
+            return "pipe " + index + " expected at tick " + tick + " with gap " + gap + ", recorded pipe "
+                + match.spawnIndices[index] + " at tick " + match.spawnTicks[index] + " with gap " + match.spawnGaps[index];
+        }
+        return null;
+    }
+
+    private static String checkConfirmed(MatchReplay match, FlappySimulation confirmed) {
+        for (int i = 0; i < match.eliminationCount; i++) {
+            int slot = match.eliminationSlots[i];
+            if (confirmed.isBirdAlive(slot) || confirmed.getEliminatedTick(slot) != match.eliminationTicks[i]
+                || confirmed.getBirdScore(slot) != match.eliminationScores[i]) {
+                return "P" + match.playerIds[slot] + " recorded eliminated at tick " + match.eliminationTicks[i]
+                    + " with " + match.eliminationScores[i] + " points, simulated " + describeBird(confirmed, slot);
+            }
+        }
+        int present = 0;
+        int alive = 0;
+        int lastAliveSlot = -1;
+        for (int slot = 0; slot < match.birdCount; slot++) {
+            int status = match.resultStatus[slot];
+            if (status == ReplayFormat.RESULT_ABSENT) {
+                continue;
+            }
+            present++;
+            boolean recordedAlive = status == ReplayFormat.RESULT_ALIVE;
+            if (confirmed.isBirdAlive(slot) != recordedAlive || confirmed.getBirdScore(slot) != match.resultScores[slot]
+                || (!recordedAlive && confirmed.getEliminatedTick(slot) != match.resultEliminatedTicks[slot])) {
+                return "P" + match.playerIds[slot] + " recorded " + (recordedAlive ? "alive" : "eliminated at tick "
+                    + match.resultEliminatedTicks[slot]) + " with " + match.resultScores[slot] + " points, simulated "
+                    + describeBird(confirmed, slot);
+            }
+            if (recordedAlive) {
+                alive++;
+                lastAliveSlot = slot;
+            }
+        }
+        if (match.isAborted()) {
+            return null;
+        }
+        int expectedWinner = expectedWinner(match, present, alive, lastAliveSlot);
+        if (expectedWinner != match.winnerId) {
+            return "recorded winner P" + match.winnerId + ", expected P" + expectedWinner;
+        }
+        return null;
+    }
+
+    // Las mismas reglas que OnlineRoom.evaluateGameFinish y el abandono de un jugador.
+    private static int expectedWinner(MatchReplay match, int present, int alive, int lastAliveSlot) {
+        if (match.leaveCount > 0) {
+            if (present == 1) {
+                for (int slot = 0; slot < match.birdCount; slot++) {
+                    if (match.resultStatus[slot] != ReplayFormat.RESULT_ABSENT) {
+                        return match.playerIds[slot];
+                    }
+                }
+            }
+            return present == 0 ? 0 : match.winnerId;
+        }
+        if (alive == 1) {
+            return match.playerIds[lastAliveSlot];
+        }
+        if (alive > 1 || present < 2) {
+            return alive > 1 ? -1 : 0;
+        }
+        long latest = -1L;
+        int winner = 0;
+        for (int slot = 0; slot < match.birdCount; slot++) {
+            long eliminated = match.resultEliminatedTicks[slot];
+            if (match.resultStatus[slot] == ReplayFormat.RESULT_ABSENT) {
+                continue;
+            }
+            if (eliminated > latest) {
+                latest = eliminated;
+                winner = match.playerIds[slot];
+            } else if (eliminated == latest) {
+                winner = 0;
+            }
+        }
+        return winner;
+    }
+
+    private static String describeBird(FlappySimulation simulation, int slot) {
+        return (simulation.isBirdAlive(slot) ? "alive" : "eliminated at tick " + simulation.getEliminatedTick(slot))
+            + " with " + simulation.getBirdScore(slot) + " points";
+    }
+
+    private static long[] sortedJumps(MatchReplay match) {
+        long[] jumps = new long[match.jumpCount];
+        for (int i = 0; i < jumps.length; i++) {
+            jumps[i] = match.jumpTicks[i] << SLOT_BITS | match.jumpSlots[i];
+        }
+        Arrays.sort(jumps);
+        return jumps;
+    }
+
+    public static final class Result {
+        public final int status;
+        public final String detail;
+        public final long simulatedTicks;
+
+        public Result(int status, String detail, long simulatedTicks) {
+            this.status = status;
+            this.detail = detail;
+            this.simulatedTicks = simulatedTicks;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.flappyboldo.game.sim;
+
+public final class FlappySimulation {
+    public static final float WORLD_WIDTH = 100f;
+    public static final float WORLD_HEIGHT = 200f;
+    public static final float GROUND_HEIGHT = 0.15f * WORLD_HEIGHT;
+    public static final float PIPE_WIDTH = WORLD_WIDTH / 6f;
+    public static final float PIPE_GAP_HEIGHT = WORLD_HEIGHT / 3f;
+    public static final float PIPE_HEAD_HEIGHT = WORLD_HEIGHT / 30f;
+    public static final float PIPE_SPEED = 50f;
+    public static final float BIRD_WIDTH = 0.15f * WORLD_WIDTH;
+    public static final float BIRD_HEIGHT = WORLD_HEIGHT / 17f;
+    public static final float CEILING_Y = WORLD_HEIGHT - BIRD_HEIGHT;
+    public static final float GRAVITY = 400f;
+    public static final float JUMP_FORCE = 130f;
+
+    public static final int DEFAULT_TICK_RATE = 120;
+    public static final int MAX_BIRDS = 8;
+    public static final int MAX_PIPES = 16;
+
+    private static final int PIPE_MASK = MAX_PIPES - 1;
+
+    private static final int MAX_STEPS_PER_FRAME = 30;
+
+    // Solo se usan + - * / y comparaciones en float: desde Java 17 toda la aritmetica es estricta,
+    // asi que la misma secuencia de entradas da resultados identicos bit a bit en cualquier JVM.
+    private final int birdCount;
+    private final float[] birdY;
+    private final float[] birdVelocity;
+    private final boolean[] birdAlive;
+    private final int[] birdScore;
+    private final long[] eliminatedTick;
+
+    // Anillo de tubos ordenado por x: entran por la cola a la derecha y se retiran por la cabeza.
+    private final float[] pipeX;
+    private final float[] pipeGapY;
+    private final int[] pipeScoredMask;
+    private int pipeHead;
+    private int pipeCount;
+
+    private float birdX;
+    private int tickRate;
+    private float stepSeconds;
+    private float accumulator;
+    private int pendingJumpMask;
+    private long tick;
+    private boolean collisionsEnabled;
+    private PipeCourse course;
+
+    public FlappySimulation(int birdCount, float birdX, int tickRate) {
+        if (birdCount < 1 || birdCount > MAX_BIRDS) {
+            throw new IllegalArgumentException("birdCount must be between 1 and " + MAX_BIRDS);
+        }
+        this.birdCount = birdCount;
+        this.birdY = new float[birdCount];
+        this.birdVelocity = new float[birdCount];
+        this.birdAlive = new boolean[birdCount];
+        this.birdScore = new int[birdCount];
+        this.eliminatedTick = new long[birdCount];
+        this.pipeX = new float[MAX_PIPES];
+        this.pipeGapY = new float[MAX_PIPES];
+        this.pipeScoredMask = new int[MAX_PIPES];
+        this.birdX = birdX;
+        this.collisionsEnabled = true;
+        setTickRate(tickRate);
+        reset(WORLD_HEIGHT / 2f);
+    }
+
+    public void reset(float startY) {
+        for (int i = 0; i < birdCount; i++) {
+            resetBird(i, startY);
+        }
+        pipeHead = 0;
+        pipeCount = 0;
+        accumulator = 0f;
+        pendingJumpMask = 0;
+        tick = 0L;
+    }
+
+    public void resetBird(int slot, float startY) {
+        birdY[slot] = startY;
+        birdVelocity[slot] = 0f;
+        birdAlive[slot] = true;
+        birdScore[slot] = 0;
+        eliminatedTick[slot] = -1L;
+    }
+
+    public void setBird(int slot, float y, float velocity, boolean alive) {
+        birdY[slot] = y;
+        birdVelocity[slot] = velocity;
+        birdAlive[slot] = alive;
+    }
+
+    public void setTickRate(int simulationTickRate) {
+        if (simulationTickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be > 0");
+        }
+        tickRate = simulationTickRate;
+        stepSeconds = 1f / simulationTickRate;
+    }
+
+    public void setBirdX(float x) {
+        birdX = x;
+    }
+
+    public void setCollisionsEnabled(boolean enabled) {
+        collisionsEnabled = enabled;
+    }
+
+    public void setCourse(PipeCourse pipeCourse) {
+        course = pipeCourse;
+    }
+
+    public void setTick(long simulationTick) {
+        tick = simulationTick;
+    }
+
+    // Salta a otro tick sin simular los intermedios: los tubos del recorrido se regeneran donde estarian.
+    public void seekTick(long simulationTick) {
+        tick = simulationTick;
+        clearPipes();
+        if (course == null) {
+            return;
+        }
+        course.reset(course.getSeed(), tickRate);
+        course.spawnDue(this);
+        // spawnDue coloca cada tubo al principio de su tick; step lo desplaza en ese mismo tick.
+        float pipeStep = PIPE_SPEED * stepSeconds;
+        for (int i = 0; i < pipeCount; i++) {
+            pipeX[(pipeHead + i) & PIPE_MASK] -= pipeStep;
+        }
+        while (pipeCount > 0 && pipeX[pipeHead] + PIPE_WIDTH < 0f) {
+            pipeHead = (pipeHead + 1) & PIPE_MASK;
+            pipeCount--;
+        }
+    }
+
+    // Copia el estado simulado; el acumulador y los saltos pendientes de este mundo no cambian.
+    public void copyFrom(FlappySimulation source) {
+        if (source.birdCount != birdCount) {
+            throw new IllegalArgumentException("birdCount mismatch");
+        }
+        System.arraycopy(source.birdY, 0, birdY, 0, birdCount);
+        System.arraycopy(source.birdVelocity, 0, birdVelocity, 0, birdCount);
+        System.arraycopy(source.birdAlive, 0, birdAlive, 0, birdCount);
+        System.arraycopy(source.birdScore, 0, birdScore, 0, birdCount);
+        System.arraycopy(source.eliminatedTick, 0, eliminatedTick, 0, birdCount);
+        System.arraycopy(source.pipeX, 0, pipeX, 0, MAX_PIPES);
+        System.arraycopy(source.pipeGapY, 0, pipeGapY, 0, MAX_PIPES);
+        System.arraycopy(source.pipeScoredMask, 0, pipeScoredMask, 0, MAX_PIPES);
+        pipeHead = source.pipeHead;
+        pipeCount = source.pipeCount;
+        birdX = source.birdX;
+        tickRate = source.tickRate;
+        stepSeconds = source.stepSeconds;
+        tick = source.tick;
+        collisionsEnabled = source.collisionsEnabled;
+        if (course != null && source.course != null) {
+            course.copyFrom(source.course);
+        }
+    }
+
+    // Los tubos deben llegar de izquierda a derecha para que el anillo siga ordenado por x.
+    public boolean addPipe(float x, float gapCenterY) {
+        if (pipeCount >= MAX_PIPES) {
+            return false;
+        }
+        int slot = (pipeHead + pipeCount) & PIPE_MASK;
+        pipeX[slot] = x;
+        pipeGapY[slot] = gapCenterY;
+        pipeScoredMask[slot] = 0;
+        pipeCount++;
+        return true;
+    }
+
+    public void clearPipes() {
+        pipeHead = 0;
+        pipeCount = 0;
+    }
+
+    public void queueJump(int slot) {
+        pendingJumpMask |= 1 << slot;
+    }
+
+    public int advance(float deltaSeconds) {
+        accumulator += deltaSeconds;
+        int changedMask = 0;
+        int steps = 0;
+        while (accumulator >= stepSeconds && steps < MAX_STEPS_PER_FRAME) {
+            accumulator -= stepSeconds;
+            changedMask |= step();
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) {
+            accumulator = 0f;
+        }
+        return changedMask;
+    }
+
+    public int step() {
+        int jumpMask = pendingJumpMask;
+        pendingJumpMask = 0;
+        return step(jumpMask);
+    }
+
+    public int step(int jumpMask) {
+        tick++;
+        if (course != null) {
+            course.spawnDue(this);
+        }
+        for (int i = 0; i < birdCount; i++) {
+            if (!birdAlive[i]) {
+                continue;
+            }
+            if ((jumpMask & (1 << i)) != 0) {
+                birdVelocity[i] = JUMP_FORCE;
+            }
+            birdVelocity[i] -= GRAVITY * stepSeconds;
+            birdY[i] += birdVelocity[i] * stepSeconds;
+            if (birdY[i] > CEILING_Y) {
+                birdY[i] = CEILING_Y;
+                birdVelocity[i] = 0f;
+            }
+        }
+
+        float pipeStep = PIPE_SPEED * stepSeconds;
+        for (int i = 0; i < pipeCount; i++) {
+            pipeX[(pipeHead + i) & PIPE_MASK] -= pipeStep;
+        }
+        while (pipeCount > 0 && pipeX[pipeHead] + PIPE_WIDTH < 0f) {
+            pipeHead = (pipeHead + 1) & PIPE_MASK;
+            pipeCount--;
+        }
+
+        if (!collisionsEnabled) {
+            return 0;
+        }
+        return resolveCollisions();
+    }
+
+    private int resolveCollisions() {
+        int changedMask = 0;
+        float halfGap = PIPE_GAP_HEIGHT / 2f;
+        float birdRight = birdX + BIRD_WIDTH;
+        for (int i = 0; i < birdCount; i++) {
+            if (!birdAlive[i]) {
+                continue;
+            }
+            int bit = 1 << i;
+            if (birdY[i] <= GROUND_HEIGHT) {
+                eliminate(i);
+                changedMask |= bit;
+                continue;
+            }
+            // Ningun tubo a la derecha del pajaro puede puntuar ni chocar: se corta ahi.
+            for (int n = 0; n < pipeCount; n++) {
+                int p = (pipeHead + n) & PIPE_MASK;
+                if (pipeX[p] > birdRight) {
+                    break;
+                }
+                if ((pipeScoredMask[p] & bit) == 0 && pipeX[p] + PIPE_WIDTH < birdX) {
+                    pipeScoredMask[p] |= bit;
+                    birdScore[i]++;
+                    changedMask |= bit;
+                }
+                if (birdRight >= pipeX[p] && birdX <= pipeX[p] + PIPE_WIDTH) {
+                    float gapBottom = pipeGapY[p] - halfGap;
+                    if (birdY[i] < gapBottom || birdY[i] + BIRD_HEIGHT > gapBottom + PIPE_GAP_HEIGHT) {
+                        eliminate(i);
+                        changedMask |= bit;
+                        break;
+                    }
+                }
+            }
+        }
+        return changedMask;
+    }
+
+    private void eliminate(int slot) {
+        birdAlive[slot] = false;
+        birdVelocity[slot] = 0f;
+        eliminatedTick[slot] = tick;
+    }
+
+    public int getBirdCount() {
+        return birdCount;
+    }
+
+    public float getBirdX() {
+        return birdX;
+    }
+
+    public float getBirdY(int slot) {
+        return birdY[slot];
+    }
+
+    public float getBirdVelocity(int slot) {
+        return birdVelocity[slot];
+    }
+
+    public boolean isBirdAlive(int slot) {
+        return birdAlive[slot];
+    }
+
+    public int getBirdScore(int slot) {
+        return birdScore[slot];
+    }
+
+    public long getEliminatedTick(int slot) {
+        return eliminatedTick[slot];
+    }
+
+    public int getPipeCount() {
+        return pipeCount;
+    }
+
+    public float getPipeX(int index) {
+        return pipeX[(pipeHead + index) & PIPE_MASK];
+    }
+
+    public float getPipeGapY(int index) {
+        return pipeGapY[(pipeHead + index) & PIPE_MASK];
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public float getStepSeconds() {
+        return stepSeconds;
+    }
+}
@@ -0,0 +1,87 @@
+package com.flappyboldo.game.sim;
+
+public final class PipeCourse {
+    public static final long SPAWN_MIN_MS = 1100L;
+    public static final long SPAWN_MAX_MS = 2200L;
+    public static final float GAP_MIN_CENTER = FlappySimulation.WORLD_HEIGHT * 0.30f;
+    public static final float GAP_MAX_CENTER = FlappySimulation.WORLD_HEIGHT * 0.70f;
+
+    private static final int STREAM_GAP = 0;
+    private static final int STREAM_INTERVAL = 1;
+
+    private int seed;
+    private int tickRate;
+    private int nextIndex;
+    private long nextSpawnTick;
+
+    public PipeCourse(int seed, int tickRate) {
+        reset(seed, tickRate);
+    }
+
+    public void reset(int courseSeed, int simulationTickRate) {
+        if (simulationTickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be > 0");
+        }
+        seed = courseSeed;
+        tickRate = simulationTickRate;
+        nextIndex = 0;
+        nextSpawnTick = intervalTicks(0);
+    }
+
+    public void copyFrom(PipeCourse source) {
+        seed = source.seed;
+        tickRate = source.tickRate;
+        nextIndex = source.nextIndex;
+        nextSpawnTick = source.nextSpawnTick;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getNextIndex() {
+        return nextIndex;
+    }
+
+    public long getNextSpawnTick() {
+        return nextSpawnTick;
+    }
+
+    public float gapCenterY(int index) {
+        return GAP_MIN_CENTER + unit(index, STREAM_GAP) * (GAP_MAX_CENTER - GAP_MIN_CENTER);
+    }
+
+    // Los tubos que debian aparecer en ticks ya pasados se colocan donde estarian ahora.
+    int spawnDue(FlappySimulation world) {
+        long tick = world.getTick();
+        int spawned = 0;
+        while (nextSpawnTick <= tick) {
+            float x = FlappySimulation.WORLD_WIDTH
+                - (tick - nextSpawnTick) * FlappySimulation.PIPE_SPEED * world.getStepSeconds();
+            if (x + FlappySimulation.PIPE_WIDTH >= 0f && world.addPipe(x, gapCenterY(nextIndex))) {
+                spawned++;
+            }
+            nextIndex++;
+            nextSpawnTick += intervalTicks(nextIndex);
+        }
+        return spawned;
+    }
+
+    private long intervalTicks(int index) {
+        long intervalMs = (long) (SPAWN_MIN_MS + unit(index, STREAM_INTERVAL) * (SPAWN_MAX_MS - SPAWN_MIN_MS));
+        return Math.max(1L, (intervalMs * tickRate + 999L) / 1000L);
+    }
+
+    // PRNG por contador (mezclador de SplitMix64): el valor del tubo N no depende de los anteriores.
+    private float unit(int index, int stream) {
+        long z = (seed & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L + ((long) index << 1 | stream) * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 40) * 0x1p-24f;
+    }
+}
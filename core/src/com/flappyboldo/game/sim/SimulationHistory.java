@@ -0,0 +1,90 @@
+package com.flappyboldo.game.sim;
+
+public final class SimulationHistory {
+    private final FlappySimulation[] frames;
+    private final int[] jumpMasks;
+    private final long[] ticks;
+    private long firstTick;
+    private long latestTick;
+
+    public SimulationHistory(int capacity, int birdCount, float birdX, int tickRate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        this.frames = new FlappySimulation[capacity];
+        this.jumpMasks = new int[capacity];
+        this.ticks = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            frames[i] = new FlappySimulation(birdCount, birdX, tickRate);
+            frames[i].setCourse(new PipeCourse(0, tickRate));
+        }
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = -1L;
+            jumpMasks[i] = 0;
+        }
+        firstTick = -1L;
+        latestTick = -1L;
+    }
+
+    // Guarda el estado tras el paso world.getTick() junto con los saltos aplicados en ese paso.
+    public void record(FlappySimulation world, int jumpMask) {
+        long tick = world.getTick();
+        int slot = slot(tick);
+        frames[slot].copyFrom(world);
+        jumpMasks[slot] = jumpMask;
+        ticks[slot] = tick;
+        if (firstTick < 0L || tick < latestTick) {
+            firstTick = tick;
+        }
+        latestTick = tick;
+    }
+
+    public FlappySimulation frame(long tick) {
+        if (tick < 0L) {
+            return null;
+        }
+        int slot = slot(tick);
+        return ticks[slot] == tick ? frames[slot] : null;
+    }
+
+    public long getOldestTick() {
+        if (latestTick < 0L) {
+            return -1L;
+        }
+        return Math.max(firstTick, latestTick - frames.length + 1L);
+    }
+
+    public long getLatestTick() {
+        return latestTick;
+    }
+
+    // Aplica un salto que llego tarde en su tick original y vuelve a simular hasta el presente.
+    // Devuelve el numero de pasos re-simulados, o -1 si el tick ya no esta en el historial.
+    public int applyLate(FlappySimulation world, long tick, int jumpMask) {
+        if (latestTick < 0L || world.getTick() != latestTick || tick <= getOldestTick() || tick > latestTick) {
+            return -1;
+        }
+        int slot = slot(tick);
+        if ((jumpMasks[slot] & jumpMask) == jumpMask) {
+            return 0;
+        }
+        jumpMasks[slot] |= jumpMask;
+        world.copyFrom(frames[slot(tick - 1L)]);
+        int steps = 0;
+        for (long t = tick; t <= latestTick; t++) {
+            int current = slot(t);
+            world.step(jumpMasks[current]);
+            frames[current].copyFrom(world);
+            steps++;
+        }
+        return steps;
+    }
+
+    private int slot(long tick) {
+        return (int) (tick % frames.length);
+    }
+}
@@ -0,0 +1,15 @@
+package com.flappyboldo.game.loadgen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Lo que el bucle del generador necesita de cada socket: jugadores y espectadores sinteticos.
+interface LoadClient {
+    void start(long nowNanos);
+
+    void receive(ByteBuffer buffer, long nowNanos) throws IOException;
+
+    void tick(long nowNanos);
+
+    void leave();
+}
@@ -0,0 +1,290 @@
+package com.flappyboldo.game.loadgen;
+
+import com.flappyboldo.game.cli.CliArgs;
+import com.flappyboldo.game.online.net.LatencyHistogram;
+import com.flappyboldo.game.online.net.OnlineProtocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Locale;
+
+// Generador de carga: miles de jugadores sinteticos en un solo hilo con un Selector, sin LibGDX.
+public final class LoadGenMain {
+    private LoadGenMain() {
+    }
+
+    private static final int RECEIVE_BUFFER_SIZE = 1500;
+    private static final int SEND_BUFFER_SIZE = 1024;
+    private static final long PLAYER_TICK_NANOS = 5_000_000L;
+    private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long DRAIN_NANOS = 300_000_000L;
+    private static final String USAGE = "Usage: loadgen.jar [host] [port] [--players=N] [--spectators=N] [--duration=S]"
+        + " [--pattern=random|interval|hover] [--jump-ms=N] [--ramp-ms=N] [--room-base=N] [--seed=N] [--rematch-ms=N]"
+        + " [--matchmaking] [--rtt-spread-ms=N]";
+
+    public static void main(String[] args) throws Exception {
+        LoadGenOptions options = parseOptions(args);
+        LoadStats stats = new LoadStats();
+        System.out.println(String.format(Locale.US,
+            "Load generator: %d players, %d spectators -> %s:%d for %d s, %s jumps every %d ms, %d ms ramp.",
+            options.players, options.spectators, options.host, options.port, options.durationSeconds,
+            LoadGenOptions.patternName(options.pattern), options.jumpIntervalMs, options.rampMs));
+        long elapsedNanos = run(options, stats);
+        printReport(options, stats, elapsedNanos);
+    }
+
+    private static long run(LoadGenOptions options, LoadStats stats) throws IOException {
+        InetSocketAddress server = new InetSocketAddress(options.host, options.port);
+        ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(RECEIVE_BUFFER_SIZE);
+        ByteBuffer sendBuffer = ByteBuffer.allocateDirect(SEND_BUFFER_SIZE);
+        SyntheticPlayer[] players = new SyntheticPlayer[options.players];
+        SyntheticSpectator[] spectators = new SyntheticSpectator[options.spectators];
+        DatagramChannel[] channels = new DatagramChannel[options.players + options.spectators];
+
+        try (Selector selector = Selector.open()) {
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + options.durationSeconds * 1_000_000_000L;
+            long nextTickNanos = startNanos;
+            long nextProgressNanos = startNanos + PROGRESS_INTERVAL_NANOS;
+            int started = 0;
+            int watching = 0;
+
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= endNanos) {
+                    break;
+                }
+                // Arranque escalonado para no mandar todos los HELLO en la misma rafaga.
+                while (started < players.length && now - startNanos >= rampOffsetNanos(options, started, players.length)) {
+                    DatagramChannel channel = SyntheticPlayer.open(server);
+                    SyntheticPlayer player = new SyntheticPlayer(started, options, stats, channel, sendBuffer);
+                    channel.register(selector, SelectionKey.OP_READ, player);
+                    channels[started] = channel;
+                    players[started] = player;
+                    player.start(now);
+                    started++;
+                }
+                // Los espectadores entran con el mismo ritmo, repartidos entre las salas de los jugadores.
+                while (watching < spectators.length
+                    && now - startNanos >= rampOffsetNanos(options, watching, spectators.length)) {
+                    DatagramChannel channel = SyntheticPlayer.open(server);
+                    SyntheticSpectator spectator = new SyntheticSpectator(watching, options, stats, channel, sendBuffer);
+                    channel.register(selector, SelectionKey.OP_READ, spectator);
+                    channels[players.length + watching] = channel;
+                    spectators[watching] = spectator;
+                    spectator.start(now);
+                    watching++;
+                }
+
+                long waitNanos = Math.max(0L, Math.min(nextTickNanos, endNanos) - now);
+                int ready = waitNanos < 1_000_000L ? selector.selectNow() : selector.select(waitNanos / 1_000_000L);
+                now = System.nanoTime();
+                if (ready > 0) {
+                    receiveReady(selector, receiveBuffer, stats, now);
+                }
+                if (now >= nextTickNanos) {
+                    for (int i = 0; i < started; i++) {
+                        players[i].tick(now);
+                    }
+                    for (int i = 0; i < watching; i++) {
+                        spectators[i].tick(now);
+                    }
+                    nextTickNanos += PLAYER_TICK_NANOS;
+                    if (nextTickNanos < now) {
+                        nextTickNanos = now + PLAYER_TICK_NANOS;
+                    }
+                }
+                if (now >= nextProgressNanos) {
+                    printProgress(players, started, spectators, watching, stats, now - startNanos);
+                    nextProgressNanos += PROGRESS_INTERVAL_NANOS;
+                }
+            }
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+            for (int i = 0; i < started; i++) {
+                players[i].leave();
+            }
+            for (int i = 0; i < watching; i++) {
+                spectators[i].leave();
+            }
+            // Deja que lleguen los ultimos paquetes y se confirmen antes de cerrar los sockets.
+            long drainEnd = System.nanoTime() + DRAIN_NANOS;
+            while (System.nanoTime() < drainEnd) {
+                if (selector.select(10L) > 0) {
+                    receiveReady(selector, receiveBuffer, stats, System.nanoTime());
+                }
+            }
+            return elapsedNanos;
+        } finally {
+            for (DatagramChannel channel : channels) {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // Closing.
+                    }
+                }
+            }
+        }
+    }
+
+    private static long rampOffsetNanos(LoadGenOptions options, int index, int count) {
+        if (count <= 1) {
+            return 0L;
+        }
+        return options.rampMs * 1_000_000L * index / count;
+    }
+
+    private static void receiveReady(Selector selector, ByteBuffer buffer, LoadStats stats, long now) {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            try {
+                ((LoadClient) key.attachment()).receive(buffer, now);
+            } catch (IOException e) {
+                // PortUnreachable y similares: el servidor no esta o descarto el socket.
+                stats.errors++;
+            }
+        }
+    }
+
+    private static void printProgress(SyntheticPlayer[] players, int started, SyntheticSpectator[] spectators,
+                                      int watching, LoadStats stats, long elapsedNanos) {
+        int connected = 0;
+        int playing = 0;
+        for (int i = 0; i < started; i++) {
+            if (players[i].isConnected()) {
+                connected++;
+            }
+            if (players[i].isPlaying()) {
+                playing++;
+            }
+        }
+        int joined = 0;
+        for (int i = 0; i < watching; i++) {
+            if (spectators[i].isJoined()) {
+                joined++;
+            }
+        }
+        System.out.println(String.format(Locale.US,
+            "[%5.1f s] %d started, %d connected, %d playing, %d watching | %d matches | packets %d in / %d out | errors %d",
+            elapsedNanos / 1_000_000_000.0, started, connected, playing, joined, stats.matchesFinished,
+            stats.packetsIn + stats.spectatorPacketsIn, stats.packetsOut, stats.errors));
+    }
+
+    private static void printReport(LoadGenOptions options, LoadStats stats, long elapsedNanos) {
+        double seconds = Math.max(1e-9, elapsedNanos / 1_000_000_000.0);
+        System.out.println("Load generator finished after " + String.format(Locale.US, "%.1f", seconds) + " s.");
+        printLatency(options.matchmaking ? "time to match (QUEUE -> WELCOME)" : "connect (HELLO -> WELCOME)",
+            stats.connectNanos);
+        printLatency("start (READY/REMATCH -> START_GAME)", stats.startNanos);
+        printLatency("jump ack (JUMP -> SNAPSHOT)", stats.jumpAckNanos);
+        printLatency("snapshot gap", stats.snapshotGapNanos);
+        if (options.spectators > 0) {
+            printLatency("spectate (SPECTATE -> WELCOME)", stats.spectateNanos);
+            printLatency("spectator frame gap", stats.spectatorGapNanos);
+            System.out.println(String.format(Locale.US,
+                "Spectator traffic: %d frames, %d packets in (%.0f/s, %.1f KB)",
+                stats.spectatorFrames, stats.spectatorPacketsIn, stats.spectatorPacketsIn / seconds,
+                stats.spectatorBytesIn / 1024.0));
+        }
+        System.out.println(String.format(Locale.US,
+            "Server tick rate seen by clients: %.1f Hz (nominal %d Hz)",
+            stats.getAchievedTickRate(), stats.nominalTickRate));
+        System.out.println(String.format(Locale.US,
+            "Traffic: %d packets in (%.0f/s, %.1f KB), %d packets out (%.0f/s, %.1f KB), %d jumps",
+            stats.packetsIn, stats.packetsIn / seconds, stats.bytesIn / 1024.0,
+            stats.packetsOut, stats.packetsOut / seconds, stats.bytesOut / 1024.0, stats.jumpsSent));
+        System.out.println("Matches finished: " + stats.matchesFinished + ", errors: " + stats.errors
+            + ", players: " + options.players);
+    }
+
+    private static void printLatency(String label, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0L) {
+            System.out.println(label + ": no samples");
+            return;
+        }
+        System.out.println(String.format(Locale.US,
+            "%s: n=%d p50 %.2f ms p90 %.2f ms p99 %.2f ms max %.2f ms",
+            label, histogram.getCount(),
+            histogram.getPercentileNanos(50.0) / 1_000_000.0, histogram.getPercentileNanos(90.0) / 1_000_000.0,
+            histogram.getPercentileNanos(99.0) / 1_000_000.0, histogram.getMaxNanos() / 1_000_000.0));
+    }
+
+    private static LoadGenOptions parseOptions(String[] args) {
+        LoadGenOptions options = new LoadGenOptions();
+        if (args == null) {
+            return options;
+        }
+        int positional = 0;
+        for (String rawArg : args) {
+            String arg = rawArg == null ? "" : rawArg.trim();
+            if (arg.isEmpty()) {
+                continue;
+            }
+            if (arg.startsWith("--players=")) {
+                options.players = CliArgs.parseBoundedInt(arg.substring("--players=".length()),
+                    1, 65_536, "player count", USAGE);
+            } else if (arg.startsWith("--spectators=")) {
+                options.spectators = CliArgs.parseBoundedInt(arg.substring("--spectators=".length()),
+                    0, 65_536, "spectator count", USAGE);
+            } else if (arg.equals("--matchmaking")) {
+                options.matchmaking = true;
+            } else if (arg.startsWith("--rtt-spread-ms=")) {
+                options.rttSpreadMs = CliArgs.parseBoundedInt(arg.substring("--rtt-spread-ms=".length()),
+                    0, 1_000, "RTT spread", USAGE);
+            } else if (arg.startsWith("--duration=")) {
+                options.durationSeconds = CliArgs.parseBoundedInt(arg.substring("--duration=".length()),
+                    1, 86_400, "duration", USAGE);
+            } else if (arg.startsWith("--pattern=")) {
+                options.pattern = parsePattern(arg.substring("--pattern=".length()));
+            } else if (arg.startsWith("--jump-ms=")) {
+                options.jumpIntervalMs = CliArgs.parseBoundedInt(arg.substring("--jump-ms=".length()),
+                    1, 60_000, "jump interval", USAGE);
+            } else if (arg.startsWith("--ramp-ms=")) {
+                options.rampMs = CliArgs.parseBoundedInt(arg.substring("--ramp-ms=".length()),
+                    0, 600_000, "ramp", USAGE);
+            } else if (arg.startsWith("--room-base=")) {
+                options.roomBase = CliArgs.parseBoundedInt(arg.substring("--room-base=".length()), 1,
+                    OnlineProtocol.MAX_MANUAL_ROOM_ID, "room base", USAGE);
+            } else if (arg.startsWith("--seed=")) {
+                options.seed = CliArgs.parseBoundedInt(arg.substring("--seed=".length()),
+                    Integer.MIN_VALUE, Integer.MAX_VALUE, "seed", USAGE);
+            } else if (arg.startsWith("--rematch-ms=")) {
+                options.rematchDelayNanos = CliArgs.parseBoundedInt(arg.substring("--rematch-ms=".length()),
+                    0, 600_000, "rematch delay", USAGE)
+                    * 1_000_000L;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + arg + ". " + USAGE);
+            } else if (positional++ == 0) {
+                options.host = arg;
+            } else {
+                options.port = CliArgs.parseBoundedInt(arg, 1, 65535, "port", USAGE);
+            }
+        }
+        if (!options.matchmaking && options.roomBase + (options.players - 1) / 2 > OnlineProtocol.MAX_MANUAL_ROOM_ID) {
+            throw new IllegalArgumentException("Rooms above " + OnlineProtocol.MAX_MANUAL_ROOM_ID
+                + " are reserved for matchmaking. " + USAGE);
+        }
+        return options;
+    }
+
+    private static int parsePattern(String raw) {
+        switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "random":
+                return LoadGenOptions.PATTERN_RANDOM;
+            case "interval":
+                return LoadGenOptions.PATTERN_INTERVAL;
+            case "hover":
+                return LoadGenOptions.PATTERN_HOVER;
+            default:
+                throw new IllegalArgumentException("Invalid jump pattern. " + USAGE);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.flappyboldo.game.loadgen;
+
+import com.flappyboldo.game.online.net.OnlineProtocol;
+
+final class LoadGenOptions {
+    static final int PATTERN_RANDOM = 0;
+    static final int PATTERN_INTERVAL = 1;
+    static final int PATTERN_HOVER = 2;
+
+    String host = "127.0.0.1";
+    int port = OnlineProtocol.PORT;
+    int players = 100;
+    int spectators;
+    int durationSeconds = 30;
+    int pattern = PATTERN_RANDOM;
+    int jumpIntervalMs = 400;
+    int rampMs = 2_000;
+    int roomBase = 1;
+    long seed = 1L;
+    long rematchDelayNanos = 1_000_000_000L;
+    boolean matchmaking;
+    int rttSpreadMs;
+
+    static String patternName(int pattern) {
+        switch (pattern) {
+            case PATTERN_INTERVAL:
+                return "interval";
+            case PATTERN_HOVER:
+                return "hover";
+            default:
+                return "random";
+        }
+    }
+}
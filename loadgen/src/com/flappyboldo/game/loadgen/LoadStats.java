@@ -0,0 +1,41 @@
+package com.flappyboldo.game.loadgen;
+
+import com.flappyboldo.game.online.net.LatencyHistogram;
+
+// Contadores y latencias de todos los jugadores sinteticos. Los escribe solo el hilo del generador.
+final class LoadStats {
+    final LatencyHistogram connectNanos = new LatencyHistogram();
+    final LatencyHistogram startNanos = new LatencyHistogram();
+    final LatencyHistogram jumpAckNanos = new LatencyHistogram();
+    final LatencyHistogram snapshotGapNanos = new LatencyHistogram();
+    final LatencyHistogram spectateNanos = new LatencyHistogram();
+    final LatencyHistogram spectatorGapNanos = new LatencyHistogram();
+
+    long packetsIn;
+    long packetsOut;
+    long bytesIn;
+    long bytesOut;
+    long errors;
+    long matchesFinished;
+    long jumpsSent;
+    long spectatorFrames;
+    long spectatorPacketsIn;
+    long spectatorBytesIn;
+    int nominalTickRate;
+
+    private long progressTicks;
+    private long progressNanos;
+
+    // Avance del reloj del servidor visto desde los SNAPSHOT: ticks por segundo real alcanzados.
+    void recordTickProgress(long ticks, long nanos) {
+        if (ticks <= 0L || nanos <= 0L) {
+            return;
+        }
+        progressTicks += ticks;
+        progressNanos += nanos;
+    }
+
+    double getAchievedTickRate() {
+        return progressNanos == 0L ? 0.0 : progressTicks * 1_000_000_000.0 / progressNanos;
+    }
+}
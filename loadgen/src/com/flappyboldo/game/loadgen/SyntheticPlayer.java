@@ -0,0 +1,360 @@
+package com.flappyboldo.game.loadgen;
+
+import com.flappyboldo.game.online.net.OnlineCodec;
+import com.flappyboldo.game.online.net.OnlineMessage;
+import com.flappyboldo.game.online.net.OnlineProtocol;
+import com.flappyboldo.game.online.net.ReliableChannel;
+import com.flappyboldo.game.online.net.RttEstimator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Random;
+
+// Un jugador sintetico: su propio socket UDP, el protocolo binario real y sin LibGDX.
+final class SyntheticPlayer implements LoadClient {
+    private static final long HELLO_RETRY_NANOS = 500_000_000L;
+    private static final long COMMAND_RETRY_NANOS = 1_000_000_000L;
+    private static final long HOVER_MIN_GAP_NANOS = 150_000_000L;
+    private static final float HOVER_TARGET_Y = 95f;
+    private static final int JUMP_WINDOW = 64;
+
+    private static final int CONNECTING = 0;
+    private static final int WAITING_START = 1;
+    private static final int PLAYING = 2;
+    private static final int FINISHED = 3;
+
+    private final LoadGenOptions options;
+    private final LoadStats stats;
+    private final Random random;
+    private final String name;
+    private final int roomId;
+    private final DatagramChannel channel;
+    private final ByteBuffer sendBuffer;
+    private final OnlineMessage inbound;
+    private final OnlineMessage outbound;
+    private final OnlineMessage ordered;
+
+    private int state;
+    private int playerId;
+    private long connectStartNanos;
+    private long lastHelloNanos;
+    private long lastCommandNanos;
+    private long commandStartNanos;
+    private long playStartNanos;
+    private long finishedAtNanos;
+    private boolean alive;
+
+    // Solo se usa el lado receptor: el jugador sintetico no manda nada fiable.
+    private final ReliableChannel reliable;
+
+    private final long[] jumpSentNanos;
+    private int nextJumpSequence;
+    private int ackedJumpSequence;
+    private long nextJumpNanos;
+    private long lastJumpNanos;
+
+    private long snapshotTick;
+    private long snapshotNanos;
+    private int tickRate;
+    private float lastY;
+    private float lastVelocity;
+
+    // Retraso artificial de los PONG mientras se espera sala: simula jugadores con RTT distinto.
+    private final long extraRttNanos;
+    private int delayedPongSequence;
+    private long delayedPongTimestamp;
+    private long delayedPongDueNanos;
+
+    // sendBuffer se comparte entre jugadores: todos corren en el mismo hilo.
+    SyntheticPlayer(int index, LoadGenOptions options, LoadStats stats, DatagramChannel channel, ByteBuffer sendBuffer) {
+        this.options = options;
+        this.stats = stats;
+        this.random = new Random(options.seed * 31L + index);
+        this.name = "load" + index;
+        this.roomId = options.matchmaking ? OnlineProtocol.MATCHMAKING_ROOM_ID : options.roomBase + index / 2;
+        this.channel = channel;
+        this.sendBuffer = sendBuffer;
+        this.inbound = new OnlineMessage();
+        this.outbound = new OnlineMessage();
+        this.ordered = new OnlineMessage();
+        this.reliable = new ReliableChannel(0, new RttEstimator());
+        this.jumpSentNanos = new long[JUMP_WINDOW];
+        this.state = CONNECTING;
+        this.nextJumpSequence = 1;
+        this.extraRttNanos = options.rttSpreadMs > 0 ? random.nextInt(options.rttSpreadMs + 1) * 1_000_000L : 0L;
+    }
+
+    @Override
+    public void start(long nowNanos) {
+        connectStartNanos = nowNanos;
+        lastHelloNanos = nowNanos;
+        sendHello();
+    }
+
+    private void sendHello() {
+        send(options.matchmaking ? outbound.queue(name) : outbound.hello(name, roomId));
+    }
+
+    boolean isConnected() {
+        return state != CONNECTING;
+    }
+
+    boolean isPlaying() {
+        return state == PLAYING;
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer, long nowNanos) throws IOException {
+        while (true) {
+            buffer.clear();
+            if (channel.receive(buffer) == null) {
+                break;
+            }
+            buffer.flip();
+            stats.packetsIn++;
+            stats.bytesIn += buffer.remaining();
+            handlePacket(buffer, nowNanos);
+        }
+        if (reliable.hasPendingAck()) {
+            send(reliable.writeAck(outbound));
+        }
+    }
+
+    private void handlePacket(ByteBuffer data, long nowNanos) {
+        int format = OnlineCodec.readFrameHeader(data);
+        if (format != OnlineCodec.FORMAT_BINARY) {
+            stats.errors++;
+            return;
+        }
+        int messageStart = data.position();
+        while (OnlineCodec.decode(data, format, inbound)) {
+            int messageEnd = data.position();
+            if (inbound.reliableSequence > 0) {
+                handleReliable(data, messageStart, messageEnd, nowNanos);
+            } else {
+                handleMessage(inbound, nowNanos);
+            }
+            messageStart = messageEnd;
+        }
+    }
+
+    private void handleReliable(ByteBuffer data, int from, int to, long nowNanos) {
+        // Sesion nueva en el servidor: sus secuencias vuelven a empezar en 1.
+        if (inbound.opcode == OnlineProtocol.OP_WELCOME && inbound.channelEpoch != reliable.getEpoch()) {
+            reliable.restart(inbound.channelEpoch);
+        }
+        if (reliable.accept(inbound.reliableSequence, data, from, to) != ReliableChannel.DELIVER) {
+            return;
+        }
+        handleMessage(inbound, nowNanos);
+        ByteBuffer payload;
+        while ((payload = reliable.pollOrdered()) != null) {
+            if (OnlineCodec.decode(payload, OnlineCodec.FORMAT_BINARY, ordered)) {
+                handleMessage(ordered, nowNanos);
+            }
+        }
+    }
+
+    private void handleMessage(OnlineMessage message, long nowNanos) {
+        switch (message.opcode) {
+            case OnlineProtocol.OP_WELCOME:
+                if (state == CONNECTING) {
+                    playerId = message.playerId;
+                    stats.connectNanos.record(nowNanos - connectStartNanos);
+                    state = WAITING_START;
+                    commandStartNanos = nowNanos;
+                    sendReady(nowNanos);
+                }
+                return;
+            case OnlineProtocol.OP_START_GAME:
+                if (state == WAITING_START || state == FINISHED) {
+                    stats.startNanos.record(nowNanos - commandStartNanos);
+                    state = PLAYING;
+                    alive = true;
+                    tickRate = message.tickRate;
+                    stats.nominalTickRate = message.tickRate;
+                    playStartNanos = nowNanos + message.delayMs * 1_000_000L;
+                    snapshotTick = 0L;
+                    snapshotNanos = playStartNanos;
+                    ackedJumpSequence = nextJumpSequence - 1;
+                    scheduleNextJump(playStartNanos);
+                }
+                return;
+            case OnlineProtocol.OP_SNAPSHOT:
+                handleSnapshot(message, nowNanos);
+                return;
+            case OnlineProtocol.OP_ELIMINATED:
+                if (message.playerId == playerId) {
+                    alive = false;
+                }
+                return;
+            case OnlineProtocol.OP_FIN:
+                if (state == PLAYING) {
+                    state = FINISHED;
+                    finishedAtNanos = nowNanos;
+                    stats.matchesFinished++;
+                }
+                return;
+            case OnlineProtocol.OP_ROOM_DELTA:
+                send(outbound.roomAck(message.roomVersion));
+                return;
+            case OnlineProtocol.OP_PING:
+                if (state == CONNECTING && extraRttNanos > 0L) {
+                    delayedPongSequence = message.pingSequence;
+                    delayedPongTimestamp = message.pingTimestamp;
+                    delayedPongDueNanos = nowNanos + extraRttNanos;
+                    return;
+                }
+                send(outbound.pong(message.pingSequence, message.pingTimestamp));
+                return;
+            case OnlineProtocol.OP_ERROR:
+                stats.errors++;
+                return;
+            default:
+                break;
+        }
+    }
+
+    private void handleSnapshot(OnlineMessage message, long nowNanos) {
+        if (state != PLAYING || message.tick <= snapshotTick) {
+            return;
+        }
+        if (snapshotTick > 0L) {
+            stats.snapshotGapNanos.record(nowNanos - snapshotNanos);
+            stats.recordTickProgress(message.tick - snapshotTick, nowNanos - snapshotNanos);
+        }
+        snapshotTick = message.tick;
+        snapshotNanos = nowNanos;
+        tickRate = message.tickRate > 0 ? message.tickRate : tickRate;
+        for (int i = 0; i < message.birdCount; i++) {
+            if (message.birdIds[i] != playerId) {
+                continue;
+            }
+            lastY = message.birdY[i];
+            lastVelocity = message.birdVelocity[i];
+            int acked = message.birdAckedInput[i];
+            // Latencia de evento: del JUMP enviado al primer SNAPSHOT que lo confirma.
+            while (ackedJumpSequence < acked && ackedJumpSequence < nextJumpSequence - 1) {
+                ackedJumpSequence++;
+                if (nextJumpSequence - ackedJumpSequence <= JUMP_WINDOW) {
+                    stats.jumpAckNanos.record(nowNanos - jumpSentNanos[ackedJumpSequence % JUMP_WINDOW]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void tick(long nowNanos) {
+        switch (state) {
+            case CONNECTING:
+                if (delayedPongSequence > 0 && nowNanos >= delayedPongDueNanos) {
+                    send(outbound.pong(delayedPongSequence, delayedPongTimestamp));
+                    delayedPongSequence = 0;
+                }
+                if (nowNanos - lastHelloNanos >= HELLO_RETRY_NANOS) {
+                    lastHelloNanos = nowNanos;
+                    sendHello();
+                }
+                return;
+            case WAITING_START:
+                if (nowNanos - lastCommandNanos >= COMMAND_RETRY_NANOS) {
+                    sendReady(nowNanos);
+                }
+                return;
+            case PLAYING:
+                tickJumps(nowNanos);
+                return;
+            case FINISHED:
+                if (nowNanos - finishedAtNanos >= options.rematchDelayNanos
+                    && nowNanos - lastCommandNanos >= COMMAND_RETRY_NANOS) {
+                    if (lastCommandNanos < finishedAtNanos) {
+                        commandStartNanos = nowNanos;
+                    }
+                    lastCommandNanos = nowNanos;
+                    send(outbound.rematch());
+                }
+                return;
+            default:
+                break;
+        }
+    }
+
+    // READY y REMATCH viajan sin sobre fiable: se repiten hasta ver START_GAME.
+    private void sendReady(long nowNanos) {
+        lastCommandNanos = nowNanos;
+        send(outbound.readyState(true));
+    }
+
+    private void tickJumps(long nowNanos) {
+        if (!alive || nowNanos < playStartNanos) {
+            return;
+        }
+        boolean jump;
+        if (options.pattern == LoadGenOptions.PATTERN_HOVER) {
+            jump = lastY < HOVER_TARGET_Y && lastVelocity <= 0f && nowNanos - lastJumpNanos >= HOVER_MIN_GAP_NANOS;
+        } else {
+            jump = nowNanos >= nextJumpNanos;
+        }
+        if (!jump) {
+            return;
+        }
+        int sequence = nextJumpSequence++;
+        jumpSentNanos[sequence % JUMP_WINDOW] = nowNanos;
+        lastJumpNanos = nowNanos;
+        stats.jumpsSent++;
+        send(outbound.jump(playerId, sequence, estimateServerTick(nowNanos)));
+        scheduleNextJump(nowNanos);
+    }
+
+    private void scheduleNextJump(long nowNanos) {
+        long meanNanos = options.jumpIntervalMs * 1_000_000L;
+        if (options.pattern == LoadGenOptions.PATTERN_RANDOM) {
+            // Llegadas de Poisson: intervalos exponenciales con la media pedida.
+            nextJumpNanos = nowNanos + (long) (-Math.log(1.0 - random.nextDouble()) * meanNanos);
+        } else {
+            nextJumpNanos = nowNanos + meanNanos;
+        }
+    }
+
+    private long estimateServerTick(long nowNanos) {
+        if (snapshotTick <= 0L || tickRate <= 0) {
+            return 0L;
+        }
+        return snapshotTick + 1L + (nowNanos - snapshotNanos) * tickRate / 1_000_000_000L;
+    }
+
+    @Override
+    public void leave() {
+        if (state != CONNECTING) {
+            send(outbound.leave(playerId));
+        }
+    }
+
+    private void send(OnlineMessage message) {
+        ByteBuffer buffer = sendBuffer;
+        buffer.clear();
+        OnlineCodec.writeFrameHeader(buffer, true);
+        if (!OnlineCodec.encode(buffer, message, true)) {
+            return;
+        }
+        buffer.flip();
+        int bytes = buffer.remaining();
+        try {
+            if (channel.write(buffer) > 0) {
+                stats.packetsOut++;
+                stats.bytesOut += bytes;
+            }
+        } catch (IOException e) {
+            stats.errors++;
+        }
+    }
+
+    static DatagramChannel open(InetSocketAddress server) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(server);
+        return channel;
+    }
+}
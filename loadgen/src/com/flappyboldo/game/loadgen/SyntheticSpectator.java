@@ -0,0 +1,126 @@
+package com.flappyboldo.game.loadgen;
+
+import com.flappyboldo.game.online.net.OnlineCodec;
+import com.flappyboldo.game.online.net.OnlineMessage;
+import com.flappyboldo.game.online.net.OnlineProtocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+// Espectador sintetico: mira una de las salas de los jugadores y mide el ritmo de los frames que recibe.
+final class SyntheticSpectator implements LoadClient {
+    private static final long KEEPALIVE_NANOS = 1_000_000_000L;
+
+    private final LoadStats stats;
+    private final String name;
+    private final int roomId;
+    private final DatagramChannel channel;
+    private final ByteBuffer sendBuffer;
+    private final OnlineMessage inbound;
+    private final OnlineMessage outbound;
+
+    private boolean joined;
+    private long connectStartNanos;
+    private long lastKeepaliveNanos;
+    private long lastFrameNanos;
+
+    SyntheticSpectator(int index, LoadGenOptions options, LoadStats stats, DatagramChannel channel,
+                       ByteBuffer sendBuffer) {
+        this.stats = stats;
+        this.name = "watch" + index;
+        this.roomId = options.roomBase + index % Math.max(1, (options.players + 1) / 2);
+        this.channel = channel;
+        this.sendBuffer = sendBuffer;
+        this.inbound = new OnlineMessage();
+        this.outbound = new OnlineMessage();
+    }
+
+    @Override
+    public void start(long nowNanos) {
+        connectStartNanos = nowNanos;
+        lastKeepaliveNanos = nowNanos;
+        send(outbound.spectate(name, roomId));
+    }
+
+    boolean isJoined() {
+        return joined;
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer, long nowNanos) throws IOException {
+        while (true) {
+            buffer.clear();
+            if (channel.receive(buffer) == null) {
+                return;
+            }
+            buffer.flip();
+            stats.spectatorPacketsIn++;
+            stats.spectatorBytesIn += buffer.remaining();
+            handlePacket(buffer, nowNanos);
+        }
+    }
+
+    private void handlePacket(ByteBuffer data, long nowNanos) {
+        if (OnlineCodec.readFrameHeader(data) != OnlineCodec.FORMAT_BINARY) {
+            stats.errors++;
+            return;
+        }
+        while (OnlineCodec.decode(data, OnlineCodec.FORMAT_BINARY, inbound)) {
+            switch (inbound.opcode) {
+                case OnlineProtocol.OP_WELCOME:
+                    if (!joined) {
+                        joined = true;
+                        stats.spectateNanos.record(nowNanos - connectStartNanos);
+                    }
+                    break;
+                case OnlineProtocol.OP_ROOM:
+                    // Cada frame de espectador empieza por la sala completa.
+                    if (lastFrameNanos > 0L) {
+                        stats.spectatorGapNanos.record(nowNanos - lastFrameNanos);
+                    }
+                    lastFrameNanos = nowNanos;
+                    stats.spectatorFrames++;
+                    break;
+                case OnlineProtocol.OP_ERROR:
+                    stats.errors++;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // SPECTATE hace de alta y de keepalive: sin el el servidor da de baja al espectador.
+    @Override
+    public void tick(long nowNanos) {
+        if (nowNanos - lastKeepaliveNanos >= KEEPALIVE_NANOS) {
+            lastKeepaliveNanos = nowNanos;
+            send(outbound.spectate(name, roomId));
+        }
+    }
+
+    @Override
+    public void leave() {
+        send(outbound.leave(0));
+    }
+
+    private void send(OnlineMessage message) {
+        ByteBuffer buffer = sendBuffer;
+        buffer.clear();
+        OnlineCodec.writeFrameHeader(buffer, true);
+        if (!OnlineCodec.encode(buffer, message, true)) {
+            return;
+        }
+        buffer.flip();
+        int bytes = buffer.remaining();
+        try {
+            if (channel.write(buffer) > 0) {
+                stats.packetsOut++;
+                stats.bytesOut += bytes;
+            }
+        } catch (IOException e) {
+            stats.errors++;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.flappyboldo.game.server;
+
+import com.flappyboldo.game.cli.CliArgs;
+import com.flappyboldo.game.replay.MatchReplay;
+import com.flappyboldo.game.replay.ReplayFormat;
+import com.flappyboldo.game.replay.ReplayReader;
+import com.flappyboldo.game.replay.ReplayVerifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Auditoria de repeticiones: re-simula cada partida grabada tan rapido como da la CPU, repartiendo
+// archivos y lotes de partidas en un ForkJoinPool. Sale con codigo 1 si algo no cuadra.
+public final class ReplayVerifierMain {
+    private ReplayVerifierMain() {
+    }
+
+    private static final int MATCH_BATCH = 64;
+    private static final int DEFAULT_MAX_REPORTS = 20;
+    private static final String USAGE = "Usage: ReplayVerifierMain <replay file or directory>... [--threads=N] [--max-reports=N]";
+
+    public static void main(String[] args) throws Exception {
+        List<File> files = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxReports = DEFAULT_MAX_REPORTS;
+        for (String rawArg : args) {
+            String arg = rawArg == null ? "" : rawArg.trim();
+            if (arg.isEmpty()) {
+                continue;
+            }
+            if (arg.startsWith("--threads=")) {
+                threads = CliArgs.parseBoundedInt(arg.substring("--threads=".length()), 1, 1024, "thread count", USAGE);
+            } else if (arg.startsWith("--max-reports=")) {
+                maxReports = CliArgs.parseBoundedInt(arg.substring("--max-reports=".length()),
+                    0, Integer.MAX_VALUE, "report limit", USAGE);
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + arg + ". " + USAGE);
+            } else {
+                collectFiles(new File(arg), files);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No replay files found. " + USAGE);
+        }
+
+        Audit audit = new Audit(maxReports);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new FilesTask(files, 0, files.size(), audit));
+        } finally {
+            pool.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        for (String report : audit.reports) {
+            System.out.println(report);
+        }
+        printSummary(files.size(), threads, audit, elapsedNanos);
+        if (audit.mismatches.sum() > 0L || audit.unreadableFiles.sum() > 0L) {
+            System.exit(1);
+        }
+    }
+
+    private static void collectFiles(File path, List<File> out) {
+        if (path.isDirectory()) {
+            File[] children = path.listFiles((dir, name) -> name.endsWith(ReplayFormat.FILE_EXTENSION));
+            if (children != null) {
+                Arrays.sort(children);
+                out.addAll(Arrays.asList(children));
+            }
+        } else if (path.isFile()) {
+            out.add(path);
+        } else {
+            throw new IllegalArgumentException("Replay path not found: " + path + ". " + USAGE);
+        }
+    }
+
+    private static void printSummary(int fileCount, int threads, Audit audit, long elapsedNanos) {
+        double seconds = Math.max(1e-9, elapsedNanos / 1_000_000_000.0);
+        long matches = audit.matches.sum();
+        long ticks = audit.simulatedTicks.sum();
+        double simulatedSeconds = audit.simulatedMicros.sum() / 1_000_000.0;
+        System.out.println(String.format(Locale.US,
+            "Verified %d matches from %d files in %.2f s on %d threads: %d ok, %d mismatched, %d skipped,"
+                + " %d unreadable files, %d bytes of partial records discarded",
+            matches, fileCount, seconds, threads, audit.verified.sum(), audit.mismatches.sum(), audit.skipped.sum(),
+            audit.unreadableFiles.sum(), audit.discardedBytes.sum()));
+        System.out.println(String.format(Locale.US,
+            "Throughput: %.0f matches/s, %.2f M ticks/s, %.0fx real time (%.1f h of play simulated)",
+            matches / seconds, ticks / seconds / 1_000_000.0, simulatedSeconds / seconds, simulatedSeconds / 3600.0));
+    }
+
+    private static final class Audit {
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder verified = new LongAdder();
+        private final LongAdder mismatches = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder unreadableFiles = new LongAdder();
+        private final LongAdder discardedBytes = new LongAdder();
+        private final LongAdder simulatedTicks = new LongAdder();
+        private final LongAdder simulatedMicros = new LongAdder();
+        private final ConcurrentLinkedQueue<String> reports = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger reportSlots;
+
+        private Audit(int maxReports) {
+            this.reportSlots = new AtomicInteger(maxReports);
+        }
+
+        private void report(String message) {
+            if (reportSlots.getAndDecrement() > 0) {
+                reports.add(message);
+            }
+        }
+    }
+
+    // Un archivo por hoja; dentro, las partidas se reparten en lotes para no quedar en un solo hilo.
+    private static final class FilesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final int from;
+        private final int to;
+        private final Audit audit;
+
+        private FilesTask(List<File> files, int from, int to, Audit audit) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.audit = audit;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FilesTask(files, from, middle, audit), new FilesTask(files, middle, to, audit));
+                return;
+            }
+            File file = files.get(from);
+            ReplayReader reader = new ReplayReader(file);
+            List<MatchReplay> matches;
+            try {
+                matches = reader.readAll();
+            } catch (IOException e) {
+                audit.unreadableFiles.increment();
+                audit.report("UNREADABLE " + file + ": " + e.getMessage());
+                return;
+            }
+            audit.discardedBytes.add(reader.getDiscardedBytes());
+            new MatchesTask(matches, 0, matches.size(), audit).compute();
+        }
+    }
+
+    private static final class MatchesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<MatchReplay> matches;
+        private final int from;
+        private final int to;
+        private final Audit audit;
+
+        private MatchesTask(List<MatchReplay> matches, int from, int to, Audit audit) {
+            this.matches = matches;
+            this.from = from;
+            this.to = to;
+            this.audit = audit;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > MATCH_BATCH) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MatchesTask(matches, from, middle, audit), new MatchesTask(matches, middle, to, audit));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                MatchReplay match = matches.get(i);
+                ReplayVerifier.Result result = ReplayVerifier.verify(match);
+                audit.matches.increment();
+                audit.simulatedTicks.add(result.simulatedTicks);
+                audit.simulatedMicros.add(result.simulatedTicks * 1_000_000L / match.tickRate);
+                if (result.status == ReplayVerifier.STATUS_OK) {
+                    audit.verified.increment();
+                } else if (result.status == ReplayVerifier.STATUS_SKIPPED) {
+                    audit.skipped.increment();
+                } else {
+                    audit.mismatches.increment();
+                    audit.report("MISMATCH " + match.describe() + ": " + result.detail);
+                }
+            }
+        }
+    }
+}
@@ -1,134 +1,177 @@
 package com.flappyboldo.game.server;
 
+import com.flappyboldo.game.cli.CliArgs;
+import com.flappyboldo.game.online.net.LatencyHistogram;
 import com.flappyboldo.game.online.net.OnlineProtocol;
 import com.flappyboldo.game.online.net.OnlineServer;
+import com.flappyboldo.game.online.net.ServerMetrics;
+import com.flappyboldo.game.online.net.ServerTickScheduler;
+import com.flappyboldo.game.replay.ReplayRecorder;
 
-import javax.swing.DefaultListModel;
-import javax.swing.JFrame;
-import javax.swing.JLabel;
-import javax.swing.JList;
-import javax.swing.JPanel;
-import javax.swing.JScrollPane;
-import javax.swing.SwingUtilities;
-import javax.swing.Timer;
-import javax.swing.WindowConstants;
-import java.awt.BorderLayout;
-import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
-import java.net.SocketException;
 import java.util.Enumeration;
+import java.util.Locale;
 
 public final class ServerMain {
     private ServerMain() {
     }
 
+    private static final long STATUS_INTERVAL_MS = 10_000L;
+    private static final String USAGE = "Usage: server.jar [port] [--tick-rate=N] [--send-rate=N] [--lag-compensation-ms=N] [--headless]"
+        + " [--spectator-rate=N] [--record-replays=DIR] [--replay-max-mb=N]";
+
     public static void main(String[] args) throws Exception {
-        int port = parsePort(args);
-        OnlineServer server = startServer(port);
+        ServerOptions options = parseOptions(args);
+        int port = options.port;
+        OnlineServer server = startServer(options);
 
         Runtime.getRuntime().addShutdownHook(new Thread(server::closeServer));
 
-        SwingUtilities.invokeLater(() -> createAndShowMonitor(server, port));
+        if (options.headless) {
+            System.out.println("Headless mode: listening on " + resolveLocalIp() + ":" + port);
+            startStatusReporter(server);
+        } else {
+            ServerMonitorWindow.open(server, port);
+        }
         server.join();
     }
 
-    private static int parsePort(String[] args) {
-        if (args == null || args.length == 0) {
-            return OnlineProtocol.PORT;
+    private static void startStatusReporter(OnlineServer server) {
+        Thread reporter = new Thread(() -> {
+            while (server.isAlive()) {
+                try {
+                    Thread.sleep(STATUS_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ServerMetrics metrics = server.getMetrics();
+                LatencyHistogram tick = metrics.getTickNanos();
+                System.out.println(String.format(Locale.US,
+                    "Status: %d rooms, %d players, %d spectators, %d pipes | tick p50 %.3f ms p99 %.3f ms max %.3f ms, %d overruns"
+                        + " | packets %d in / %d out, %.1f KB out, %.2f msgs/datagram",
+                    metrics.getRoomCount(), metrics.getPlayerCount(), metrics.getSpectatorCount(), metrics.getPipeCount(),
+                    tick.getPercentileNanos(50.0) / 1_000_000.0, tick.getPercentileNanos(99.0) / 1_000_000.0,
+                    tick.getMaxNanos() / 1_000_000.0, server.getTickOverrunCount(),
+                    metrics.getPacketsIn(), metrics.getPacketsOut(), metrics.getBytesOut() / 1024.0,
+                    server.getMessagesPerDatagram()));
+                if (metrics.getSpectatorCount() > 0 || server.getSpectatorFramesSent() > 0L) {
+                    System.out.println(String.format(Locale.US,
+                        "Spectators: %d frames encoded, %d datagrams fanned out, %d frames dropped, %d sends over budget",
+                        server.getSpectatorFramesSent(), server.getSpectatorDatagramsSent(),
+                        server.getSpectatorFramesDropped(), metrics.getSpectatorSendsDropped()));
+                }
+                if (metrics.getPlayerSendsDropped() > 0L) {
+                    System.out.println("Player sends dropped (socket buffer full): " + metrics.getPlayerSendsDropped());
+                }
+                if (metrics.getReliableBacklogged() > 0L || metrics.getReliableOverflows() > 0L) {
+                    System.out.println(String.format(Locale.US,
+                        "Reliable: %d messages waited for a full window, %d lost to overflowed sessions",
+                        metrics.getReliableBacklogged(), metrics.getReliableOverflows()));
+                }
+                LatencyHistogram queueWait = metrics.getQueueWaitNanos();
+                if (metrics.getQueuedCount() > 0 || queueWait.getCount() > 0L) {
+                    System.out.println(String.format(Locale.US,
+                        "Queue: %d waiting, %d players matched | wait p50 %.0f ms p90 %.0f ms p99 %.0f ms max %.0f ms"
+                            + " | pair RTT gap p50 %.1f ms p99 %.1f ms",
+                        metrics.getQueuedCount(), queueWait.getCount(),
+                        queueWait.getPercentileNanos(50.0) / 1_000_000.0, queueWait.getPercentileNanos(90.0) / 1_000_000.0,
+                        queueWait.getPercentileNanos(99.0) / 1_000_000.0, queueWait.getMaxNanos() / 1_000_000.0,
+                        metrics.getMatchRttGapNanos().getPercentileNanos(50.0) / 1_000_000.0,
+                        metrics.getMatchRttGapNanos().getPercentileNanos(99.0) / 1_000_000.0));
+                }
+                ReplayRecorder replays = server.getReplayRecorder();
+                if (replays != null) {
+                    System.out.println(String.format(Locale.US, "Replays: %d matches written (%.1f KB), %d dropped",
+                        replays.getMatchesWritten(), replays.getBytesWritten() / 1024.0, replays.getMatchesDropped()));
+                }
+            }
+        }, "online-server-status");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    private static ServerOptions parseOptions(String[] args) {
+        ServerOptions options = new ServerOptions();
+        if (args == null) {
+            return options;
         }
+        for (String rawArg : args) {
+            String arg = rawArg == null ? "" : rawArg.trim();
+            if (arg.isEmpty()) {
+                continue;
+            }
+            if (arg.startsWith("--tick-rate=")) {
+                options.tickRate = parsePositiveInt(arg.substring("--tick-rate=".length()), "tick rate");
+            } else if (arg.startsWith("--send-rate=")) {
+                options.sendRate = parsePositiveInt(arg.substring("--send-rate=".length()), "send rate");
+            } else if (arg.startsWith("--spectator-rate=")) {
+                options.spectatorRate = parsePositiveInt(arg.substring("--spectator-rate=".length()), "spectator rate");
+            } else if (arg.startsWith("--record-replays=")) {
+                options.replayDirectory = arg.substring("--record-replays=".length()).trim();
+                if (options.replayDirectory.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid replay directory. " + USAGE);
+                }
+            } else if (arg.startsWith("--replay-max-mb=")) {
+                options.replayMaxMegabytes = CliArgs.parseBoundedInt(arg.substring("--replay-max-mb=".length()),
+                    1, 65536, "replay file size", USAGE);
+            } else if (arg.equals("--headless")) {
+                options.headless = true;
+            } else if (arg.startsWith("--lag-compensation-ms=")) {
+                options.lagCompensationMs = CliArgs.parseBoundedInt(arg.substring("--lag-compensation-ms=".length()),
+                    0, OnlineServer.MAX_LAG_COMPENSATION_MS, "lag compensation", USAGE);
+            } else {
+                options.port = parsePort(arg);
+            }
+        }
+        if (options.sendRate > options.tickRate) {
+            throw new IllegalArgumentException("Send rate cannot exceed the tick rate. " + USAGE);
+        }
+        if (options.spectatorRate == 0) {
+            options.spectatorRate = Math.min(OnlineServer.DEFAULT_SPECTATOR_RATE, options.sendRate);
+        } else if (options.spectatorRate > options.sendRate) {
+            throw new IllegalArgumentException("Spectator rate cannot exceed the send rate. " + USAGE);
+        }
+        return options;
+    }
+
+    private static int parsePort(String arg) {
         try {
-            int value = Integer.parseInt(args[0].trim());
+            int value = Integer.parseInt(arg);
             if (value < 1 || value > 65535) {
                 throw new IllegalArgumentException("Port must be between 1 and 65535");
             }
             return value;
         } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid port argument. Usage: server.jar [port]");
+            throw new IllegalArgumentException("Invalid port argument. " + USAGE);
         }
     }
 
-    private static OnlineServer startServer(int port) throws SocketException {
-        OnlineServer server = new OnlineServer(port);
+    private static int parsePositiveInt(String raw, String label) {
+        return CliArgs.parseBoundedInt(raw, 1, Integer.MAX_VALUE, label, USAGE);
+    }
+
+    private static OnlineServer startServer(ServerOptions options) throws IOException {
+        OnlineServer server = new OnlineServer(options.port, options.tickRate, options.sendRate,
+            options.lagCompensationMs, options.spectatorRate);
         server.setName("online-udp-server");
+        if (options.replayDirectory != null) {
+            server.enableReplayRecording(new File(options.replayDirectory), options.replayMaxMegabytes * 1024L * 1024L);
+            System.out.println("Recording match replays to " + new File(options.replayDirectory).getAbsolutePath()
+                + " (" + options.replayMaxMegabytes + " MB per file).");
+        }
         server.start();
-        System.out.println("Online server started on UDP port " + server.getPort() + ".");
+        System.out.println("Online server started on UDP port " + server.getPort()
+            + " (" + server.getTickRate() + " Hz tick, " + server.getSendRate() + " Hz send, "
+            + server.getLagCompensationMs() + " ms lag compensation, " + server.getSpectatorRate()
+            + " Hz spectators).");
         return server;
     }
 
-    private static void createAndShowMonitor(OnlineServer server, int port) {
-        JFrame frame = new JFrame("FlappyBird UDP Server - Port " + port);
-        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
-
-        String serverIp = resolveLocalIp();
-        JLabel serverIpLabel = new JLabel("Server IP: " + serverIp + ":" + port);
-        JLabel roomStateLabel = new JLabel("Room state: " + OnlineProtocol.ROOM_WAITING);
-        JLabel lastWinnerLabel = new JLabel("Last winner: -");
-
-        DefaultListModel<String> playerModel = new DefaultListModel<>();
-        JList<String> playerList = new JList<>(playerModel);
-
-        JPanel topPanel = new JPanel(new GridLayout(3, 1));
-        topPanel.add(serverIpLabel);
-        topPanel.add(roomStateLabel);
-        topPanel.add(lastWinnerLabel);
-
-        frame.setLayout(new BorderLayout(8, 8));
-        frame.add(topPanel, BorderLayout.NORTH);
-        frame.add(new JScrollPane(playerList), BorderLayout.CENTER);
-
-        Timer timer = new Timer(250, event -> {
-            OnlineServer.ServerSnapshot snapshot = server.getSnapshot();
-            roomStateLabel.setText("Room state: " + snapshot.roomState);
-
-            String winnerText = "-";
-            if (snapshot.lastWinnerId > 0) {
-                for (OnlineServer.PlayerSnapshot player : snapshot.players) {
-                    if (player.id == snapshot.lastWinnerId) {
-                        winnerText = "P" + player.id + " - " + player.name;
-                        break;
-                    }
-                }
-                if ("-".equals(winnerText)) {
-                    winnerText = "P" + snapshot.lastWinnerId;
-                }
-            } else if (OnlineProtocol.ROOM_FINISHED.equals(snapshot.roomState)) {
-                winnerText = "Draw";
-            }
-            lastWinnerLabel.setText("Last winner: " + winnerText);
-
-            playerModel.clear();
-            if (snapshot.players.isEmpty()) {
-                playerModel.addElement("No players connected");
-            } else {
-                for (OnlineServer.PlayerSnapshot player : snapshot.players) {
-                    playerModel.addElement(
-                        "P" + player.id
-                            + " - " + player.name
-                            + " | score=" + player.score
-                            + " | " + (player.ready ? "READY" : "WAIT")
-                            + " | " + (player.alive ? "ALIVE" : "OUT")
-                    );
-                }
-            }
-        });
-        timer.start();
-
-        frame.addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosed(java.awt.event.WindowEvent e) {
-                timer.stop();
-                server.closeServer();
-            }
-        });
-
-        frame.setSize(520, 360);
-        frame.setLocationRelativeTo(null);
-        frame.setVisible(true);
-    }
-
-    private static String resolveLocalIp() {
+    static String resolveLocalIp() {
         try {
             Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
             String firstNonLoopback = null;
@@ -159,4 +202,15 @@ public final class ServerMain {
         }
         return "0.0.0.0";
     }
+
+    private static final class ServerOptions {
+        private int port = OnlineProtocol.PORT;
+        private int tickRate = ServerTickScheduler.DEFAULT_TICK_RATE;
+        private int sendRate = ServerTickScheduler.DEFAULT_SEND_RATE;
+        private int lagCompensationMs = OnlineServer.DEFAULT_LAG_COMPENSATION_MS;
+        private int spectatorRate;
+        private boolean headless = Boolean.getBoolean("java.awt.headless");
+        private String replayDirectory;
+        private int replayMaxMegabytes = (int) (ReplayRecorder.DEFAULT_MAX_FILE_BYTES / (1024L * 1024L));
+    }
 }
@@ -0,0 +1,120 @@
+package com.flappyboldo.game.server;
+
+import com.flappyboldo.game.online.net.LatencyHistogram;
+import com.flappyboldo.game.online.net.OnlineProtocol;
+import com.flappyboldo.game.online.net.OnlineServer;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+import java.awt.BorderLayout;
+import java.awt.GridLayout;
+import java.util.Locale;
+
+// Ventana de monitor en Swing; vive aparte para que el modo headless nunca cargue AWT.
+final class ServerMonitorWindow {
+    private ServerMonitorWindow() {
+    }
+
+    static void open(OnlineServer server, int port) {
+        SwingUtilities.invokeLater(() -> createAndShowMonitor(server, port));
+    }
+
+    private static void createAndShowMonitor(OnlineServer server, int port) {
+        JFrame frame = new JFrame("FlappyBird UDP Server - Port " + port);
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+
+        String serverIp = ServerMain.resolveLocalIp();
+        JLabel serverIpLabel = new JLabel("Server IP: " + serverIp + ":" + port);
+        JLabel roomCountLabel = new JLabel("Rooms: 0");
+        JLabel playerCountLabel = new JLabel("Players: 0");
+        JLabel networkLabel = new JLabel("Network: -");
+        JLabel tickLabel = new JLabel("Tick: -");
+
+        DefaultListModel<String> roomModel = new DefaultListModel<>();
+        JList<String> roomList = new JList<>(roomModel);
+
+        JPanel topPanel = new JPanel(new GridLayout(5, 1));
+        topPanel.add(serverIpLabel);
+        topPanel.add(roomCountLabel);
+        topPanel.add(playerCountLabel);
+        topPanel.add(networkLabel);
+        topPanel.add(tickLabel);
+
+        frame.setLayout(new BorderLayout(8, 8));
+        frame.add(topPanel, BorderLayout.NORTH);
+        frame.add(new JScrollPane(roomList), BorderLayout.CENTER);
+
+        Timer timer = new Timer(250, event -> {
+            OnlineServer.ServerSnapshot snapshot = server.getSnapshot();
+            roomCountLabel.setText("Rooms: " + snapshot.rooms.size());
+            playerCountLabel.setText("Players: " + snapshot.playerCount);
+            networkLabel.setText(String.format(Locale.US, "Network: %d datagrams, %.2f msgs/datagram, %.1f KB saved",
+                server.getCoalescedDatagramCount(),
+                server.getMessagesPerDatagram(),
+                server.getCoalescingBytesSaved() / 1024.0));
+            LatencyHistogram tick = server.getMetrics().getTickNanos();
+            tickLabel.setText(String.format(Locale.US, "Tick: p50 %.3f ms, p99 %.3f ms, max %.3f ms, lag p99 %.3f ms",
+                tick.getPercentileNanos(50.0) / 1_000_000.0,
+                tick.getPercentileNanos(99.0) / 1_000_000.0,
+                tick.getMaxNanos() / 1_000_000.0,
+                server.getMetrics().getTickLagNanos().getPercentileNanos(99.0) / 1_000_000.0));
+
+            roomModel.clear();
+            if (snapshot.rooms.isEmpty()) {
+                roomModel.addElement("No players connected");
+                return;
+            }
+            for (OnlineServer.RoomSnapshot room : snapshot.rooms) {
+                roomModel.addElement("Room " + room.roomId
+                    + " | " + room.roomState
+                    + " | last winner: " + describeWinner(room));
+                for (OnlineServer.PlayerSnapshot player : room.players) {
+                    roomModel.addElement(
+                        "    P" + player.id
+                            + " - " + player.name
+                            + " | score=" + player.score
+                            + " | " + (player.ready ? "READY" : "WAIT")
+                            + " | " + (player.alive ? "ALIVE" : "OUT")
+                            + String.format(Locale.US, " | rtt=%.0f ms jitter=%.1f ms loss=%.0f%%",
+                                player.rttMillis, player.jitterMillis, player.lossRate * 100f)
+                    );
+                }
+            }
+        });
+        timer.start();
+
+        frame.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                timer.stop();
+                server.closeServer();
+            }
+        });
+
+        frame.setSize(520, 360);
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+
+    private static String describeWinner(OnlineServer.RoomSnapshot room) {
+        if (room.lastWinnerId > 0) {
+            for (OnlineServer.PlayerSnapshot player : room.players) {
+                if (player.id == room.lastWinnerId) {
+                    return "P" + player.id + " - " + player.name;
+                }
+            }
+            return "P" + room.lastWinnerId;
+        }
+        if (OnlineProtocol.ROOM_FINISHED.equals(room.roomState)) {
+            return "Draw";
+        }
+        return "-";
+    }
+}